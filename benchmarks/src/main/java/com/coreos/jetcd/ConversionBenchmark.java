@@ -0,0 +1,127 @@
+package com.coreos.jetcd;
+
+import com.google.protobuf.ByteString;
+
+import com.coreos.jetcd.api.Event;
+import com.coreos.jetcd.api.KeyValue;
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.watch.WatchEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversions between the API messages and the client data classes, run with
+ * {@code -prof gc} to see the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionBenchmark {
+
+    @Param({"16", "1024", "65536"})
+    private int size;
+
+    private byte[]       bytes;
+    private ByteString   byteString;
+    private ByteSequence byteSequence;
+    private KeyValue     keyValue;
+    private List<Event>  events;
+
+    @Setup
+    public void setUp() {
+        bytes = new byte[size];
+        new Random(0).nextBytes(bytes);
+        byteString = ByteString.copyFrom(bytes);
+        byteSequence = ByteSequence.fromBytes(bytes);
+        keyValue = KeyValue.newBuilder()
+                .setKey(ByteString.copyFromUtf8("benchmark/key"))
+                .setValue(byteString)
+                .setCreateRevision(1)
+                .setModRevision(1)
+                .setVersion(1)
+                .build();
+        events = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            events.add(Event.newBuilder().setType(Event.EventType.PUT).setKv(keyValue).build());
+        }
+    }
+
+    @Benchmark
+    public ByteSequence fromBytes() {
+        return ByteSequence.fromBytes(bytes);
+    }
+
+    @Benchmark
+    public ByteSequence fromByteString() {
+        return EtcdUtil.byteSequceFromByteString(byteString);
+    }
+
+    @Benchmark
+    public ByteString toByteString() {
+        return EtcdUtil.byteStringFromByteSequence(byteSequence);
+    }
+
+    @Benchmark
+    public byte[] getBytes() {
+        return byteSequence.getBytes();
+    }
+
+    @Benchmark
+    public int hashCodeOf() {
+        return ByteSequence.fromByteString(byteString).hashCode();
+    }
+
+    @Benchmark
+    public com.coreos.jetcd.data.KeyValue keyValue() {
+        return EtcdUtil.apiToClientKV(keyValue);
+    }
+
+    @Benchmark
+    public List<WatchEvent> events() {
+        return EtcdUtil.apiToClientEvents(events);
+    }
+
+    /**
+     * a consumer filtering on the event type, the key values are not read.
+     */
+    @Benchmark
+    public int eventTypes() {
+        int puts = 0;
+        for (WatchEvent event : EtcdUtil.apiToClientEvents(events)) {
+            if (event.getEventType() == WatchEvent.EventType.PUT) {
+                puts++;
+            }
+        }
+        return puts;
+    }
+
+    /**
+     * a consumer reading the key and value of every event.
+     */
+    @Benchmark
+    public int eventValues() {
+        int bytes = 0;
+        for (WatchEvent event : EtcdUtil.apiToClientEvents(events)) {
+            bytes += event.getKeyValue().getKey().size() + event.getKeyValue().getValue().size();
+        }
+        return bytes;
+    }
+}
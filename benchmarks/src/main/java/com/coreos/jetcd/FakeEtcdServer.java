@@ -0,0 +1,332 @@
+package com.coreos.jetcd;
+
+import com.google.protobuf.ByteString;
+
+import com.coreos.jetcd.api.CompactionRequest;
+import com.coreos.jetcd.api.CompactionResponse;
+import com.coreos.jetcd.api.DeleteRangeRequest;
+import com.coreos.jetcd.api.DeleteRangeResponse;
+import com.coreos.jetcd.api.Event;
+import com.coreos.jetcd.api.KVGrpc;
+import com.coreos.jetcd.api.KeyValue;
+import com.coreos.jetcd.api.LeaseGrantRequest;
+import com.coreos.jetcd.api.LeaseGrantResponse;
+import com.coreos.jetcd.api.LeaseGrpc;
+import com.coreos.jetcd.api.LeaseKeepAliveRequest;
+import com.coreos.jetcd.api.LeaseKeepAliveResponse;
+import com.coreos.jetcd.api.LeaseRevokeRequest;
+import com.coreos.jetcd.api.LeaseRevokeResponse;
+import com.coreos.jetcd.api.PutRequest;
+import com.coreos.jetcd.api.PutResponse;
+import com.coreos.jetcd.api.RangeRequest;
+import com.coreos.jetcd.api.RangeResponse;
+import com.coreos.jetcd.api.RequestOp;
+import com.coreos.jetcd.api.ResponseHeader;
+import com.coreos.jetcd.api.ResponseOp;
+import com.coreos.jetcd.api.TxnRequest;
+import com.coreos.jetcd.api.TxnResponse;
+import com.coreos.jetcd.api.WatchGrpc;
+import com.coreos.jetcd.api.WatchRequest;
+import com.coreos.jetcd.api.WatchResponse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * In-process gRPC server implementing a minimal single member etcd for the KV, Watch and
+ * Lease services, so the client overhead can be measured without network or raft cost.
+ * <p>Writes are kept in memory without history, watchers are only fed through
+ * {@link #broadcast(List)}.
+ */
+public class FakeEtcdServer implements Closeable {
+
+    private static final Comparator<ByteString> KEY_ORDER = (left, right) -> {
+        int size = Math.min(left.size(), right.size());
+        for (int i = 0; i < size; i++) {
+            int result = (left.byteAt(i) & 0xff) - (right.byteAt(i) & 0xff);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return left.size() - right.size();
+    };
+
+    private final String                                    name;
+    private final Server                                    server;
+    private final AtomicLong                                revision  = new AtomicLong(1);
+    private final AtomicLong                                ids       = new AtomicLong(1);
+    private final NavigableMap<ByteString, KeyValue>        store     = new ConcurrentSkipListMap<>(KEY_ORDER);
+    private final List<ServerWatcher>                       watchers  = new CopyOnWriteArrayList<>();
+
+    public FakeEtcdServer(String name) throws IOException {
+        this.name = name;
+        this.server = InProcessServerBuilder.forName(name)
+                .addService(new FakeKV())
+                .addService(new FakeWatch())
+                .addService(new FakeLease())
+                .build()
+                .start();
+    }
+
+    /**
+     * create a channel builder connected to this server.
+     *
+     * @return channel builder
+     */
+    public ManagedChannelBuilder<?> channelBuilder() {
+        return InProcessChannelBuilder.forName(name);
+    }
+
+    /**
+     * send one watch response holding the events to every watcher.
+     *
+     * @param events the events to send
+     */
+    public void broadcast(List<Event> events) {
+        for (ServerWatcher watcher : watchers) {
+            watcher.send(WatchResponse.newBuilder()
+                    .setHeader(header())
+                    .setWatchId(watcher.id)
+                    .addAllEvents(events)
+                    .build());
+        }
+    }
+
+    /**
+     * get the number of watchers created on the server.
+     *
+     * @return the number of watchers
+     */
+    public int watcherCount() {
+        return watchers.size();
+    }
+
+    @Override
+    public void close() {
+        server.shutdownNow();
+    }
+
+    private ResponseHeader header() {
+        return ResponseHeader.newBuilder().setClusterId(1).setMemberId(1).setRevision(revision.get()).setRaftTerm(1).build();
+    }
+
+    private PutResponse doPut(PutRequest request) {
+        long rev = revision.incrementAndGet();
+        KeyValue prev = store.get(request.getKey());
+        store.put(request.getKey(), KeyValue.newBuilder()
+                .setKey(request.getKey())
+                .setValue(request.getValue())
+                .setCreateRevision(prev == null ? rev : prev.getCreateRevision())
+                .setModRevision(rev)
+                .setVersion(prev == null ? 1 : prev.getVersion() + 1)
+                .setLease(request.getLease())
+                .build());
+        PutResponse.Builder response = PutResponse.newBuilder().setHeader(header());
+        if (request.getPrevKv() && prev != null) {
+            response.setPrevKv(prev);
+        }
+        return response.build();
+    }
+
+    private RangeResponse doRange(RangeRequest request) {
+        RangeResponse.Builder response = RangeResponse.newBuilder().setHeader(header());
+        Map<ByteString, KeyValue> matched = range(request.getKey(), request.getRangeEnd());
+        int count = 0;
+        for (KeyValue keyValue : matched.values()) {
+            if (request.getLimit() > 0 && count == request.getLimit()) {
+                response.setMore(true);
+                break;
+            }
+            response.addKvs(keyValue);
+            count++;
+        }
+        return response.setCount(matched.size()).build();
+    }
+
+    private DeleteRangeResponse doDelete(DeleteRangeRequest request) {
+        Map<ByteString, KeyValue> matched = range(request.getKey(), request.getRangeEnd());
+        DeleteRangeResponse.Builder response = DeleteRangeResponse.newBuilder();
+        if (!matched.isEmpty()) {
+            revision.incrementAndGet();
+        }
+        for (KeyValue keyValue : matched.values()) {
+            store.remove(keyValue.getKey());
+            if (request.getPrevKv()) {
+                response.addPrevKvs(keyValue);
+            }
+        }
+        return response.setHeader(header()).setDeleted(matched.size()).build();
+    }
+
+    private Map<ByteString, KeyValue> range(ByteString key, ByteString rangeEnd) {
+        if (rangeEnd.isEmpty()) {
+            KeyValue keyValue = store.get(key);
+            return keyValue == null ? Collections.emptyMap() : Collections.singletonMap(key, keyValue);
+        }
+        if (rangeEnd.equals(EtcdConstants.NULL_KEY)) {
+            return store.tailMap(key, true);
+        }
+        return store.subMap(key, true, rangeEnd, false);
+    }
+
+    private class FakeKV extends KVGrpc.KVImplBase {
+
+        @Override
+        public void range(RangeRequest request, StreamObserver<RangeResponse> responseObserver) {
+            responseObserver.onNext(doRange(request));
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void put(PutRequest request, StreamObserver<PutResponse> responseObserver) {
+            responseObserver.onNext(doPut(request));
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void deleteRange(DeleteRangeRequest request, StreamObserver<DeleteRangeResponse> responseObserver) {
+            responseObserver.onNext(doDelete(request));
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void txn(TxnRequest request, StreamObserver<TxnResponse> responseObserver) {
+            TxnResponse.Builder response = TxnResponse.newBuilder().setSucceeded(true);
+            for (RequestOp op : request.getSuccessList()) {
+                switch (op.getRequestCase()) {
+                    case REQUEST_PUT:
+                        response.addResponses(ResponseOp.newBuilder().setResponsePut(doPut(op.getRequestPut())));
+                        break;
+                    case REQUEST_RANGE:
+                        response.addResponses(ResponseOp.newBuilder().setResponseRange(doRange(op.getRequestRange())));
+                        break;
+                    case REQUEST_DELETE_RANGE:
+                        response.addResponses(ResponseOp.newBuilder().setResponseDeleteRange(doDelete(op.getRequestDeleteRange())));
+                        break;
+                    default:
+                        break;
+                }
+            }
+            responseObserver.onNext(response.setHeader(header()).build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void compact(CompactionRequest request, StreamObserver<CompactionResponse> responseObserver) {
+            responseObserver.onNext(CompactionResponse.newBuilder().setHeader(header()).build());
+            responseObserver.onCompleted();
+        }
+    }
+
+    private class FakeWatch extends WatchGrpc.WatchImplBase {
+
+        @Override
+        public StreamObserver<WatchRequest> watch(StreamObserver<WatchResponse> responseObserver) {
+            // like etcd, watch ids are allocated per stream starting from zero
+            AtomicLong watchIds = new AtomicLong();
+            return new StreamObserver<WatchRequest>() {
+                @Override
+                public void onNext(WatchRequest request) {
+                    if (request.getRequestUnionCase() == WatchRequest.RequestUnionCase.CREATE_REQUEST) {
+                        ServerWatcher watcher = new ServerWatcher(watchIds.getAndIncrement(), responseObserver);
+                        watchers.add(watcher);
+                        watcher.send(WatchResponse.newBuilder().setHeader(header()).setWatchId(watcher.id).setCreated(true).build());
+                    } else if (request.getRequestUnionCase() == WatchRequest.RequestUnionCase.CANCEL_REQUEST) {
+                        long id = request.getCancelRequest().getWatchId();
+                        watchers.removeIf(watcher -> watcher.stream == responseObserver && watcher.id == id);
+                        synchronized (responseObserver) {
+                            responseObserver.onNext(WatchResponse.newBuilder().setHeader(header()).setWatchId(id).setCanceled(true).build());
+                        }
+                    }
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    watchers.removeIf(watcher -> watcher.stream == responseObserver);
+                }
+
+                @Override
+                public void onCompleted() {
+                    watchers.removeIf(watcher -> watcher.stream == responseObserver);
+                    responseObserver.onCompleted();
+                }
+            };
+        }
+    }
+
+    private class FakeLease extends LeaseGrpc.LeaseImplBase {
+
+        @Override
+        public void leaseGrant(LeaseGrantRequest request, StreamObserver<LeaseGrantResponse> responseObserver) {
+            responseObserver.onNext(LeaseGrantResponse.newBuilder()
+                    .setHeader(header())
+                    .setID(request.getID() != 0 ? request.getID() : ids.incrementAndGet())
+                    .setTTL(request.getTTL())
+                    .build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void leaseRevoke(LeaseRevokeRequest request, StreamObserver<LeaseRevokeResponse> responseObserver) {
+            responseObserver.onNext(LeaseRevokeResponse.newBuilder().setHeader(header()).build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public StreamObserver<LeaseKeepAliveRequest> leaseKeepAlive(StreamObserver<LeaseKeepAliveResponse> responseObserver) {
+            return new StreamObserver<LeaseKeepAliveRequest>() {
+                @Override
+                public void onNext(LeaseKeepAliveRequest request) {
+                    responseObserver.onNext(LeaseKeepAliveResponse.newBuilder()
+                            .setHeader(header())
+                            .setID(request.getID())
+                            .setTTL(3600)
+                            .build());
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                }
+
+                @Override
+                public void onCompleted() {
+                    responseObserver.onCompleted();
+                }
+            };
+        }
+    }
+
+    /**
+     * A watcher created on a watch stream, responses of one stream are serialized.
+     */
+    private static class ServerWatcher {
+
+        final long                           id;
+        final StreamObserver<WatchResponse>  stream;
+
+        ServerWatcher(long id, StreamObserver<WatchResponse> stream) {
+            this.id = id;
+            this.stream = stream;
+        }
+
+        void send(WatchResponse response) {
+            synchronized (stream) {
+                stream.onNext(response);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.op.Cmp;
+import com.coreos.jetcd.op.CmpTarget;
+import com.coreos.jetcd.op.Op;
+import com.coreos.jetcd.op.Txn;
+import com.coreos.jetcd.options.GetOption;
+import com.coreos.jetcd.options.PutOption;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips of the kv client against the in-process fake server, the server side cost is
+ * a skip list operation so the score is dominated by the client and gRPC.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KVBenchmark {
+
+    @Param({"16", "1024"})
+    private int valueSize;
+
+    private FakeEtcdServer server;
+    private EtcdClient     client;
+    private EtcdKV         kvClient;
+    private ByteSequence   key;
+    private ByteSequence   value;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new FakeEtcdServer("kv-benchmark");
+        client = new EtcdClient(server.channelBuilder().directExecutor(), EtcdClientBuilder.newBuilder().endpoints("fake:2379"));
+        kvClient = client.getKVClient();
+
+        byte[] bytes = new byte[valueSize];
+        new Random(0).nextBytes(bytes);
+        key = ByteSequence.fromString("benchmark/key");
+        value = ByteSequence.fromBytes(bytes);
+        kvClient.put(key, value).get();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public EtcdKV.PutResult put() throws Exception {
+        return kvClient.put(key, value).get();
+    }
+
+    @Benchmark
+    public EtcdKV.RangeResult get() throws Exception {
+        return kvClient.get(key).get();
+    }
+
+    @Benchmark
+    public EtcdKV.TxnResult txn() throws Exception {
+        Txn txn = Txn.newBuilder()
+                .If(new Cmp(key, Cmp.Op.GREATER, CmpTarget.version(0)))
+                .Then(Op.put(key, value, PutOption.DEFAULT), Op.get(key, GetOption.DEFAULT))
+                .build();
+        return kvClient.commit(txn).get();
+    }
+}
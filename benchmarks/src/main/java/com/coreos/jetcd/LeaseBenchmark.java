@@ -0,0 +1,67 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.lease.Lease;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one keep alive scan, the keep alive and dead line passes run over {@code leases}
+ * leases of which none is due, which is the steady state between keep alive rounds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LeaseBenchmark {
+
+    @Param({"100", "10000"})
+    private int leases;
+
+    private FakeEtcdServer server;
+    private EtcdClient     client;
+    private EtcdLeaseImpl  leaseClient;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new FakeEtcdServer("lease-benchmark");
+        client = new EtcdClient(server.channelBuilder().directExecutor(), EtcdClientBuilder.newBuilder().endpoints("fake:2379"));
+        leaseClient = (EtcdLeaseImpl) client.getLeaseClient();
+        leaseClient.startKeepAliveService();
+        for (int i = 1; i <= leases; i++) {
+            leaseClient.keepAlive(new Lease(i, 3600, null), null);
+        }
+        // the first scan sends the keep alives, the fake server answers with a one hour ttl
+        // which moves the next keep alive of every lease out of the measurement
+        leaseClient.keepAliveExecutor();
+        Thread.sleep(1000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        leaseClient.closeKeepAliveService();
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public void scan() {
+        leaseClient.keepAliveExecutor();
+        leaseClient.deadLineExecutor();
+    }
+}
@@ -0,0 +1,102 @@
+package com.coreos.jetcd;
+
+import com.google.protobuf.ByteString;
+
+import com.coreos.jetcd.api.Event;
+import com.coreos.jetcd.api.KeyValue;
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.EtcdHeader;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.watch.WatchEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dispatch of watch responses to the callback of one watcher, a benchmark operation sends one
+ * response holding {@code eventsPerResponse} events and waits until the callback received it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WatchBenchmark {
+
+    @Param({"1", "100"})
+    private int eventsPerResponse;
+
+    private FakeEtcdServer    server;
+    private EtcdClient        client;
+    private EtcdWatch.Watcher watcher;
+    private List<Event>       events;
+    private long              dispatched;
+
+    private final AtomicLong received = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new FakeEtcdServer("watch-benchmark");
+        client = new EtcdClient(server.channelBuilder().directExecutor(), EtcdClientBuilder.newBuilder().endpoints("fake:2379"));
+
+        ByteSequence prefix = ByteSequence.fromString("benchmark/");
+        watcher = client.getWatchClient().watch(prefix,
+                WatchOption.newBuilder().withRange(EtcdUtil.prefixEndOf(prefix)).build(),
+                new EtcdWatch.WatchCallback() {
+                    @Override
+                    public void onWatch(EtcdHeader header, long compactRevision, List<WatchEvent> watchEvents) {
+                        received.addAndGet(watchEvents.size());
+                    }
+
+                    @Override
+                    public void onResuming() {
+                    }
+                }).get();
+
+        events = new ArrayList<>(eventsPerResponse);
+        for (int i = 0; i < eventsPerResponse; i++) {
+            events.add(Event.newBuilder()
+                    .setType(Event.EventType.PUT)
+                    .setKv(KeyValue.newBuilder()
+                            .setKey(ByteString.copyFromUtf8("benchmark/key" + i))
+                            .setValue(ByteString.copyFromUtf8("value" + i))
+                            .setModRevision(i + 1)
+                            .setVersion(1))
+                    .build());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        watcher.cancel();
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public long dispatch() {
+        dispatched += eventsPerResponse;
+        server.broadcast(events);
+        while (received.get() < dispatched) {
+            Thread.yield();
+        }
+        return dispatched;
+    }
+}
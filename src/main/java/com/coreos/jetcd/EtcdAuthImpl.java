@@ -1,8 +1,5 @@
 package com.coreos.jetcd;
 
-import com.google.common.base.Supplier;
-import com.google.common.base.Suppliers;
-
 import com.coreos.jetcd.api.AuthDisableRequest;
 import com.coreos.jetcd.api.AuthEnableRequest;
 import com.coreos.jetcd.api.AuthGrpc;
@@ -28,7 +25,6 @@ import com.coreos.jetcd.data.EtcdHeader;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 import io.grpc.ManagedChannel;
 
@@ -38,11 +34,11 @@ import io.grpc.ManagedChannel;
 public class EtcdAuthImpl implements EtcdAuth {
     
     private final AuthGrpc.AuthFutureStub stub;
-    private Supplier<Executor> callExector;
+    private final Executor callExecutor;
     
-    public EtcdAuthImpl(ManagedChannel channel, Optional<String> token) {
+    public EtcdAuthImpl(ManagedChannel channel, Optional<String> token, Executor callExecutor) {
         this.stub = EtcdClientUtil.configureStub(AuthGrpc.newFutureStub(channel), token);
-        callExector = Suppliers.memoize(()-> Executors.newSingleThreadExecutor());
+        this.callExecutor = callExecutor;
     }
 
     // ***************
@@ -52,13 +48,13 @@ public class EtcdAuthImpl implements EtcdAuth {
     @Override
     public CompletableFuture<EtcdHeader> authEnable() {
         AuthEnableRequest enableRequest = AuthEnableRequest.getDefaultInstance();
-        return EtcdUtil.completableFromListenableFuture(this.stub.authEnable(enableRequest), request->EtcdUtil.apiToClientHeader(request.getHeader()), callExector.get());
+        return EtcdUtil.completableFromListenableFuture(this.stub.authEnable(enableRequest), request->EtcdUtil.apiToClientHeader(request.getHeader()), callExecutor);
     }
 
     @Override
     public CompletableFuture<EtcdHeader> authDisable() {
         AuthDisableRequest disableRequest = AuthDisableRequest.getDefaultInstance();
-        return EtcdUtil.completableFromListenableFuture(this.stub.authDisable(disableRequest), request->EtcdUtil.apiToClientHeader(request.getHeader()), callExector.get());
+        return EtcdUtil.completableFromListenableFuture(this.stub.authDisable(disableRequest), request->EtcdUtil.apiToClientHeader(request.getHeader()), callExecutor);
     }
 
     // ***************
@@ -71,14 +67,14 @@ public class EtcdAuthImpl implements EtcdAuth {
                 .setNameBytes(EtcdUtil.byteStringFromByteSequence(name))
                 .setPasswordBytes(EtcdUtil.byteStringFromByteSequence(password))
                 .build();
-        return EtcdUtil.completableFromListenableFuture(this.stub.userAdd(addRequest), response->EtcdUtil.apiToClientHeader(response.getHeader()), callExector.get());
+        return EtcdUtil.completableFromListenableFuture(this.stub.userAdd(addRequest), response->EtcdUtil.apiToClientHeader(response.getHeader()), callExecutor);
     }
 
     @Override
     public CompletableFuture<EtcdHeader> userDelete(ByteSequence name) {
         AuthUserDeleteRequest deleteRequest = AuthUserDeleteRequest.newBuilder()
                 .setNameBytes(EtcdUtil.byteStringFromByteSequence(name)).build();
-        return EtcdUtil.completableFromListenableFuture(this.stub.userDelete(deleteRequest), response->EtcdUtil.apiToClientHeader(response.getHeader()), callExector.get());
+        return EtcdUtil.completableFromListenableFuture(this.stub.userDelete(deleteRequest), response->EtcdUtil.apiToClientHeader(response.getHeader()), callExecutor);
     }
 
     @Override
@@ -87,7 +83,7 @@ public class EtcdAuthImpl implements EtcdAuth {
                 .setNameBytes(EtcdUtil.byteStringFromByteSequence(name))
                 .setPasswordBytes(EtcdUtil.byteStringFromByteSequence(password))
                 .build();
-        return EtcdUtil.completableFromListenableFuture(this.stub.userChangePassword(changePasswordRequest),response->EtcdUtil.apiToClientHeader(response.getHeader()), callExector.get());
+        return EtcdUtil.completableFromListenableFuture(this.stub.userChangePassword(changePasswordRequest),response->EtcdUtil.apiToClientHeader(response.getHeader()), callExecutor);
     }
 
     @Override
@@ -103,7 +99,7 @@ public class EtcdAuthImpl implements EtcdAuth {
                 roles[index] = response.getRoles(index);
             }
             return new GetUserResult(EtcdUtil.apiToClientHeader(response.getHeader()), name, roles);
-        }, callExector.get());
+        }, callExecutor);
     }
 
     @Override
@@ -112,7 +108,7 @@ public class EtcdAuthImpl implements EtcdAuth {
         return EtcdUtil.completableFromListenableFuture(this.stub.userList(userListRequest), response->{
             String[] users = new String[response.getUsersCount()];
             return new ListUserResult(EtcdUtil.apiToClientHeader(response.getHeader()), users);
-        }, callExector.get());
+        }, callExecutor);
     }
 
     // ***************
@@ -125,7 +121,7 @@ public class EtcdAuthImpl implements EtcdAuth {
                 .setUserBytes(EtcdUtil.byteStringFromByteSequence(name))
                 .setRoleBytes(EtcdUtil.byteStringFromByteSequence(role))
                 .build();
-        return EtcdUtil.completableFromListenableFuture(this.stub.userGrantRole(userGrantRoleRequest), response->EtcdUtil.apiToClientHeader(response.getHeader()), callExector.get());
+        return EtcdUtil.completableFromListenableFuture(this.stub.userGrantRole(userGrantRoleRequest), response->EtcdUtil.apiToClientHeader(response.getHeader()), callExecutor);
     }
 
     @Override
@@ -134,7 +130,7 @@ public class EtcdAuthImpl implements EtcdAuth {
                 .setNameBytes(EtcdUtil.byteStringFromByteSequence(name))
                 .setRoleBytes(EtcdUtil.byteStringFromByteSequence(role))
                 .build();
-        return EtcdUtil.completableFromListenableFuture(this.stub.userRevokeRole(userRevokeRoleRequest), response->EtcdUtil.apiToClientHeader(response.getHeader()), callExector.get());
+        return EtcdUtil.completableFromListenableFuture(this.stub.userRevokeRole(userRevokeRoleRequest), response->EtcdUtil.apiToClientHeader(response.getHeader()), callExecutor);
     }
 
     // ***************
@@ -146,7 +142,7 @@ public class EtcdAuthImpl implements EtcdAuth {
         AuthRoleAddRequest roleAddRequest = AuthRoleAddRequest.newBuilder()
                 .setNameBytes(EtcdUtil.byteStringFromByteSequence(name))
                 .build();
-        return EtcdUtil.completableFromListenableFuture(this.stub.roleAdd(roleAddRequest), response->EtcdUtil.apiToClientHeader(response.getHeader()), callExector.get());
+        return EtcdUtil.completableFromListenableFuture(this.stub.roleAdd(roleAddRequest), response->EtcdUtil.apiToClientHeader(response.getHeader()), callExecutor);
     }
 
     @Override
@@ -155,7 +151,7 @@ public class EtcdAuthImpl implements EtcdAuth {
                 .setNameBytes(EtcdUtil.byteStringFromByteSequence(role))
                 .setPerm(convertToAPIPerm(p))
                 .build();
-        return EtcdUtil.completableFromListenableFuture(this.stub.roleGrantPermission(roleGrantPermissionRequest), response->EtcdUtil.apiToClientHeader(response.getHeader()),callExector.get());
+        return EtcdUtil.completableFromListenableFuture(this.stub.roleGrantPermission(roleGrantPermissionRequest), response->EtcdUtil.apiToClientHeader(response.getHeader()),callExecutor);
     }
 
     @Override
@@ -169,7 +165,7 @@ public class EtcdAuthImpl implements EtcdAuth {
                 perms[index] = convertFromAPIPerm(response.getPerm(index));
             }
             return new GetRoleResult(EtcdUtil.apiToClientHeader(response.getHeader()), new Role(role, perms));
-        }, callExector.get());
+        }, callExecutor);
     }
 
     @Override
@@ -181,7 +177,7 @@ public class EtcdAuthImpl implements EtcdAuth {
                 roles[index] = response.getRoles(index);
             }
             return new ListRoleResult(EtcdUtil.apiToClientHeader(response.getHeader()), roles);
-        }, callExector.get());
+        }, callExecutor);
     }
 
     @Override
@@ -192,7 +188,7 @@ public class EtcdAuthImpl implements EtcdAuth {
                 .setKeyBytes(EtcdUtil.byteStringFromByteSequence(key))
                 .setRangeEndBytes(EtcdUtil.byteStringFromByteSequence(rangeEnd))
                 .build();
-        return EtcdUtil.completableFromListenableFuture(this.stub.roleRevokePermission(roleRevokePermissionRequest), response->EtcdUtil.apiToClientHeader(response.getHeader()), callExector.get());
+        return EtcdUtil.completableFromListenableFuture(this.stub.roleRevokePermission(roleRevokePermissionRequest), response->EtcdUtil.apiToClientHeader(response.getHeader()), callExecutor);
     }
 
     @Override
@@ -201,7 +197,7 @@ public class EtcdAuthImpl implements EtcdAuth {
         AuthRoleDeleteRequest roleDeleteRequest = AuthRoleDeleteRequest.newBuilder()
                 .setRoleBytes(EtcdUtil.byteStringFromByteSequence(role))
                 .build();
-        return EtcdUtil.completableFromListenableFuture(this.stub.roleDelete(roleDeleteRequest), response->EtcdUtil.apiToClientHeader(response.getHeader()), callExector.get());
+        return EtcdUtil.completableFromListenableFuture(this.stub.roleDelete(roleDeleteRequest), response->EtcdUtil.apiToClientHeader(response.getHeader()), callExecutor);
     }
 
     private Permission convertToAPIPerm(Perm p){
@@ -0,0 +1,271 @@
+package com.coreos.jetcd;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.EtcdHeader;
+import com.coreos.jetcd.op.Op;
+import com.coreos.jetcd.op.Txn;
+import com.coreos.jetcd.options.BatchOption;
+import com.coreos.jetcd.options.CompactOption;
+import com.coreos.jetcd.options.DeleteOption;
+import com.coreos.jetcd.options.GetOption;
+import com.coreos.jetcd.options.PutOption;
+import io.grpc.Status;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * KV client which coalesces concurrent put and delete calls into a single
+ * {@link Txn} committed through the wrapped {@link EtcdKV}.
+ * <p>A batch is committed when it reaches {@link BatchOption#getMaxBatchSize()} operations,
+ * when its first operation has waited {@link BatchOption#getMaxDelayNanos()}, or when an
+ * operation on a key already in the batch arrives, as etcd rejects duplicate keys in one txn.
+ * <p>Range deletes are not batched since they may overlap other keys of the batch. All other
+ * operations are passed through to the wrapped client.
+ * <p>If etcd rejects the txn of a batch, for example because the lease in the option of one
+ * put is unknown, each operation of the batch is committed again on its own, so only the
+ * faulty operations fail. A batch failing for another reason, such as an unavailable member,
+ * fails all its operations.
+ */
+public class EtcdBatchingKV implements EtcdKV, Closeable {
+
+    /**
+     * the status codes etcd rejects a txn with because of its operations, the txn was not applied
+     */
+    private static final Set<Status.Code> REJECTED = Collections.unmodifiableSet(EnumSet.of(
+            Status.Code.INVALID_ARGUMENT, Status.Code.NOT_FOUND, Status.Code.FAILED_PRECONDITION,
+            Status.Code.PERMISSION_DENIED, Status.Code.OUT_OF_RANGE));
+
+    private final EtcdKV                   kv;
+    private final BatchOption              option;
+    private final ScheduledExecutorService flushSchedule;
+
+    private List<PendingOp>    pendingOps  = new ArrayList<>();
+    private Set<ByteSequence>  pendingKeys = new HashSet<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean            closed;
+
+    public EtcdBatchingKV(EtcdKV kv, BatchOption option) {
+        this.kv = checkNotNull(kv, "kv should not be null");
+        this.option = checkNotNull(option, "option should not be null");
+        this.flushSchedule = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("jetcd-kv-batch-%d").setDaemon(true).build());
+    }
+
+    // ***************
+    // Op.PUT
+    // ***************
+
+    @Override
+    public CompletableFuture<PutResult> put(ByteSequence key, ByteSequence value) {
+        return put(key, value, PutOption.DEFAULT);
+    }
+
+    @Override
+    public CompletableFuture<PutResult> put(ByteSequence key, ByteSequence value, PutOption option) {
+        checkNotNull(key, "key should not be null");
+        checkNotNull(value, "value should not be null");
+        checkNotNull(option, "option should not be null");
+
+        CompletableFuture<PutResult> future = new CompletableFuture<>();
+        enqueue(new PendingOp(Op.put(key, value, option), future));
+        return future;
+    }
+
+    // ***************
+    // Op.GET
+    // ***************
+
+    @Override
+    public CompletableFuture<RangeResult> get(ByteSequence key) {
+        return kv.get(key);
+    }
+
+    @Override
+    public CompletableFuture<RangeResult> get(ByteSequence key, GetOption option) {
+        return kv.get(key, option);
+    }
+
+    @Override
+    public EtcdRangeIterator iterate(ByteSequence key, GetOption option, int pageSize) {
+        return kv.iterate(key, option, pageSize);
+    }
+
+    // ***************
+    // Op.DELETE
+    // ***************
+
+    @Override
+    public CompletableFuture<DeleteResult> delete(ByteSequence key) {
+        return delete(key, DeleteOption.DEFAULT);
+    }
+
+    @Override
+    public CompletableFuture<DeleteResult> delete(ByteSequence key, DeleteOption option) {
+        checkNotNull(key, "key should not be null");
+        checkNotNull(option, "option should not be null");
+
+        if (option.getEndKey().isPresent()) {
+            flush();
+            return kv.delete(key, option);
+        }
+
+        CompletableFuture<DeleteResult> future = new CompletableFuture<>();
+        enqueue(new PendingOp(Op.delete(key, option), future));
+        return future;
+    }
+
+    // ***************
+    // Op.COMPACT
+    // ***************
+
+    @Override
+    public CompletableFuture<EtcdHeader> compact() {
+        return kv.compact();
+    }
+
+    @Override
+    public CompletableFuture<EtcdHeader> compact(CompactOption option) {
+        return kv.compact(option);
+    }
+
+    @Override
+    public CompletableFuture<TxnResult> commit(Txn txn) {
+        return kv.commit(txn);
+    }
+
+    /**
+     * commit the pending operations immediately.
+     */
+    public void flush() {
+        List<PendingOp> batch;
+        synchronized (this) {
+            batch = takeBatch();
+        }
+        commitBatch(batch);
+    }
+
+    /**
+     * commit the pending operations and stop the batching schedule, operations
+     * issued after close fail with {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        List<PendingOp> batch;
+        synchronized (this) {
+            this.closed = true;
+            batch = takeBatch();
+        }
+        commitBatch(batch);
+        this.flushSchedule.shutdown();
+    }
+
+    private void enqueue(PendingOp pendingOp) {
+        List<PendingOp> fullBatch = null;
+        List<PendingOp> duplicateBatch = null;
+        synchronized (this) {
+            if (closed) {
+                pendingOp.future.completeExceptionally(new IllegalStateException("batching kv client is closed"));
+                return;
+            }
+            if (pendingKeys.contains(pendingOp.op.key)) {
+                duplicateBatch = takeBatch();
+            }
+
+            pendingOps.add(pendingOp);
+            pendingKeys.add(pendingOp.op.key);
+
+            if (pendingOps.size() >= option.getMaxBatchSize()) {
+                fullBatch = takeBatch();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = flushSchedule.schedule(this::flush, option.getMaxDelayNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+        commitBatch(duplicateBatch);
+        commitBatch(fullBatch);
+    }
+
+    /**
+     * detach the pending batch, must be called with the monitor held.
+     */
+    private List<PendingOp> takeBatch() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (pendingOps.isEmpty()) {
+            return null;
+        }
+        List<PendingOp> batch = pendingOps;
+        pendingOps = new ArrayList<>(batch.size());
+        pendingKeys = new HashSet<>();
+        return batch;
+    }
+
+    private void commitBatch(List<PendingOp> batch) {
+        if (batch == null) {
+            return;
+        }
+
+        Op[] ops = new Op[batch.size()];
+        for (int i = 0; i < ops.length; i++) {
+            ops[i] = batch.get(i).op;
+        }
+
+        kv.commit(Txn.newBuilder().Then(ops).build()).whenComplete((txnResult, throwable) -> {
+            if (throwable != null) {
+                if (batch.size() > 1 && REJECTED.contains(Status.fromThrowable(throwable).getCode())) {
+                    // one operation may fail the whole txn, the others succeed without it
+                    for (PendingOp pendingOp : batch) {
+                        commitBatch(Collections.singletonList(pendingOp));
+                    }
+                    return;
+                }
+                for (PendingOp pendingOp : batch) {
+                    pendingOp.future.completeExceptionally(throwable);
+                }
+                return;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                if (i < txnResult.results.size()) {
+                    batch.get(i).complete(txnResult.results.get(i));
+                } else {
+                    batch.get(i).future.completeExceptionally(new IllegalStateException("missing response for batched operation"));
+                }
+            }
+        });
+    }
+
+    /**
+     * An operation waiting in the batch with the future of its caller.
+     */
+    private static class PendingOp {
+
+        final Op                      op;
+        final CompletableFuture<?>    future;
+
+        PendingOp(Op op, CompletableFuture<?> future) {
+            this.op = op;
+            this.future = future;
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete(OperationResult result) {
+            ((CompletableFuture<OperationResult>) future).complete(result);
+        }
+    }
+}
@@ -4,12 +4,22 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.coreos.jetcd.api.AuthGrpc;
 import com.coreos.jetcd.api.AuthenticateRequest;
 import com.coreos.jetcd.api.AuthenticateResponse;
 import com.coreos.jetcd.exception.AuthFailedException;
 import com.coreos.jetcd.exception.ConnectException;
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.options.BatchOption;
+import com.coreos.jetcd.options.CacheOption;
+import com.coreos.jetcd.options.LeasePoolOption;
+import com.coreos.jetcd.options.SessionOption;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -29,12 +39,29 @@ public class EtcdClient {
     private final List<String>                    endpoints;
     private final ManagedChannel                  channel;
     private final NameResolver.Factory            nameResolverFactory;
+    private final Executor                        callExecutor;
+    /**
+     * the executor created by the client when none is configured, shut down on close
+     */
+    private final ExecutorService                 ownedExecutor;
     private final Supplier<EtcdKV>                kvClient;
     private final Supplier<EtcdAuth>              authClient;
     private final Supplier<EtcdMaintenance>       maintenanceClient;
     private final Supplier<EtcdCluster>           clusterClient;
     private final Supplier<EtcdLease>             leaseClient;
+    /**
+     * the lease client once created, its keep alive service is closed on close
+     */
+    private volatile EtcdLease                    createdLeaseClient;
     private final Supplier<EtcdWatch>             watchClient;
+    /**
+     * the channels created for the watch shards besides the main one, shut down on close
+     */
+    private final List<ManagedChannel>            watchChannels = new ArrayList<>();
+    /**
+     * the watch clients of every stream once created, closed on close
+     */
+    private final List<EtcdWatchImpl>             watchShards = new ArrayList<>();
 
     public EtcdClient(EtcdClientBuilder builder) throws ConnectException, AuthFailedException {
         this(Optional.empty(), builder);
@@ -54,16 +81,25 @@ public class EtcdClient {
             this.nameResolverFactory = EtcdClientUtil.simpleNameResolveFactory(this.endpoints);
         }
 
-        this.channel = channelBuilder.orElseGet(() -> defaultChannelBuilder(nameResolverFactory)).build();
+        ManagedChannelBuilder<?> managedChannelBuilder = channelBuilder.orElseGet(() -> defaultChannelBuilder(nameResolverFactory));
+        this.channel = managedChannelBuilder.build();
 
         Optional<String> token = getToken(channel, clientBuilder);
 
-        this.kvClient = Suppliers.memoize(() -> new EtcdKVImpl(channel, token));
-        this.authClient =  Suppliers.memoize(() -> new EtcdAuthImpl(channel, token));
-        this.maintenanceClient = Suppliers.memoize(() -> new EtcdMaintenanceImpl(channel, token));
-        this.clusterClient =  Suppliers.memoize(() -> new EtcdClusterImpl(channel, token));
-        this.leaseClient =  Suppliers.memoize(() -> new EtcdLeaseImpl(channel, token));
-        this.watchClient =  Suppliers.memoize(() -> new EtcdWatchImpl(channel, token));
+        if (clientBuilder.getCallExecutor() != null) {
+            this.ownedExecutor = null;
+            this.callExecutor = EtcdUtil.inlineOnRejection(clientBuilder.getCallExecutor());
+        } else {
+            this.ownedExecutor = newCallExecutor();
+            this.callExecutor = EtcdUtil.inlineOnRejection(this.ownedExecutor);
+        }
+
+        this.kvClient = Suppliers.memoize(() -> new EtcdKVImpl(channel, token, callExecutor));
+        this.authClient =  Suppliers.memoize(() -> new EtcdAuthImpl(channel, token, callExecutor));
+        this.maintenanceClient = Suppliers.memoize(() -> new EtcdMaintenanceImpl(channel, token, callExecutor));
+        this.clusterClient =  Suppliers.memoize(() -> new EtcdClusterImpl(channel, token, callExecutor));
+        this.leaseClient =  Suppliers.memoize(() -> createdLeaseClient = new EtcdLeaseImpl(channel, token, callExecutor));
+        this.watchClient =  Suppliers.memoize(() -> newWatchClient(managedChannelBuilder, clientBuilder, token));
     }
 
     // ************************
@@ -78,6 +114,51 @@ public class EtcdClient {
         return kvClient.get();
     }
 
+    /**
+     * create a kv client which batches put and delete calls into transactions, the
+     * returned client should be closed when it is no longer used.
+     *
+     * @param option the batch option
+     * @return batching kv client
+     */
+    public EtcdBatchingKV newBatchingKVClient(BatchOption option) {
+        return new EtcdBatchingKV(kvClient.get(), option);
+    }
+
+    /**
+     * create a client side cache of the keys under prefix, the cache should be started
+     * with {@link EtcdKVCache#start()} and closed when it is no longer used.
+     *
+     * @param prefix the prefix of the cached keys
+     * @param option the cache option
+     * @return kv cache
+     */
+    public EtcdKVCache newKVCache(ByteSequence prefix, CacheOption option) {
+        return new EtcdKVCache(kvClient.get(), watchClient.get(), prefix, option);
+    }
+
+    /**
+     * create a session sharing one lease between many keys, the session should be started
+     * with {@link EtcdSession#start()} and closed when it is no longer used.
+     *
+     * @param option the session option
+     * @return session
+     */
+    public EtcdSession newSession(SessionOption option) {
+        return new EtcdSession(kvClient.get(), leaseClient.get(), option);
+    }
+
+    /**
+     * create a pool of leases granted ahead of use, the pool should be started with
+     * {@link LeasePool#start()} and closed when it is no longer used.
+     *
+     * @param option the lease pool option
+     * @return lease pool
+     */
+    public LeasePool newLeasePool(LeasePoolOption option) {
+        return new LeasePool(leaseClient.get(), option);
+    }
+
     public EtcdCluster getClusterClient() {
         return clusterClient.get();
     }
@@ -95,13 +176,86 @@ public class EtcdClient {
     }
 
     public void close() {
+        EtcdLease lease = createdLeaseClient;
+        if (lease != null && lease.isKeepAliveServiceRunning()) {
+            try {
+                lease.closeKeepAliveService();
+            } catch (IllegalStateException e) {
+                // closed concurrently
+            }
+        }
+        synchronized (watchShards) {
+            watchShards.forEach(EtcdWatchImpl::close);
+        }
         channel.shutdownNow();
+        synchronized (watchChannels) {
+            watchChannels.forEach(ManagedChannel::shutdownNow);
+        }
+        if (ownedExecutor != null) {
+            // the queued completions still run, the ones of the calls failed by the shut down
+            // channel after it are rejected and run in the gRPC thread
+            ownedExecutor.shutdown();
+        }
     }
 
     // ************************
     //
     // ************************
 
+    /**
+     * create the executor completing the futures when none is configured, a fork join pool
+     * with one thread per processor: the number of threads is bounded, and a stage blocking
+     * on another future of the client gets a compensating thread instead of starving the pool.
+     */
+    private static ExecutorService newCallExecutor() {
+        AtomicInteger threads = new AtomicInteger();
+        return new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("jetcd-call-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }, null, true);
+    }
+
+    /**
+     * create the watch client, sharded over several streams and channels and sharing
+     * identical watches as configured by the client builder.
+     */
+    private EtcdWatch newWatchClient(ManagedChannelBuilder<?> channelBuilder, EtcdClientBuilder clientBuilder, Optional<String> token) {
+        EtcdWatch watch;
+        int streams = clientBuilder.getWatchStreams();
+        if (streams == 1) {
+            EtcdWatchImpl shard = new EtcdWatchImpl(channel, token, callExecutor, clientBuilder.getWatchResumeOption(),
+                    clientBuilder.getWatchCheckpointStore(), clientBuilder.isWatchProgressNotify());
+            synchronized (watchShards) {
+                watchShards.add(shard);
+            }
+            watch = shard;
+        } else {
+            List<ManagedChannel> channels = new ArrayList<>();
+            channels.add(channel);
+            synchronized (watchChannels) {
+                for (int i = 1; i < Math.min(clientBuilder.getWatchChannels(), streams); i++) {
+                    ManagedChannel watchChannel = channelBuilder.build();
+                    watchChannels.add(watchChannel);
+                    channels.add(watchChannel);
+                }
+            }
+            List<EtcdWatch> shards = new ArrayList<>(streams);
+            synchronized (watchShards) {
+                for (int i = 0; i < streams; i++) {
+                    EtcdWatchImpl shard = new EtcdWatchImpl(channels.get(i % channels.size()), token, callExecutor,
+                            clientBuilder.getWatchResumeOption(), clientBuilder.getWatchCheckpointStore(),
+                            clientBuilder.isWatchProgressNotify());
+                    watchShards.add(shard);
+                    shards.add(shard);
+                }
+            }
+            watch = new EtcdShardedWatch(shards);
+        }
+        return clientBuilder.isShareWatchers() ? new EtcdSharedWatch(watch) : watch;
+    }
+
     /**
      * get token from etcd with name and password
      *
@@ -1,10 +1,12 @@
 package com.coreos.jetcd;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import com.coreos.jetcd.data.ByteSequence;
 import com.coreos.jetcd.exception.AuthFailedException;
 import com.coreos.jetcd.exception.ConnectException;
+import com.coreos.jetcd.options.WatchResumeOption;
 import com.coreos.jetcd.resolver.AbstractEtcdNameResolverFactory;
 import com.google.common.collect.Lists;
 import static com.google.common.base.Preconditions.checkArgument;
@@ -20,6 +22,13 @@ public class EtcdClientBuilder {
     private ByteSequence name;
     private ByteSequence   password;
     private AbstractEtcdNameResolverFactory nameResolverFactory;
+    private Executor callExecutor;
+    private boolean shareWatchers;
+    private int watchStreams = 1;
+    private int watchChannels = 1;
+    private WatchResumeOption watchResumeOption = WatchResumeOption.DEFAULT;
+    private WatchCheckpointStore watchCheckpointStore;
+    private boolean watchProgressNotify;
 
     private EtcdClientBuilder() {
     }
@@ -116,6 +125,172 @@ public class EtcdClientBuilder {
         return nameResolverFactory;
     }
 
+    /**
+     * config the executor completing the futures returned by the clients, e.g.
+     * <ul>
+     * <li>{@code MoreExecutors.directExecutor()} to complete futures on the gRPC thread,
+     * dependent stages must then be cheap and never block.</li>
+     * <li>{@code ForkJoinPool.commonPool()} to share the JVM wide pool.</li>
+     * <li>{@code Executors.newVirtualThreadPerTaskExecutor()} on runtimes with virtual threads.</li>
+     * </ul>
+     * <p>The executor is owned by the caller and is not shut down when the client is closed.
+     * If no executor is set, the client creates a fork join pool with one thread per processor
+     * which is shut down by {@link EtcdClient#close()}. A completion rejected by a shut down
+     * executor runs in the gRPC thread, so the futures of the calls still complete.
+     *
+     * @param callExecutor the executor to complete futures
+     * @return this builder
+     * @throws NullPointerException if callExecutor is null
+     */
+    public EtcdClientBuilder setCallExecutor(Executor callExecutor) {
+        checkNotNull(callExecutor, "callExecutor can't be null");
+        this.callExecutor = callExecutor;
+        return this;
+    }
+
+    /**
+     * get the executor completing the futures returned by the clients
+     *
+     * @return the executor, null if the client should create its own
+     */
+    public Executor getCallExecutor() {
+        return callExecutor;
+    }
+
+    /**
+     * config whether identical watches share one server watcher, see {@link EtcdSharedWatch}.
+     * By default is false.
+     *
+     * @param shareWatchers whether to share the server watchers
+     * @return this builder
+     */
+    public EtcdClientBuilder setShareWatchers(boolean shareWatchers) {
+        this.shareWatchers = shareWatchers;
+        return this;
+    }
+
+    /**
+     * get whether identical watches share one server watcher
+     *
+     * @return whether to share the server watchers
+     */
+    public boolean isShareWatchers() {
+        return shareWatchers;
+    }
+
+    /**
+     * config the number of watch streams the watchers are spread over by key hash, see
+     * {@link EtcdShardedWatch}. By default is 1.
+     *
+     * @param watchStreams the number of watch streams
+     * @return this builder
+     * @throws IllegalArgumentException if watchStreams is less than one
+     */
+    public EtcdClientBuilder setWatchStreams(int watchStreams) {
+        checkArgument(watchStreams > 0, "watchStreams should be greater than zero: watchStreams=%s", watchStreams);
+        this.watchStreams = watchStreams;
+        return this;
+    }
+
+    /**
+     * get the number of watch streams
+     *
+     * @return the number of watch streams
+     */
+    public int getWatchStreams() {
+        return watchStreams;
+    }
+
+    /**
+     * config the number of channels the watch streams are spread over, each channel has its
+     * own connection. The first one is the channel of the other clients. By default is 1,
+     * at most one channel per watch stream is used.
+     *
+     * @param watchChannels the number of watch channels
+     * @return this builder
+     * @throws IllegalArgumentException if watchChannels is less than one
+     */
+    public EtcdClientBuilder setWatchChannels(int watchChannels) {
+        checkArgument(watchChannels > 0, "watchChannels should be greater than zero: watchChannels=%s", watchChannels);
+        this.watchChannels = watchChannels;
+        return this;
+    }
+
+    /**
+     * get the number of watch channels
+     *
+     * @return the number of watch channels
+     */
+    public int getWatchChannels() {
+        return watchChannels;
+    }
+
+    /**
+     * config how the watchers are resumed after a watch stream failure.
+     *
+     * @param watchResumeOption the watch resume option
+     * @return this builder
+     * @throws NullPointerException if watchResumeOption is null
+     */
+    public EtcdClientBuilder setWatchResumeOption(WatchResumeOption watchResumeOption) {
+        checkNotNull(watchResumeOption, "watchResumeOption can't be null");
+        this.watchResumeOption = watchResumeOption;
+        return this;
+    }
+
+    /**
+     * get how the watchers are resumed after a watch stream failure
+     *
+     * @return the watch resume option
+     */
+    public WatchResumeOption getWatchResumeOption() {
+        return watchResumeOption;
+    }
+
+    /**
+     * config the store recording the last revisions of the watches with a checkpoint name,
+     * the store is not closed by the client.
+     *
+     * @param watchCheckpointStore the watch checkpoint store
+     * @return this builder
+     * @throws NullPointerException if watchCheckpointStore is null
+     */
+    public EtcdClientBuilder setWatchCheckpointStore(WatchCheckpointStore watchCheckpointStore) {
+        checkNotNull(watchCheckpointStore, "watchCheckpointStore can't be null");
+        this.watchCheckpointStore = watchCheckpointStore;
+        return this;
+    }
+
+    /**
+     * get the store recording the last revisions of the watches
+     *
+     * @return the watch checkpoint store, null if the watches are not checkpointed
+     */
+    public WatchCheckpointStore getWatchCheckpointStore() {
+        return watchCheckpointStore;
+    }
+
+    /**
+     * config whether etcd sends progress notifications to every watcher, so the revision
+     * lag of the watchers without recent events is known.
+     *
+     * @param watchProgressNotify whether all watches request progress notifications
+     * @return this builder
+     */
+    public EtcdClientBuilder setWatchProgressNotify(boolean watchProgressNotify) {
+        this.watchProgressNotify = watchProgressNotify;
+        return this;
+    }
+
+    /**
+     * get whether all watches request progress notifications
+     *
+     * @return true if every watcher gets progress notifications
+     */
+    public boolean isWatchProgressNotify() {
+        return watchProgressNotify;
+    }
+
     /**
      * build a new EtcdClient.
      *
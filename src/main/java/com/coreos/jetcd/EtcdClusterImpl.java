@@ -1,8 +1,5 @@
 package com.coreos.jetcd;
 
-import com.google.common.base.Supplier;
-import com.google.common.base.Suppliers;
-
 import com.coreos.jetcd.Cluster.Member;
 import com.coreos.jetcd.api.ClusterGrpc;
 import com.coreos.jetcd.api.MemberAddRequest;
@@ -15,7 +12,6 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 import io.grpc.ManagedChannel;
 
@@ -24,11 +20,11 @@ import io.grpc.ManagedChannel;
  */
 public class EtcdClusterImpl implements EtcdCluster {
     private final ClusterGrpc.ClusterFutureStub stub;
-    private Supplier<Executor> callExecutor;
+    private final Executor callExecutor;
 
-    public EtcdClusterImpl(ManagedChannel channel, Optional<String> token){
+    public EtcdClusterImpl(ManagedChannel channel, Optional<String> token, Executor callExecutor){
         this.stub = EtcdClientUtil.configureStub(ClusterGrpc.newFutureStub(channel), token);
-        callExecutor = Suppliers.memoize(()-> Executors.newSingleThreadExecutor());
+        this.callExecutor = callExecutor;
     }
 
     /**
@@ -44,7 +40,7 @@ public class EtcdClusterImpl implements EtcdCluster {
                 members[index] = convertAPIMember(response.getMembers(index));
             }
             return new ListMemberResult(EtcdUtil.apiToClientHeader(response.getHeader()), members);
-        }, callExecutor.get());
+        }, callExecutor);
     }
 
     /**
@@ -58,7 +54,7 @@ public class EtcdClusterImpl implements EtcdCluster {
         MemberAddRequest memberAddRequest = MemberAddRequest.newBuilder().addAllPeerURLs(endpoints).build();
         return EtcdUtil.completableFromListenableFuture(stub.memberAdd(memberAddRequest),
                 response->new AddMemberResult(EtcdUtil.apiToClientHeader(response.getHeader()), convertAPIMember(response.getMember())),
-                callExecutor.get());
+                callExecutor);
     }
 
     /**
@@ -72,7 +68,7 @@ public class EtcdClusterImpl implements EtcdCluster {
         MemberRemoveRequest memberRemoveRequest = MemberRemoveRequest.newBuilder().setID(memberID).build();
         return EtcdUtil.completableFromListenableFuture(stub.memberRemove(memberRemoveRequest),
                 response->EtcdUtil.apiToClientHeader(response.getHeader()),
-                callExecutor.get());
+                callExecutor);
     }
 
     /**
@@ -90,7 +86,7 @@ public class EtcdClusterImpl implements EtcdCluster {
                 .build();
         return EtcdUtil.completableFromListenableFuture(stub.memberUpdate(memberUpdateRequest),
                 response->EtcdUtil.apiToClientHeader(response.getHeader()),
-                callExecutor.get());
+                callExecutor);
     }
 
     private Member convertAPIMember(com.coreos.jetcd.api.Member apiMember){
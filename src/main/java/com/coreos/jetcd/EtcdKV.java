@@ -36,6 +36,20 @@ public interface EtcdKV {
 
     CompletableFuture<RangeResult> get(ByteSequence key, GetOption option);
 
+    /**
+     * Iterate the keys matched by a get, fetching at most <i>pageSize</i> keys per request.
+     * All pages are read at the revision of the first page and the next page is prefetched
+     * while the current one is consumed. The limit of the option bounds the total number of keys.
+     *
+     * @param key      the key, or start key of the range
+     * @param option   get option, must be sorted by key and not count only
+     * @param pageSize the number of keys to fetch per request
+     * @return iterator over the matched keys
+     */
+    default EtcdRangeIterator iterate(ByteSequence key, GetOption option, int pageSize) {
+        return new EtcdRangeIterator(this, key, option, pageSize);
+    }
+
     // ***************
     // Op.DELETE
     // ***************
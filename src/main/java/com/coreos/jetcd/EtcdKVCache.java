@@ -0,0 +1,367 @@
+package com.coreos.jetcd;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.EtcdHeader;
+import com.coreos.jetcd.data.KeyValue;
+import com.coreos.jetcd.options.CacheOption;
+import com.coreos.jetcd.options.GetOption;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.watch.WatchEvent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Client side read cache of the keys under a prefix.
+ * <p>The cache is loaded with a paged range read at revision R, then kept current by a
+ * watcher on the prefix starting from R+1. Cached gets are answered locally with the
+ * revision the cache is current to in their header. If the watcher reports the revision
+ * was compacted, the cache is reloaded.
+ * <p>A failed load or watch create is retried after a backoff doubling with each consecutive
+ * failure. The cache is not {@link #isReady() ready} meanwhile, and its gets are read from etcd.
+ * <p>When bounded by {@link CacheOption#getMaxSize()}, the least recently used keys are
+ * evicted and misses are read through from etcd.
+ */
+public class EtcdKVCache implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EtcdKVCache.class);
+
+    private final EtcdKV          kv;
+    private final EtcdWatch       watch;
+    private final ByteSequence    prefix;
+    private final ByteSequence    prefixEnd;
+    private final CacheOption     option;
+    private final ScheduledExecutorService loadExecutor;
+
+    private final CompletableFuture<Void> started = new CompletableFuture<>();
+
+    private BoundedCache                cache;
+    private EtcdWatch.Watcher           watcher;
+    private EtcdHeader                  header;
+    private long                        revision;
+    private long                        generation;
+    /**
+     * the consecutive failed loads, reset once the cache is ready
+     */
+    private int                         failures;
+    private boolean                     ready;
+    private boolean                     closed;
+
+    public EtcdKVCache(EtcdKV kv, EtcdWatch watch, ByteSequence prefix, CacheOption option) {
+        this.kv = checkNotNull(kv, "kv should not be null");
+        this.watch = checkNotNull(watch, "watch should not be null");
+        this.prefix = checkNotNull(prefix, "prefix should not be null");
+        this.option = checkNotNull(option, "option should not be null");
+        this.prefixEnd = EtcdUtil.prefixEndOf(prefix);
+        this.loadExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("jetcd-kv-cache-%d").setDaemon(true).build());
+    }
+
+    /**
+     * load the cache and start watching the prefix.
+     *
+     * @return future completed once the cache is loaded and its watcher created, or failed
+     * with the error of the first failed load while the load is retried
+     * @throws IllegalStateException if the cache was started already
+     */
+    public synchronized CompletableFuture<Void> start() {
+        checkState(generation == 0, "cache already started");
+        scheduleLoad(0);
+        return started;
+    }
+
+    /**
+     * whether the gets are answered from the cache. The cache is not ready until it is loaded,
+     * and while it is reloaded after a compaction or a failure.
+     *
+     * @return true if the cache is loaded and watched
+     */
+    public synchronized boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * get the key from the cache. Keys outside of the prefix, and gets issued before the cache
+     * is loaded, are read from etcd.
+     *
+     * @param key the key to get
+     * @return the cached key value, with the revision the cache is current to in the header
+     */
+    public CompletableFuture<EtcdKV.RangeResult> get(ByteSequence key) {
+        checkNotNull(key, "key should not be null");
+        if (!inPrefix(key)) {
+            return kv.get(key);
+        }
+
+        synchronized (this) {
+            if (ready) {
+                KeyValue keyValue = cache.get(key);
+                if (keyValue != null) {
+                    return CompletableFuture.completedFuture(cachedResult(Collections.singletonList(keyValue)));
+                }
+                if (!cache.evicted) {
+                    return CompletableFuture.completedFuture(cachedResult(Collections.emptyList()));
+                }
+            }
+        }
+        return getLinearizable(key);
+    }
+
+    /**
+     * get the key with a linearizable read from etcd, bypassing the cache. The result is
+     * stored in the cache if it is not older than the cache.
+     *
+     * @param key the key to get
+     * @return the key value read from etcd
+     */
+    public CompletableFuture<EtcdKV.RangeResult> getLinearizable(ByteSequence key) {
+        checkNotNull(key, "key should not be null");
+        return kv.get(key).thenApply(result -> {
+            if (inPrefix(key) && result.header != null) {
+                synchronized (this) {
+                    if (ready && result.header.getRevision() >= revision) {
+                        if (result.kvs.isEmpty()) {
+                            cache.remove(key);
+                        } else {
+                            cache.put(key, result.kvs.get(0));
+                        }
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * get the revision the cache is current to.
+     *
+     * @return cached revision, zero if the cache is not loaded yet
+     */
+    public synchronized long getRevision() {
+        return revision;
+    }
+
+    /**
+     * get the number of cached keys.
+     *
+     * @return the number of cached keys
+     */
+    public synchronized int size() {
+        return cache == null ? 0 : cache.size();
+    }
+
+    /**
+     * stop watching the prefix and release the cache.
+     */
+    @Override
+    public void close() {
+        EtcdWatch.Watcher toCancel;
+        synchronized (this) {
+            closed = true;
+            ready = false;
+            generation++;
+            cache = null;
+            toCancel = watcher;
+            watcher = null;
+        }
+        cancelQuietly(toCancel);
+        loadExecutor.shutdownNow();
+    }
+
+    private boolean inPrefix(ByteSequence key) {
+        return key.getByteString().startsWith(prefix.getByteString());
+    }
+
+    private EtcdKV.RangeResult cachedResult(List<KeyValue> kvs) {
+        EtcdHeader cachedHeader = header == null
+                ? new EtcdHeader(0, 0, revision, 0)
+                : new EtcdHeader(header.getClusterId(), header.getMemberId(), revision, header.getRaftTerm());
+        return new EtcdKV.RangeResult(cachedHeader, kvs, false, kvs.size());
+    }
+
+    private synchronized void scheduleLoad(long delayNanos) {
+        if (closed) {
+            return;
+        }
+        long loadGeneration = ++generation;
+        ready = false;
+        EtcdWatch.Watcher toCancel = watcher;
+        watcher = null;
+        loadExecutor.schedule(() -> {
+            cancelQuietly(toCancel);
+            try {
+                load(loadGeneration);
+            } catch (Exception e) {
+                onLoadFailed(loadGeneration, e);
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * load again after the backoff, unless the load was replaced meanwhile.
+     */
+    private void onLoadFailed(long loadGeneration, Throwable throwable) {
+        long delay;
+        synchronized (this) {
+            if (loadGeneration != generation || closed) {
+                return;
+            }
+            failures++;
+            delay = backoffNanos();
+            scheduleLoad(delay);
+        }
+        LOGGER.warn("failed to load cache of prefix {}, retrying in {} ms", prefix.toStringUtf8(),
+                TimeUnit.NANOSECONDS.toMillis(delay), throwable);
+        started.completeExceptionally(throwable);
+    }
+
+    private long backoffNanos() {
+        long backoff = option.getInitialBackoffNanos() << Math.min(failures - 1, 30);
+        if (backoff < 0 || backoff > option.getMaxBackoffNanos()) {
+            backoff = option.getMaxBackoffNanos();
+        }
+        return backoff;
+    }
+
+    /**
+     * read the prefix page by page at one revision, then watch it from the next revision.
+     */
+    private void load(long loadGeneration) {
+        // each load fills a new map, which is only published under the lock
+        BoundedCache loaded = new BoundedCache(option.getMaxSize());
+        EtcdRangeIterator iterator = kv.iterate(prefix, GetOption.newBuilder().withRange(prefixEnd).build(), option.getPageSize());
+        while (iterator.hasNext()) {
+            KeyValue keyValue = iterator.next();
+            loaded.put(keyValue.getKey(), keyValue);
+        }
+        long loadedRevision = iterator.getRevision();
+
+        synchronized (this) {
+            if (loadGeneration != generation) {
+                return;
+            }
+            cache = loaded;
+            revision = loadedRevision;
+        }
+
+        WatchOption watchOption = WatchOption.newBuilder()
+                .withRange(prefixEnd)
+                .withRevision(loadedRevision + 1)
+                .build();
+        watch.watch(prefix, watchOption, new CacheWatchCallback(loadGeneration)).whenComplete((createdWatcher, throwable) -> {
+            if (throwable != null) {
+                onLoadFailed(loadGeneration, throwable);
+                return;
+            }
+            synchronized (this) {
+                if (loadGeneration != generation) {
+                    cancelQuietly(createdWatcher);
+                    return;
+                }
+                watcher = createdWatcher;
+                failures = 0;
+                ready = true;
+            }
+            started.complete(null);
+        });
+    }
+
+    /**
+     * The cached key values of one load in access order, the least recently used is evicted
+     * beyond the max size. Once a key was evicted, a miss no longer means the key is absent.
+     */
+    private static final class BoundedCache extends LinkedHashMap<ByteSequence, KeyValue> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+        private boolean   evicted;
+
+        BoundedCache(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteSequence, KeyValue> eldest) {
+            if (maxSize > 0 && size() > maxSize) {
+                evicted = true;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private void cancelQuietly(EtcdWatch.Watcher toCancel) {
+        if (toCancel != null) {
+            try {
+                toCancel.cancel();
+            } catch (Exception e) {
+                LOGGER.debug("failed to cancel cache watcher", e);
+            }
+        }
+    }
+
+    /**
+     * Apply the watched events of one load generation to the cache.
+     */
+    private class CacheWatchCallback implements EtcdWatch.WatchCallback {
+
+        private final long callbackGeneration;
+
+        CacheWatchCallback(long callbackGeneration) {
+            this.callbackGeneration = callbackGeneration;
+        }
+
+        @Override
+        public void onWatch(EtcdHeader eventHeader, long compactRevision, List<WatchEvent> events) {
+            synchronized (EtcdKVCache.this) {
+                if (callbackGeneration != generation || cache == null) {
+                    return;
+                }
+                if (compactRevision != 0) {
+                    LOGGER.info("cache revision of prefix {} was compacted at {}, reloading", prefix.toStringUtf8(), compactRevision);
+                    scheduleLoad(0);
+                    return;
+                }
+
+                header = eventHeader;
+                for (WatchEvent event : events) {
+                    KeyValue keyValue = event.getKeyValue();
+                    KeyValue cached = cache.get(keyValue.getKey());
+                    if (cached != null && cached.getModRevision() >= keyValue.getModRevision()) {
+                        continue;
+                    }
+                    if (event.getEventType() == WatchEvent.EventType.DELETE) {
+                        cache.remove(keyValue.getKey());
+                    } else if (event.getEventType() == WatchEvent.EventType.PUT) {
+                        cache.put(keyValue.getKey(), keyValue);
+                    }
+                    revision = Math.max(revision, keyValue.getModRevision());
+                }
+                if (events.isEmpty() && eventHeader != null) {
+                    revision = Math.max(revision, eventHeader.getRevision());
+                }
+            }
+        }
+
+        @Override
+        public void onResuming() {
+        }
+    }
+}
@@ -1,9 +1,5 @@
 package com.coreos.jetcd;
 
-import com.google.common.base.Supplier;
-import com.google.common.base.Suppliers;
-import com.google.protobuf.ByteString;
-
 import com.coreos.jetcd.api.CompactionRequest;
 import com.coreos.jetcd.api.Compare;
 import com.coreos.jetcd.api.DeleteRangeRequest;
@@ -32,7 +28,6 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 import io.grpc.ManagedChannel;
 
@@ -43,12 +38,12 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 class EtcdKVImpl implements EtcdKV {
     private final KVGrpc.KVFutureStub stub;
-    private Supplier<Executor> callExecutor;
+    private final Executor callExecutor;
 
 
-    EtcdKVImpl(ManagedChannel channel, Optional<String> token) {
+    EtcdKVImpl(ManagedChannel channel, Optional<String> token, Executor callExecutor) {
         this.stub = EtcdClientUtil.configureStub(KVGrpc.newFutureStub(channel), token);
-        callExecutor = Suppliers.memoize(() -> Executors.newSingleThreadExecutor());
+        this.callExecutor = callExecutor;
     }
 
     // ***************
@@ -67,13 +62,13 @@ class EtcdKVImpl implements EtcdKV {
         checkNotNull(option, "option should not be null");
 
         PutRequest request = PutRequest.newBuilder()
-                .setKey(ByteString.copyFrom(key.getBytes()))
-                .setValue(ByteString.copyFrom(value.getBytes()))
+                .setKey(EtcdUtil.byteStringFromByteSequence(key))
+                .setValue(EtcdUtil.byteStringFromByteSequence(value))
                 .setLease(option.getLeaseId())
                 .setPrevKv(option.getPrevKV())
                 .build();
 
-        return EtcdUtil.completableFromListenableFuture(this.stub.put(request), response -> putResponseToResult(response), callExecutor.get());
+        return EtcdUtil.completableFromListenableFuture(this.stub.put(request), response -> putResponseToResult(response), callExecutor);
     }
 
     // ***************
@@ -104,7 +99,12 @@ class EtcdKVImpl implements EtcdKV {
             builder.setRangeEnd(EtcdUtil.byteStringFromByteSequence(option.getEndKey().get()));
         }
 
-        return EtcdUtil.completableFromListenableFuture(this.stub.range(builder.build()), (response) -> rangeResponseToResult(response), callExecutor.get());
+        return EtcdUtil.completableFromListenableFuture(this.stub.range(builder.build()), (response) -> rangeResponseToResult(response), callExecutor);
+    }
+
+    @Override
+    public EtcdRangeIterator iterate(ByteSequence key, GetOption option, int pageSize) {
+        return new EtcdRangeIterator(this, key, option, pageSize);
     }
 
     // ***************
@@ -128,7 +128,7 @@ class EtcdKVImpl implements EtcdKV {
         if (option.getEndKey().isPresent()) {
             builder.setRangeEnd(option.getEndKey().get());
         }
-        return EtcdUtil.completableFromListenableFuture(this.stub.deleteRange(builder.build()), (response) -> deleteResponseToResult(response), callExecutor.get());
+        return EtcdUtil.completableFromListenableFuture(this.stub.deleteRange(builder.build()), (response) -> deleteResponseToResult(response), callExecutor);
     }
 
     @Override
@@ -145,7 +145,7 @@ class EtcdKVImpl implements EtcdKV {
                 .setPhysical(option.isPhysical())
                 .build();
 
-        return EtcdUtil.completableFromListenableFuture(stub.compact(request), response -> EtcdUtil.apiToClientHeader(response.getHeader()), callExecutor.get());
+        return EtcdUtil.completableFromListenableFuture(stub.compact(request), response -> EtcdUtil.apiToClientHeader(response.getHeader()), callExecutor);
     }
 
     @Override
@@ -168,7 +168,7 @@ class EtcdKVImpl implements EtcdKV {
                     }
                     return new TxnResult(EtcdUtil.apiToClientHeader(response.getHeader()), response.getSucceeded(), operationResults);
                 }
-                , callExecutor.get());
+                , callExecutor);
     }
 
     private PutResult putResponseToResult(PutResponse response) {
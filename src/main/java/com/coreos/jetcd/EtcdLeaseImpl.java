@@ -4,15 +4,14 @@ import com.coreos.jetcd.api.*;
 import com.coreos.jetcd.data.EtcdHeader;
 import com.coreos.jetcd.lease.Lease;
 import com.coreos.jetcd.lease.NoSuchLeaseException;
-import com.google.common.base.Supplier;
-import com.google.common.base.Suppliers;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.grpc.ManagedChannel;
 import io.grpc.stub.StreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.concurrent.*;
 
@@ -25,6 +24,9 @@ public class EtcdLeaseImpl implements EtcdLease {
 
     private final static int                       DEFAULT_TTL           = 5000;
     private final static int                       DEFAULT_SCAN_PERIOD   = 500;
+    private final static long                      RECONNECT_BACKOFF     = 100;
+    private final static long                      RECONNECT_MAX_BACKOFF = 5000;
+    private static final Logger                    LOGGER                = LoggerFactory.getLogger(EtcdLeaseImpl.class);
     private final LeaseGrpc.LeaseFutureStub        leaseFutureStub;
     private final LeaseGrpc.LeaseStub              leaseStub;
     /**
@@ -36,11 +38,30 @@ public class EtcdLeaseImpl implements EtcdLease {
      */
     private ScheduledExecutorService               keepAliveSchedule;
     private ScheduledFuture<?>                     scheduledFuture;
-    private Supplier<Executor>                     callExecutor;
+    private final Executor                         callExecutor;
     private long                                   scanPeriod;
 
-    private final Map<Long, LeaseHolder>                 keepAlives            = new ConcurrentHashMap<>();
-    private final Map<Long, CompletableFuture<EtcdHeader>>    onceKeepAlives = new ConcurrentHashMap<>();
+    /**
+     * The kept alive and once kept alive leases by id, primitive keyed so the response
+     * stream and the scans look up leases without boxing.
+     */
+    private final LongMap<LeaseHolder>                   keepAlives            = new LongMap<>();
+
+    /**
+     * The kept alive leases ordered by next keep alive and by dead line, so a scan only
+     * touches the leases which are due. Both queues are guarded by queueLock.
+     */
+    private final LeaseQueue                             keepAliveQueue        = new LeaseQueue(LeaseQueue.Key.KEEP_ALIVE);
+    private final LeaseQueue                             deadLineQueue         = new LeaseQueue(LeaseQueue.Key.DEAD_LINE);
+    private final Object                                 queueLock             = new Object();
+    private final LongMap<CompletableFuture<EtcdHeader>> onceKeepAlives        = new LongMap<>();
+
+    /**
+     * Buffers of the scans, reused on every tick so a scan does not allocate. Only the
+     * keep alive schedule thread touches them.
+     */
+    private LeaseKeepAliveRequest[]                      sendBuffer            = new LeaseKeepAliveRequest[16];
+    private long[]                                       expireBuffer          = new long[16];
 
     /**
      * The first time interval
@@ -52,13 +73,24 @@ public class EtcdLeaseImpl implements EtcdLease {
      */
     private StreamObserver<LeaseKeepAliveRequest>  keepAliveRequestStreamObserver;
 
+    /**
+     * gRPC streams must not be written concurrently, the scheduler and keepAliveOnce write
+     * the request stream under this lock.
+     */
+    private final Object                           streamLock            = new Object();
+
+    /**
+     * the consecutive failures of the keep alive stream, reset by a response
+     */
+    private volatile int                           streamFailures;
+
     /**
      * KeepAlive Response Streamer, receive keep alive response from this stream and update the
      * nextKeepAliveTime and deadline of the leases.
      */
     private StreamObserver<LeaseKeepAliveResponse> keepAliveResponseStreamObserver;
 
-    public EtcdLeaseImpl(final ManagedChannel channel, Optional<String> token) {
+    public EtcdLeaseImpl(final ManagedChannel channel, Optional<String> token, Executor callExecutor) {
         /**
          * Init lease stub
          */
@@ -66,7 +98,7 @@ public class EtcdLeaseImpl implements EtcdLease {
         this.leaseFutureStub = EtcdClientUtil.configureStub(LeaseGrpc.newFutureStub(this.channel), token);
         this.leaseStub = EtcdClientUtil.configureStub(LeaseGrpc.newStub(this.channel), token);
         this.scanPeriod = DEFAULT_SCAN_PERIOD;
-        callExecutor = Suppliers.memoize(()->Executors.newSingleThreadExecutor());
+        this.callExecutor = callExecutor;
     }
 
     /**
@@ -85,32 +117,15 @@ public class EtcdLeaseImpl implements EtcdLease {
             if (isKeepAliveServiceRunning()) {
                 throw new IllegalStateException("Lease keep alive service already started");
             }
-            keepAliveResponseStreamObserver = new StreamObserver<LeaseKeepAliveResponse>() {
-                @Override
-                public void onNext(LeaseKeepAliveResponse leaseKeepAliveResponse) {
-                    processKeepAliveRespond(leaseKeepAliveResponse);
-                    LeaseHolder leaseHolder = keepAlives.get(leaseKeepAliveResponse.getID());
-                    if (leaseHolder != null && leaseHolder.isContainHandler()) {
-                        leaseHolder.getEtcdLeaseHandler().onKeepAliveRespond(leaseKeepAliveResponse);
-                    }
-                }
-
-                @Override
-                public void onError(Throwable throwable) {
-                }
-
-                @Override
-                public void onCompleted() {
-                }
-            };
-
-            initRequestStream(keepAliveResponseStreamObserver);
+            streamFailures = 0;
+            initRequestStream(newResponseStreamObserver());
 
             /**
              * Start heartbeat schedule to keep alive leases and remove dead leases
              */
             if (this.keepAliveSchedule == null) {
-                this.keepAliveSchedule = Executors.newSingleThreadScheduledExecutor();
+                this.keepAliveSchedule = Executors.newSingleThreadScheduledExecutor(
+                        new ThreadFactoryBuilder().setNameFormat("jetcd-lease-keepalive-%d").setDaemon(true).build());
             }
             this.scheduledFuture = this.keepAliveSchedule.scheduleAtFixedRate(() -> {
                 /**
@@ -123,6 +138,30 @@ public class EtcdLeaseImpl implements EtcdLease {
         }
     }
 
+    private StreamObserver<LeaseKeepAliveResponse> newResponseStreamObserver() {
+        return new StreamObserver<LeaseKeepAliveResponse>() {
+            @Override
+            public void onNext(LeaseKeepAliveResponse leaseKeepAliveResponse) {
+                streamFailures = 0;
+                processKeepAliveRespond(leaseKeepAliveResponse);
+                LeaseHolder leaseHolder = keepAlives.get(leaseKeepAliveResponse.getID());
+                if (leaseHolder != null && leaseHolder.isContainHandler()) {
+                    leaseHolder.getEtcdLeaseHandler().onKeepAliveRespond(leaseKeepAliveResponse);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                onStreamFailed(this, throwable);
+            }
+
+            @Override
+            public void onCompleted() {
+                onStreamFailed(this, new IllegalStateException("lease keep alive stream closed by the server"));
+            }
+        };
+    }
+
     /**
      * It hints the state of the keep alive service.
      *
@@ -150,7 +189,7 @@ public class EtcdLeaseImpl implements EtcdLease {
         LeaseGrantRequest leaseGrantRequest = LeaseGrantRequest.newBuilder().setTTL(ttl).build();
         return completableFromListenableFuture(this.leaseFutureStub.leaseGrant(leaseGrantRequest),
                 (LeaseGrantResponse l)->apiToClientLease(l),
-                callExecutor.get());
+                callExecutor);
     }
 
     /**
@@ -164,7 +203,7 @@ public class EtcdLeaseImpl implements EtcdLease {
         LeaseRevokeRequest leaseRevokeRequest = LeaseRevokeRequest.newBuilder().setID(lease.getLeaseID()).build();
         return completableFromListenableFuture(this.leaseFutureStub.leaseRevoke(leaseRevokeRequest),
                 (response)->apiToClientHeader(response.getHeader()),
-                callExecutor.get());
+                callExecutor);
     }
 
     /**
@@ -184,8 +223,11 @@ public class EtcdLeaseImpl implements EtcdLease {
         }
         if (!this.keepAlives.containsKey(lease.getLeaseID())) {
             LeaseHolder leaseHolder = new LeaseHolder(lease, etcdLeaseHandler);
-            long now = System.currentTimeMillis();
-            leaseHolder.setNextKeepAlive(now).setDeadLine(now + firstKeepAliveTimeOut);
+            long now = System.nanoTime();
+            synchronized (queueLock) {
+                leaseHolder.setNextKeepAlive(now).setDeadLine(now + TimeUnit.MILLISECONDS.toNanos(firstKeepAliveTimeOut));
+                schedule(leaseHolder);
+            }
             this.keepAlives.put(lease.getLeaseID(), leaseHolder);
         }
     }
@@ -201,7 +243,7 @@ public class EtcdLeaseImpl implements EtcdLease {
             throw new IllegalStateException("Lease keep alive service not started yet");
         }
         if (this.keepAlives.containsKey(lease.getLeaseID())) {
-            keepAlives.remove(lease.getLeaseID());
+            removeLease(lease.getLeaseID());
             revoke(lease).get();
         }else{
             throw new IllegalStateException("Lease is not registered in the keep alive service");
@@ -224,7 +266,14 @@ public class EtcdLeaseImpl implements EtcdLease {
         }
         CompletableFuture<EtcdHeader> completableFuture = new CompletableFuture<>();
         onceKeepAlives.put(lease.getLeaseID(), completableFuture);
-        this.keepAliveRequestStreamObserver.onNext(newKeepAliveRequest(lease.getLeaseID()));
+        synchronized (streamLock) {
+            if (this.keepAliveRequestStreamObserver == null) {
+                onceKeepAlives.remove(lease.getLeaseID());
+                completableFuture.completeExceptionally(new IllegalStateException("lease keep alive stream is reconnecting"));
+            } else {
+                this.keepAliveRequestStreamObserver.onNext(newKeepAliveRequest(lease.getLeaseID()));
+            }
+        }
         return completableFuture;
     }
 
@@ -252,41 +301,73 @@ public class EtcdLeaseImpl implements EtcdLease {
     }
 
     /**
-     * Scan all the leases and send keep alive request to etcd server
-     * This function is called by futureSchedule with one thread, the keepAlives
-     * is instance of ConcurrentMap which allow us to do foreach with thread safe,
-     * so we have no need to do extra sync.
+     * Send keep alive request to etcd server for the leases which are due.
+     * This function is called by futureSchedule with one thread, only the due leases
+     * are taken from the head of the keep alive queue. A sent lease is due again after
+     * one scan period, unless the response moves its next keep alive.
+     * <p>A keep alive request holds one lease id, so the requests of a tick are built first
+     * and then written back to back under the stream lock: the transport queues them
+     * together and flushes them in a few large writes instead of one write per lease.
+     * <p>Each holder keeps its request, which is immutable, and the requests are collected
+     * in a reused buffer, so a tick allocates nothing once the buffer has grown.
      */
-    private void keepAliveExecutor() {
-        long now = System.currentTimeMillis();
-        List<Long> toSendIds = new ArrayList<>();
-        for (LeaseHolder l : this.keepAlives.values()) {
-            if (now > l.getNextKeepAlive()) {
-                toSendIds.add(l.lease.getLeaseID());
+    void keepAliveExecutor() {
+        long now = System.nanoTime();
+        LeaseKeepAliveRequest[] requests = this.sendBuffer;
+        int count = 0;
+        synchronized (queueLock) {
+            LeaseHolder l;
+            while ((l = keepAliveQueue.peek()) != null && now - l.getNextKeepAlive() >= 0) {
+                if (count == requests.length) {
+                    requests = this.sendBuffer = Arrays.copyOf(requests, count * 2);
+                }
+                requests[count++] = l.keepAliveRequest;
+                l.setNextKeepAlive(now + TimeUnit.MILLISECONDS.toNanos(this.scanPeriod));
+                keepAliveQueue.update(l);
             }
         }
+        if (count == 0) {
+            return;
+        }
 
-        for (Long id : toSendIds) {
-            this.keepAliveRequestStreamObserver.onNext(newKeepAliveRequest(id));
+        try {
+            synchronized (streamLock) {
+                StreamObserver<LeaseKeepAliveRequest> stream = this.keepAliveRequestStreamObserver;
+                if (stream == null) {
+                    return;
+                }
+                for (int i = 0; i < count; i++) {
+                    stream.onNext(requests[i]);
+                }
+            }
+        } finally {
+            // do not keep the requests of removed leases reachable
+            Arrays.fill(requests, 0, count, null);
         }
     }
 
     /**
-     * Scan all the leases, remove the dead leases and notify with LeaseHandler
-     * This function is called by futureSchedule with one thread, the keepAlives
-     * is instance of ConcurrentMap which allow us to do foreach with thread safe,
-     * so we have no need to do extra sync.
+     * Remove the dead leases and notify with LeaseHandler.
+     * This function is called by futureSchedule with one thread, only the expired leases
+     * are taken from the head of the dead line queue.
      */
-    private void deadLineExecutor() {
-        long now = System.currentTimeMillis();
-        List<Long> expireLeases = new ArrayList<>();
-        for (LeaseHolder l : this.keepAlives.values()) {
-            if (now > l.getDeadLine()) {
-                expireLeases.add(l.lease.getLeaseID());
+    void deadLineExecutor() {
+        long now = System.nanoTime();
+        long[] expireLeases = this.expireBuffer;
+        int count = 0;
+        synchronized (queueLock) {
+            LeaseHolder l;
+            while ((l = deadLineQueue.peek()) != null && now - l.getDeadLine() >= 0) {
+                if (count == expireLeases.length) {
+                    expireLeases = this.expireBuffer = Arrays.copyOf(expireLeases, count * 2);
+                }
+                expireLeases[count++] = l.lease.getLeaseID();
+                unschedule(l);
             }
         }
 
-        for (Long id : expireLeases) {
+        for (int i = 0; i < count; i++) {
+            long id = expireLeases[i];
             LeaseHolder lease = this.keepAlives.get(id);
             if (lease != null && lease.isContainHandler()) {
                 lease.getEtcdLeaseHandler().onLeaseExpired(id);
@@ -315,36 +396,193 @@ public class EtcdLeaseImpl implements EtcdLease {
                     }
                     removeLease(id);
                 } else {
-                    long nextKeepAlive = System.currentTimeMillis() + 1000 + leaseKeepAliveResponse.getTTL() * 1000 / 3;
-                    leaseHolder.setNextKeepAlive(nextKeepAlive);
-                    leaseHolder.setDeadLine(System.currentTimeMillis() + leaseKeepAliveResponse.getTTL() * 1000);
+                    long now = System.nanoTime();
+                    long ttlMillis = leaseKeepAliveResponse.getTTL() * 1000;
+                    synchronized (queueLock) {
+                        // a lease removed meanwhile must not be queued again
+                        if (this.keepAlives.get(id) == leaseHolder) {
+                            leaseHolder.setNextKeepAlive(now + keepAliveDelayNanos(ttlMillis, this.scanPeriod, ThreadLocalRandom.current().nextDouble()));
+                            leaseHolder.setDeadLine(now + TimeUnit.MILLISECONDS.toNanos(ttlMillis));
+                            schedule(leaseHolder);
+                        }
+                    }
                 }
             }
-        }else if(onceKeepAlives.containsKey(id)){
-            onceKeepAlives.remove(id).complete(apiToClientHeader(leaseKeepAliveResponse.getHeader()));
+        } else {
+            CompletableFuture<EtcdHeader> future = onceKeepAlives.remove(id);
+            if (future != null) {
+                future.complete(apiToClientHeader(leaseKeepAliveResponse.getHeader()));
+            }
         }
     }
 
+    /**
+     * the delay until the next keep alive of a lease, 1 second plus a third of the ttl on
+     * average. The delay is spread by a sixth of the ttl around it, so the leases granted
+     * together do not stay in step and keep alives are sent evenly over the ttl window.
+     * <p>The delay is at most the ttl less two scan periods: a keep alive is sent up to one scan
+     * period after it is due, and the lease must not reach its dead line before the response.
+     *
+     * @param ttlMillis        the ttl of the lease
+     * @param scanPeriodMillis the period of the keep alive scan
+     * @param random           a random value in [0, 1)
+     */
+    static long keepAliveDelayNanos(long ttlMillis, long scanPeriodMillis, double random) {
+        long spread = ttlMillis / 6;
+        long delayMillis = 1000 + ttlMillis / 3 - spread + (long) (2 * spread * random);
+        delayMillis = Math.max(0, Math.min(delayMillis, ttlMillis - 2 * scanPeriodMillis));
+        return TimeUnit.MILLISECONDS.toNanos(delayMillis);
+    }
+
     /**
      * remove the lease from keep alive map
      *
      * @param leaseId
      */
     private void removeLease(long leaseId) {
-        if (this.keepAlives.containsKey(leaseId)) {
-            this.keepAlives.remove(leaseId);
+        LeaseHolder leaseHolder = this.keepAlives.remove(leaseId);
+        if (leaseHolder != null) {
+            synchronized (queueLock) {
+                unschedule(leaseHolder);
+            }
         }
     }
 
+    /**
+     * add the lease to the queues, or move it after its times were changed, called with queueLock held.
+     */
+    private void schedule(LeaseHolder leaseHolder) {
+        keepAliveQueue.update(leaseHolder);
+        deadLineQueue.update(leaseHolder);
+    }
+
+    /**
+     * remove the lease from the queues, called with queueLock held.
+     */
+    private void unschedule(LeaseHolder leaseHolder) {
+        keepAliveQueue.remove(leaseHolder);
+        deadLineQueue.remove(leaseHolder);
+    }
+
     private LeaseKeepAliveRequest newKeepAliveRequest(long leaseId) {
         return LeaseKeepAliveRequest.newBuilder().setID(leaseId).build();
     }
 
     private void initRequestStream(StreamObserver<LeaseKeepAliveResponse> leaseKeepAliveResponseStreamObserver) {
-        if (this.keepAliveRequestStreamObserver != null) {
-            this.keepAliveRequestStreamObserver.onCompleted();
+        synchronized (streamLock) {
+            if (this.keepAliveRequestStreamObserver != null) {
+                this.keepAliveRequestStreamObserver.onCompleted();
+            }
+            this.keepAliveResponseStreamObserver = leaseKeepAliveResponseStreamObserver;
+            this.keepAliveRequestStreamObserver = this.leaseStub.leaseKeepAlive(leaseKeepAliveResponseStreamObserver);
+        }
+    }
+
+    /**
+     * The keep alive stream broke, notify the lease handlers and reconnect after a backoff,
+     * shortened so the new stream is up before the earliest dead line. Until then the
+     * leases are not kept alive, the expired ones are removed by the dead line scan.
+     */
+    private void onStreamFailed(StreamObserver<LeaseKeepAliveResponse> observer, Throwable throwable) {
+        long delay = -1;
+        synchronized (streamLock) {
+            // a stream replaced or closed by the client is not reconnected
+            if (observer != this.keepAliveResponseStreamObserver || this.keepAliveRequestStreamObserver == null) {
+                return;
+            }
+            this.keepAliveRequestStreamObserver = null;
+            // nor is a stream of a closed client, every new stream would fail at once
+            if (this.channel.isShutdown()) {
+                this.keepAliveResponseStreamObserver = null;
+            } else {
+                delay = scheduleReconnect(observer);
+            }
+        }
+        if (delay >= 0) {
+            LOGGER.warn("lease keep alive stream failed, reconnecting in {} ms", TimeUnit.NANOSECONDS.toMillis(delay), throwable);
+        } else {
+            LOGGER.debug("lease keep alive stream closed with the channel", throwable);
+        }
+
+        for (CompletableFuture<EtcdHeader> future : onceKeepAlives.drain()) {
+            future.completeExceptionally(throwable);
+        }
+        for (LeaseHolder leaseHolder : keepAlives.values()) {
+            if (leaseHolder.isContainHandler()) {
+                try {
+                    leaseHolder.getEtcdLeaseHandler().onError(throwable);
+                } catch (Exception e) {
+                    LOGGER.warn("lease handler failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * schedule the reconnect of the failed stream, called with streamLock held.
+     *
+     * @return the delay in nanoseconds, -1 if the keep alive schedule was shut down
+     */
+    private long scheduleReconnect(StreamObserver<LeaseKeepAliveResponse> observer) {
+        long now = System.nanoTime();
+        long untilDeadLine;
+        synchronized (queueLock) {
+            LeaseHolder first = deadLineQueue.peek();
+            untilDeadLine = first == null ? Long.MAX_VALUE : first.getDeadLine() - now;
+        }
+        long delay = reconnectDelayNanos(streamFailures++, untilDeadLine, ThreadLocalRandom.current().nextDouble());
+        try {
+            this.keepAliveSchedule.schedule(() -> reconnect(observer), delay, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            return -1;
         }
-        this.keepAliveRequestStreamObserver = this.leaseStub.leaseKeepAlive(leaseKeepAliveResponseStreamObserver);
+        return delay;
+    }
+
+    /**
+     * open a new keep alive stream and keep alive every lease at once, the leases nearest
+     * their dead line first.
+     */
+    private void reconnect(StreamObserver<LeaseKeepAliveResponse> failed) {
+        synchronized (streamLock) {
+            if (failed != this.keepAliveResponseStreamObserver) {
+                return;
+            }
+            if (this.channel.isShutdown()) {
+                this.keepAliveResponseStreamObserver = null;
+                return;
+            }
+            initRequestStream(newResponseStreamObserver());
+
+            long now = System.nanoTime();
+            LeaseHolder[] holders;
+            synchronized (queueLock) {
+                holders = deadLineQueue.toArray();
+                Arrays.sort(holders, (a, b) -> Long.compare(a.getDeadLine() - now, b.getDeadLine() - now));
+                for (LeaseHolder holder : holders) {
+                    holder.setNextKeepAlive(now + TimeUnit.MILLISECONDS.toNanos(this.scanPeriod));
+                    keepAliveQueue.update(holder);
+                }
+            }
+            for (LeaseHolder holder : holders) {
+                this.keepAliveRequestStreamObserver.onNext(holder.keepAliveRequest);
+            }
+        }
+    }
+
+    /**
+     * the delay before reconnecting the keep alive stream, a backoff doubling with each
+     * consecutive failure and randomized by half, at most half the time left until the
+     * earliest dead line.
+     *
+     * @param failures       the consecutive failures before this one
+     * @param untilDeadLine  the nanoseconds until the earliest dead line
+     * @param random         a random value in [0, 1)
+     */
+    static long reconnectDelayNanos(int failures, long untilDeadLine, double random) {
+        long backoff = Math.min(RECONNECT_MAX_BACKOFF, RECONNECT_BACKOFF << Math.min(failures, 16));
+        long delay = TimeUnit.MILLISECONDS.toNanos(backoff / 2 + (long) (backoff / 2 * random));
+        return Math.min(delay, Math.max(0, untilDeadLine / 2));
     }
 
     /**
@@ -360,9 +598,13 @@ public class EtcdLeaseImpl implements EtcdLease {
          */
         synchronized (this) {
             if (this.scheduledFuture != null) {
-                this.keepAliveRequestStreamObserver.onCompleted();
-                this.keepAliveRequestStreamObserver = null;
-                this.keepAliveResponseStreamObserver = null;
+                synchronized (streamLock) {
+                    if (this.keepAliveRequestStreamObserver != null) {
+                        this.keepAliveRequestStreamObserver.onCompleted();
+                    }
+                    this.keepAliveRequestStreamObserver = null;
+                    this.keepAliveResponseStreamObserver = null;
+                }
                 this.scheduledFuture.cancel(true);
                 this.scheduledFuture = null;
             } else {
@@ -375,20 +617,33 @@ public class EtcdLeaseImpl implements EtcdLease {
 
         final Lease lease;
 
+        final LeaseKeepAliveRequest keepAliveRequest;
+
         private LeaseGrantResponse         leaseGrantResponse;
 
+        /**
+         * the dead line and next keep alive are {@link System#nanoTime()} values
+         */
         private long                       deadLine;
 
         private long                       nextKeepAlive;
 
+        /**
+         * the positions of the holder in the keep alive and dead line queues, -1 if not queued
+         */
+        int                                keepAliveIndex = -1;
+
+        int                                deadLineIndex  = -1;
+
         private EtcdLease.EtcdLeaseHandler etcdLeaseHandler;
 
         public LeaseHolder(Lease lease) {
-            this.lease = lease;
+            this(lease, null);
         }
 
         public LeaseHolder(Lease lease, EtcdLeaseHandler etcdLeaseHandler) {
             this.lease = lease;
+            this.keepAliveRequest = LeaseKeepAliveRequest.newBuilder().setID(lease.getLeaseID()).build();
             this.etcdLeaseHandler = etcdLeaseHandler;
         }
 
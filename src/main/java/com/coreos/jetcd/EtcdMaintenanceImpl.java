@@ -1,7 +1,5 @@
 package com.coreos.jetcd;
 
-import com.google.common.base.Supplier;
-import com.google.common.base.Suppliers;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import com.coreos.jetcd.api.AlarmRequest;
@@ -20,7 +18,6 @@ import com.coreos.jetcd.maintenance.Status;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 import io.grpc.ManagedChannel;
 import io.grpc.stub.StreamObserver;
@@ -35,12 +32,12 @@ public class EtcdMaintenanceImpl implements EtcdMaintenance {
     private MaintenanceGrpc.MaintenanceStub streamStub;
     private volatile StreamObserver<SnapshotResponse> snapshotObserver;
     private volatile SnapshotCallback snapshotCallback;
-    private Supplier<Executor> callExecutor;
+    private final Executor callExecutor;
 
-    public EtcdMaintenanceImpl(ManagedChannel channel, Optional<String> token) {
+    public EtcdMaintenanceImpl(ManagedChannel channel, Optional<String> token, Executor callExecutor) {
         this.futureStub = EtcdClientUtil.configureStub(MaintenanceGrpc.newFutureStub(channel), token);
         this.streamStub = EtcdClientUtil.configureStub(MaintenanceGrpc.newStub(channel), token);
-        this.callExecutor = Suppliers.memoize(()-> Executors.newSingleThreadExecutor());
+        this.callExecutor = callExecutor;
     }
 
     /**
@@ -102,7 +99,7 @@ public class EtcdMaintenanceImpl implements EtcdMaintenance {
     public CompletableFuture<EtcdHeader> defragmentMember() {
         return EtcdUtil.completableFromListenableFuture(this.futureStub.defragment(DefragmentRequest.getDefaultInstance()),
                 response->EtcdUtil.apiToClientHeader(response.getHeader())
-                ,callExecutor.get());
+                ,callExecutor);
     }
 
     /**
@@ -113,7 +110,7 @@ public class EtcdMaintenanceImpl implements EtcdMaintenance {
         return EtcdUtil.completableFromListenableFuture(this.futureStub.status(StatusRequest.getDefaultInstance()),
                 response->new StatusResult(EtcdUtil.apiToClientHeader(response.getHeader()),
                         new Status(response.getVersion(), response.getDbSize(), response.getLeader(), response.getRaftIndex(), response.getRaftTerm())),
-                callExecutor.get());
+                callExecutor);
     }
 
     /**
@@ -180,7 +177,7 @@ public class EtcdMaintenanceImpl implements EtcdMaintenance {
                         EtcdUtil.apiToClientHeader(response.getHeader()),
                         EtcdUtil.convertList(response.getAlarmsList(),
                                 alarm->new AlarmMember(alarm.getMemberID(), convertAlarmType(alarm.getAlarm()))).toArray(new AlarmMember[response.getAlarmsCount()]))
-        , callExecutor.get());
+        , callExecutor);
     }
 
     private com.coreos.jetcd.maintenance.AlarmType convertAlarmType(AlarmType type){
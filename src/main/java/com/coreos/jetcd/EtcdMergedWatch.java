@@ -0,0 +1,275 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.EtcdHeader;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.watch.WatchEvent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+
+import static com.coreos.jetcd.EtcdUtil.modRevisionOf;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Merges the events of several watchers into one stream ordered by mod revision.
+ * <p>Each watcher has a watermark, the revision up to which it has received all its events:
+ * the revision of its last event, or the header revision of a response without events, such
+ * as a progress notification. Events are buffered per watcher and passed to the callback
+ * once every watcher has reached their revision, in revision order, the watchers buffers
+ * being merged by their first event. Watchers without recent events hold the stream back
+ * until etcd sends them a progress notification, so they should be created with
+ * {@link WatchOption.Builder#withProgressNotify(boolean) progressNotify}.
+ * <p>The callback is called under the merge lock, one call at a time, from the dispatch
+ * threads of the watchers. A compacted watcher is reported with its compact revision and
+ * removed from the merge. A watcher added later only contributes events after the revision
+ * which was passed to the callback already.
+ */
+public class EtcdMergedWatch implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EtcdMergedWatch.class);
+
+    private final EtcdWatch               watchClient;
+    private final EtcdWatch.WatchCallback callback;
+
+    private final List<Source>          sources = new ArrayList<>();
+    /**
+     * the sources with buffered events, ordered by their first event
+     */
+    private final PriorityQueue<Source> heads   = new PriorityQueue<>();
+
+    private long    deliveredRevision;
+    private int     bufferedEvents;
+    private int     nextIndex;
+    private boolean closed;
+
+    public EtcdMergedWatch(EtcdWatch watchClient, EtcdWatch.WatchCallback callback) {
+        this.watchClient = checkNotNull(watchClient, "watchClient should not be null");
+        this.callback = checkNotNull(callback, "callback should not be null");
+    }
+
+    /**
+     * add a watcher to the merge.
+     *
+     * @param key         the key subscribe
+     * @param watchOption key option
+     * @return CompletableFuture watcher
+     */
+    public CompletableFuture<EtcdWatch.Watcher> watch(ByteSequence key, WatchOption watchOption) {
+        checkNotNull(key, "key should not be null");
+        checkNotNull(watchOption, "watchOption should not be null");
+        Source source;
+        synchronized (this) {
+            source = new Source(nextIndex++, watchOption.getRevision() > 0 ? watchOption.getRevision() - 1 : -1);
+            sources.add(source);
+        }
+        return watchClient.watch(key, watchOption, source).whenComplete((watcher, throwable) -> {
+            if (throwable != null) {
+                remove(source, null);
+            } else {
+                onCreated(source, watcher);
+            }
+        });
+    }
+
+    /**
+     * get the revision up to which the events were passed to the callback.
+     *
+     * @return the merged revision
+     */
+    public synchronized long getRevision() {
+        return deliveredRevision;
+    }
+
+    /**
+     * get the number of events waiting for the other watchers.
+     *
+     * @return the buffered events
+     */
+    public synchronized int getBufferedEvents() {
+        return bufferedEvents;
+    }
+
+    /**
+     * cancel all the watchers, no callback is called after close returns.
+     */
+    @Override
+    public void close() {
+        List<Source> canceled;
+        synchronized (this) {
+            closed = true;
+            canceled = new ArrayList<>(sources);
+            sources.clear();
+            heads.clear();
+            bufferedEvents = 0;
+        }
+        for (Source source : canceled) {
+            if (source.watcher != null) {
+                source.watcher.cancel();
+            }
+        }
+    }
+
+    private synchronized void onCreated(Source source, EtcdWatch.Watcher watcher) {
+        source.watcher = watcher;
+        if (closed || !source.active) {
+            watcher.cancel();
+            return;
+        }
+        // a watch from now has received all the events up to its create revision
+        if (source.watermark < 0) {
+            source.watermark = watcher.getLastRevision();
+        }
+        release(null);
+    }
+
+    private synchronized void onWatch(Source source, EtcdHeader header, long compactRevision, List<WatchEvent> events) {
+        if (closed || !source.active) {
+            return;
+        }
+        if (compactRevision != 0) {
+            deliver(header, compactRevision, Collections.emptyList());
+            remove(source, header);
+            return;
+        }
+
+        boolean wasEmpty = source.buffer.isEmpty();
+        for (WatchEvent event : events) {
+            long revision = modRevisionOf(event);
+            if (revision > deliveredRevision) {
+                source.buffer.addLast(event);
+                bufferedEvents++;
+            }
+        }
+        if (wasEmpty && !source.buffer.isEmpty()) {
+            heads.add(source);
+        }
+        if (!events.isEmpty()) {
+            source.watermark = Math.max(source.watermark, modRevisionOf(events.get(events.size() - 1)));
+        } else if (header != null) {
+            source.watermark = Math.max(source.watermark, header.getRevision());
+        }
+        release(header);
+    }
+
+    private synchronized void remove(Source source, EtcdHeader header) {
+        if (!source.active) {
+            return;
+        }
+        source.active = false;
+        sources.remove(source);
+        if (heads.remove(source)) {
+            bufferedEvents -= source.buffer.size();
+        }
+        source.buffer.clear();
+        if (!closed) {
+            release(header);
+        }
+    }
+
+    /**
+     * pass the buffered events up to the lowest watermark to the callback.
+     */
+    private void release(EtcdHeader header) {
+        long watermark = Long.MAX_VALUE;
+        for (Source source : sources) {
+            watermark = Math.min(watermark, source.watermark);
+        }
+        if (watermark < 0 || watermark == Long.MAX_VALUE) {
+            return;
+        }
+
+        List<WatchEvent> released = null;
+        while (!heads.isEmpty() && heads.peek().firstRevision() <= watermark) {
+            Source source = heads.poll();
+            if (released == null) {
+                released = new ArrayList<>();
+            }
+            // take the run of the source which comes before the next source
+            Source next = heads.peek();
+            do {
+                released.add(source.buffer.pollFirst());
+                bufferedEvents--;
+            } while (!source.buffer.isEmpty()
+                    && source.firstRevision() <= watermark
+                    && (next == null || source.compareTo(next) <= 0));
+            if (!source.buffer.isEmpty()) {
+                heads.add(source);
+            }
+        }
+
+        if (watermark > deliveredRevision) {
+            deliveredRevision = watermark;
+        }
+        if (released != null) {
+            deliver(header, 0, released);
+        }
+    }
+
+    private void deliver(EtcdHeader header, long compactRevision, List<WatchEvent> events) {
+        try {
+            callback.onWatch(header, compactRevision, events);
+        } catch (Exception e) {
+            LOGGER.warn("merged watch callback failed", e);
+        }
+    }
+
+    /**
+     * One watcher of the merge and its buffered events, in revision order.
+     */
+    private final class Source implements EtcdWatch.WatchCallback, Comparable<Source> {
+
+        private final int              index;
+        private final Deque<WatchEvent> buffer = new ArrayDeque<>();
+
+        /**
+         * every event up to this revision was received, -1 while unknown
+         */
+        private long              watermark;
+        private boolean           active = true;
+        private EtcdWatch.Watcher watcher;
+
+        Source(int index, long watermark) {
+            this.index = index;
+            this.watermark = watermark;
+        }
+
+        long firstRevision() {
+            return modRevisionOf(buffer.peekFirst());
+        }
+
+        @Override
+        public int compareTo(Source other) {
+            int result = Long.compare(firstRevision(), other.firstRevision());
+            return result != 0 ? result : Integer.compare(index, other.index);
+        }
+
+        @Override
+        public void onWatch(EtcdHeader header, long compactRevision, List<WatchEvent> events) {
+            EtcdMergedWatch.this.onWatch(this, header, compactRevision, events);
+        }
+
+        @Override
+        public void onResuming() {
+            synchronized (EtcdMergedWatch.this) {
+                if (closed || !active) {
+                    return;
+                }
+                try {
+                    callback.onResuming();
+                } catch (Exception e) {
+                    LOGGER.warn("merged watch callback failed", e);
+                }
+            }
+        }
+    }
+}
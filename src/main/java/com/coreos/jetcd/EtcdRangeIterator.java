@@ -0,0 +1,120 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.api.RangeRequest;
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.KeyValue;
+import com.coreos.jetcd.options.GetOption;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Iterator over a key range which fetches the range page by page.
+ * <p>Every page is read at the revision of the first page, so the iteration is a consistent
+ * snapshot of the range. The next page is requested as soon as the current one arrives, so
+ * it is fetched while the caller consumes the current page.
+ * <p>Only ranges sorted by key can be paged. Errors of the underlying get are rethrown by
+ * {@link #hasNext()} and {@link #next()} as {@link CompletionException}.
+ */
+public final class EtcdRangeIterator implements Iterator<KeyValue> {
+
+    private final EtcdKV       kv;
+    private final GetOption    option;
+    private final ByteSequence endKey;
+    private final int          pageSize;
+    private final boolean      descend;
+
+    private ByteSequence                     nextKey;
+    private long                             revision;
+    private long                             remaining;
+    private List<KeyValue>                   page  = Collections.emptyList();
+    private int                              index = 0;
+    private CompletableFuture<EtcdKV.RangeResult> nextPage;
+
+    EtcdRangeIterator(EtcdKV kv, ByteSequence key, GetOption option, int pageSize) {
+        checkNotNull(kv, "kv should not be null");
+        checkNotNull(key, "key should not be null");
+        checkNotNull(option, "option should not be null");
+        checkArgument(pageSize > 0, "pageSize should be greater than zero: pageSize=%s", pageSize);
+        checkArgument(!option.isCountOnly(), "count only get can not be iterated");
+        checkArgument(option.getSortField() == RangeRequest.SortTarget.KEY,
+                "only range sorted by key can be iterated: sortField=%s", option.getSortField());
+
+        this.kv = kv;
+        this.option = option;
+        this.endKey = option.getEndKey().orElse(null);
+        this.pageSize = pageSize;
+        this.descend = option.getSortOrder() == RangeRequest.SortOrder.DESCEND;
+        this.nextKey = key;
+        this.revision = option.getRevision();
+        this.remaining = option.getLimit() > 0 ? option.getLimit() : Long.MAX_VALUE;
+        this.nextPage = fetch(key, endKey);
+    }
+
+    /**
+     * get the revision the range is read at, it is known once the first page arrived.
+     *
+     * @return the revision of the iterated snapshot, or zero if unknown yet
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (index >= page.size()) {
+            if (nextPage == null) {
+                return false;
+            }
+            EtcdKV.RangeResult result = nextPage.join();
+            nextPage = null;
+
+            if (revision <= 0 && result.header != null) {
+                revision = result.header.getRevision();
+            }
+            page = result.kvs;
+            index = 0;
+            remaining -= page.size();
+
+            if (result.more && remaining > 0 && !page.isEmpty() && endKey != null) {
+                ByteSequence lastKey = page.get(page.size() - 1).getKey();
+                if (descend) {
+                    nextPage = fetch(nextKey, lastKey);
+                } else {
+                    nextPage = fetch(ByteSequence.fromByteString(lastKey.getByteString().concat(EtcdConstants.NULL_KEY)), endKey);
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public KeyValue next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.get(index++);
+    }
+
+    private CompletableFuture<EtcdKV.RangeResult> fetch(ByteSequence key, ByteSequence rangeEnd) {
+        this.nextKey = key;
+        GetOption.Builder builder = GetOption.newBuilder()
+                .withLimit(Math.min(remaining, pageSize))
+                .withRevision(revision)
+                .withSortOrder(option.getSortOrder())
+                .withSortField(option.getSortField())
+                .withSerializable(option.isSerializable())
+                .withKeysOnly(option.isKeysOnly());
+        if (rangeEnd != null) {
+            builder.withRange(rangeEnd);
+        }
+        return kv.get(key, builder.build());
+    }
+}
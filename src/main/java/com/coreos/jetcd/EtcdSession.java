@@ -0,0 +1,317 @@
+package com.coreos.jetcd;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.coreos.jetcd.api.LeaseKeepAliveResponse;
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.lease.Lease;
+import com.coreos.jetcd.options.PutOption;
+import com.coreos.jetcd.options.SessionOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Ephemeral keys sharing one lease.
+ * <p>The session grants one lease and keeps it alive with the lease client, every key put
+ * through the session is attached to it, so many keys cost one keep alive instead of one
+ * each. The session remembers the keys and their values: when the lease expires, a new lease
+ * is granted and every key is put again with it. Puts issued meanwhile wait for the new
+ * lease. A failed grant is retried after the retry delay of the option.
+ * <p>Closing the session revokes the lease, which deletes its keys.
+ */
+public class EtcdSession implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EtcdSession.class);
+
+    private final EtcdKV                   kv;
+    private final EtcdLease                leaseClient;
+    private final SessionOption            option;
+    private final ScheduledExecutorService executor;
+
+    private final CompletableFuture<Void>         started = new CompletableFuture<>();
+    private final Map<ByteSequence, ByteSequence> keys    = new LinkedHashMap<>();
+
+    /**
+     * the current lease, replaced by a pending future when the lease expired
+     */
+    private CompletableFuture<Lease> lease;
+    /**
+     * the granted lease of the current generation, null while it is granted. It is published
+     * under the session lock, so either close() sees it or the grant sees the session closed.
+     */
+    private Lease                    granted;
+    private long                     generation;
+    private boolean                  closed;
+
+    public EtcdSession(EtcdKV kv, EtcdLease leaseClient, SessionOption option) {
+        this.kv = checkNotNull(kv, "kv should not be null");
+        this.leaseClient = checkNotNull(leaseClient, "leaseClient should not be null");
+        this.option = checkNotNull(option, "option should not be null");
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("jetcd-session-%d").setDaemon(true).build());
+    }
+
+    /**
+     * grant the session lease and keep it alive, the keep alive service of the lease client
+     * is started if it is not running.
+     *
+     * @return future completed once the first lease is granted
+     * @throws IllegalStateException if the session was started already
+     */
+    public CompletableFuture<Void> start() {
+        synchronized (this) {
+            checkState(lease == null, "session already started");
+            checkState(!closed, "session closed");
+        }
+        if (!leaseClient.isKeepAliveServiceRunning()) {
+            try {
+                leaseClient.startKeepAliveService();
+            } catch (IllegalStateException e) {
+                // started concurrently
+            }
+        }
+        regrant(0);
+        return started;
+    }
+
+    /**
+     * put the key attached to the session lease, the key is put again with the next lease
+     * if the lease expires.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the put result
+     * @throws IllegalStateException if the session is not started or closed
+     */
+    public CompletableFuture<EtcdKV.PutResult> put(ByteSequence key, ByteSequence value) {
+        checkNotNull(key, "key should not be null");
+        checkNotNull(value, "value should not be null");
+        CompletableFuture<Lease> current;
+        synchronized (this) {
+            checkState(lease != null, "session not started");
+            checkState(!closed, "session closed");
+            keys.put(key, value);
+            current = lease;
+        }
+        return current.thenCompose(granted -> kv.put(key, value, PutOption.newBuilder().withLeaseId(granted).build()));
+    }
+
+    /**
+     * delete the key and detach it from the session.
+     *
+     * @param key the key
+     * @return the delete result
+     */
+    public CompletableFuture<EtcdKV.DeleteResult> delete(ByteSequence key) {
+        checkNotNull(key, "key should not be null");
+        synchronized (this) {
+            keys.remove(key);
+        }
+        return kv.delete(key);
+    }
+
+    /**
+     * get the keys attached to the session.
+     *
+     * @return the session keys
+     */
+    public synchronized Set<ByteSequence> getKeys() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(keys.keySet()));
+    }
+
+    /**
+     * get the current session lease.
+     *
+     * @return the lease, null while it is granted
+     */
+    public synchronized Lease getLease() {
+        return granted;
+    }
+
+    /**
+     * revoke the lease, which deletes the keys of the session.
+     */
+    @Override
+    public void close() {
+        CompletableFuture<Lease> current;
+        Lease toRelease;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            generation++;
+            keys.clear();
+            current = lease;
+            toRelease = granted;
+            granted = null;
+        }
+        executor.shutdown();
+        started.completeExceptionally(new IllegalStateException("session closed"));
+        if (current != null) {
+            // fails the puts waiting for a lease being granted
+            current.completeExceptionally(new IllegalStateException("session closed"));
+        }
+        if (toRelease != null) {
+            release(toRelease);
+        }
+    }
+
+    private void release(Lease lease) {
+        try {
+            leaseClient.cancelKeepAlive(lease);
+        } catch (Exception e) {
+            // the lease expired already, or the keep alive service was closed
+            leaseClient.revoke(lease);
+        }
+    }
+
+    /**
+     * replace the lease, unless it was replaced already.
+     *
+     * @param expired the generation of the expired lease
+     */
+    private void regrant(long expired) {
+        CompletableFuture<Lease> pending = new CompletableFuture<>();
+        long current;
+        synchronized (this) {
+            if (closed || generation != expired) {
+                return;
+            }
+            current = ++generation;
+            lease = pending;
+            granted = null;
+        }
+        grant(current, pending);
+    }
+
+    private void grant(long current, CompletableFuture<Lease> pending) {
+        leaseClient.grant(option.getTtl()).whenComplete((newLease, throwable) -> {
+            if (throwable != null) {
+                LOGGER.warn("failed to grant the session lease, retrying", throwable);
+                schedule(() -> {
+                    synchronized (this) {
+                        if (closed || generation != current) {
+                            return;
+                        }
+                    }
+                    grant(current, pending);
+                }, option.getRetryDelayNanos());
+                return;
+            }
+            synchronized (this) {
+                if (closed || generation != current) {
+                    leaseClient.revoke(newLease);
+                    return;
+                }
+            }
+            boolean keptAlive = true;
+            try {
+                leaseClient.keepAlive(newLease, new LeaseHandler(current));
+            } catch (IllegalStateException e) {
+                keptAlive = false;
+                LOGGER.warn("the keep alive service is not running, the session lease {} will expire", newLease.getLeaseID(), e);
+            }
+            boolean published;
+            synchronized (this) {
+                // closed while the keep alive was registered
+                published = !closed && generation == current;
+                if (published) {
+                    granted = newLease;
+                }
+            }
+            if (!published) {
+                if (keptAlive) {
+                    release(newLease);
+                } else {
+                    leaseClient.revoke(newLease);
+                }
+                return;
+            }
+            pending.complete(newLease);
+            reattach(newLease);
+            started.complete(null);
+        });
+    }
+
+    /**
+     * put the keys of the session again with the new lease.
+     */
+    private void reattach(Lease granted) {
+        List<Map.Entry<ByteSequence, ByteSequence>> attached;
+        synchronized (this) {
+            attached = new ArrayList<>(keys.entrySet());
+        }
+        if (attached.isEmpty()) {
+            return;
+        }
+        LOGGER.info("attaching {} keys to the session lease {}", attached.size(), granted.getLeaseID());
+        PutOption putOption = PutOption.newBuilder().withLeaseId(granted).build();
+        for (Map.Entry<ByteSequence, ByteSequence> entry : attached) {
+            synchronized (this) {
+                // deleted or put again meanwhile
+                if (keys.get(entry.getKey()) != entry.getValue()) {
+                    continue;
+                }
+            }
+            kv.put(entry.getKey(), entry.getValue(), putOption).whenComplete((result, throwable) -> {
+                if (throwable != null) {
+                    LOGGER.warn("failed to attach key {} to the session lease", entry.getKey().toStringUtf8(), throwable);
+                }
+            });
+        }
+    }
+
+    private void schedule(Runnable task, long delayNanos) {
+        try {
+            executor.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // the session was closed
+        }
+    }
+
+    /**
+     * Replaces the lease of one generation when it expires.
+     */
+    private final class LeaseHandler implements EtcdLease.EtcdLeaseHandler {
+
+        private final long generation;
+
+        LeaseHandler(long generation) {
+            this.generation = generation;
+        }
+
+        @Override
+        public void onKeepAliveRespond(LeaseKeepAliveResponse keepAliveResponse) {
+        }
+
+        @Override
+        public void onLeaseExpired(long leaseId) {
+            LOGGER.warn("session lease {} expired, granting a new one", leaseId);
+            schedule(() -> regrant(generation), 0);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // the lease client reconnects its keep alive stream
+        }
+    }
+}
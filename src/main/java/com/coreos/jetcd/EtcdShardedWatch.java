@@ -0,0 +1,106 @@
+package com.coreos.jetcd;
+
+import com.google.common.collect.ImmutableList;
+
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.watch.WatchPublisher;
+import com.coreos.jetcd.watch.WatchSpec;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Watch client spreading the watchers over several watch clients by key hash.
+ * <p>Each shard is a watch client with its own watch stream, optionally on its own channel,
+ * so the event throughput is not bound by the flow control window of one HTTP/2 stream or
+ * one event loop, and a stream error only resumes the watchers of its shard. The watchers
+ * of one key always go to the same shard.
+ */
+public class EtcdShardedWatch implements EtcdWatch {
+
+    private final List<EtcdWatch> shards;
+
+    public EtcdShardedWatch(List<? extends EtcdWatch> shards) {
+        checkNotNull(shards, "shards should not be null");
+        checkArgument(!shards.isEmpty(), "shards should not be empty");
+        this.shards = ImmutableList.copyOf(shards);
+    }
+
+    @Override
+    public CompletableFuture<Watcher> watch(ByteSequence key, WatchOption watchOption, WatchCallback callback) {
+        checkNotNull(key, "key should not be null");
+        return shardOf(key).watch(key, watchOption, callback);
+    }
+
+    @Override
+    public WatchPublisher publisher(ByteSequence key, WatchOption watchOption) {
+        checkNotNull(key, "key should not be null");
+        return shardOf(key).publisher(key, watchOption);
+    }
+
+    /**
+     * the specs are split by shard, each shard registers its part in bulk.
+     */
+    @Override
+    public CompletableFuture<List<Watcher>> watchAll(Collection<WatchSpec> specs) {
+        checkNotNull(specs, "specs should not be null");
+        List<List<WatchSpec>> shardSpecs = new ArrayList<>(shards.size());
+        List<List<Integer>> shardIndexes = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            shardSpecs.add(new ArrayList<>());
+            shardIndexes.add(new ArrayList<>());
+        }
+        int index = 0;
+        for (WatchSpec spec : specs) {
+            int shard = shardIndexOf(spec.getKey());
+            shardSpecs.get(shard).add(spec);
+            shardIndexes.get(shard).add(index++);
+        }
+
+        List<CompletableFuture<Watcher>> futures = new ArrayList<>(index);
+        for (int i = 0; i < index; i++) {
+            futures.add(null);
+        }
+        for (int shard = 0; shard < shards.size(); shard++) {
+            if (shardSpecs.get(shard).isEmpty()) {
+                continue;
+            }
+            CompletableFuture<List<Watcher>> shardFuture = shards.get(shard).watchAll(shardSpecs.get(shard));
+            List<Integer> indexes = shardIndexes.get(shard);
+            for (int i = 0; i < indexes.size(); i++) {
+                int position = i;
+                futures.set(indexes.get(i), shardFuture.thenApply(watchers -> watchers.get(position)));
+            }
+        }
+        return EtcdUtil.allWatchers(futures);
+    }
+
+    /**
+     * get the number of shards.
+     *
+     * @return the number of shards
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * get the shard the watchers of the key go to.
+     *
+     * @param key the watched key
+     * @return the watch client of the shard
+     */
+    EtcdWatch shardOf(ByteSequence key) {
+        return shards.get(shardIndexOf(key));
+    }
+
+    private int shardIndexOf(ByteSequence key) {
+        return Math.floorMod(key.hashCode(), shards.size());
+    }
+}
@@ -0,0 +1,464 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.EtcdHeader;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.watch.WatchEvent;
+import com.coreos.jetcd.watch.WatchHealth;
+import com.coreos.jetcd.watch.WatchPublisher;
+import com.coreos.jetcd.watch.WatchSpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.coreos.jetcd.EtcdUtil.modRevisionOf;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Watch client sharing one server watcher between identical subscriptions.
+ * <p>Watches on the same key and range, with the same filters, prevKV and progressNotify
+ * settings share the server watcher of the first subscription, its events are fanned out
+ * locally to every callback. The server watcher is canceled when the last subscription is.
+ * <p>A subscription joins a shared watcher only if no event it asks for was passed to the
+ * callbacks already: it watches from now, or from a revision after the last delivered
+ * event, and earlier events are filtered out for it. Otherwise it gets a watcher of its own.
+ * <p>The callbacks of a shared watcher are called one after another with the dispatch
+ * settings of the first subscription. Watches with client side filters, a coalesce window
+ * or a checkpoint name are not shared.
+ */
+public class EtcdSharedWatch implements EtcdWatch {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EtcdSharedWatch.class);
+
+    private final EtcdWatch delegate;
+
+    private final Map<Subscription, SharedWatcher> sharedWatchers = new HashMap<>();
+
+    public EtcdSharedWatch(EtcdWatch delegate) {
+        this.delegate = checkNotNull(delegate, "delegate should not be null");
+    }
+
+    @Override
+    public CompletableFuture<Watcher> watch(ByteSequence key, WatchOption watchOption, WatchCallback callback) {
+        List<Create> creates = new ArrayList<>(1);
+        CompletableFuture<Watcher> future = subscribe(new WatchSpec(key, watchOption, callback), creates);
+        for (Create create : creates) {
+            WatchSpec spec = create.spec;
+            delegate.watch(spec.getKey(), spec.getWatchOption(), spec.getCallback())
+                    .whenComplete((watcher, throwable) -> create.complete(watcher, throwable));
+        }
+        return future;
+    }
+
+    /**
+     * the watchers the subscriptions can't share are registered with the delegate in bulk.
+     */
+    @Override
+    public CompletableFuture<List<Watcher>> watchAll(Collection<WatchSpec> specs) {
+        checkNotNull(specs, "specs should not be null");
+        List<Create> creates = new ArrayList<>();
+        List<CompletableFuture<Watcher>> futures = new ArrayList<>(specs.size());
+        for (WatchSpec spec : specs) {
+            futures.add(subscribe(spec, creates));
+        }
+        if (!creates.isEmpty()) {
+            List<WatchSpec> createSpecs = new ArrayList<>(creates.size());
+            for (Create create : creates) {
+                createSpecs.add(create.spec);
+            }
+            delegate.watchAll(createSpecs).whenComplete((watchers, throwable) -> {
+                for (int i = 0; i < creates.size(); i++) {
+                    creates.get(i).complete(throwable == null ? watchers.get(i) : null, throwable);
+                }
+            });
+        }
+        return EtcdUtil.allWatchers(futures);
+    }
+
+    /**
+     * the demand is per subscriber, the publishers don't share watchers.
+     */
+    @Override
+    public WatchPublisher publisher(ByteSequence key, WatchOption watchOption) {
+        return delegate.publisher(key, watchOption);
+    }
+
+    /**
+     * join or start the shared watcher of the spec, the watches the delegate has to create
+     * are added to creates.
+     */
+    private synchronized CompletableFuture<Watcher> subscribe(WatchSpec spec, List<Create> creates) {
+        WatchOption watchOption = spec.getWatchOption();
+        Subscription subscription = new Subscription(spec.getKey(), watchOption);
+        SharedWatcher shared = sharedWatchers.get(subscription);
+        // the client side filters, coalescing and checkpoint apply to the whole server watcher
+        boolean own = watchOption.isFiltered() || watchOption.getCoalesceWindowNanos() > 0
+                || watchOption.getCheckpoint().isPresent();
+        if (shared == null && !own) {
+            shared = new SharedWatcher(subscription, watchOption);
+            sharedWatchers.put(subscription, shared);
+            creates.add(new Create(new WatchSpec(spec.getKey(), watchOption, shared), shared, null));
+        }
+        Subscriber subscriber = own ? null : shared.join(watchOption, spec.getCallback());
+        if (subscriber == null) {
+            CompletableFuture<Watcher> future = new CompletableFuture<>();
+            creates.add(new Create(spec, null, future));
+            return future;
+        }
+        return subscriber.created;
+    }
+
+    /**
+     * get the number of server watchers shared by the subscriptions.
+     *
+     * @return the number of shared watchers
+     */
+    public synchronized int getSharedWatcherCount() {
+        return sharedWatchers.size();
+    }
+
+    private synchronized void remove(SharedWatcher shared) {
+        sharedWatchers.remove(shared.subscription, shared);
+    }
+
+    /**
+     * cancel one subscription, the server watcher is canceled with the last one.
+     */
+    private CompletableFuture<Boolean> unsubscribe(SharedWatcher shared, Subscriber subscriber) {
+        boolean last;
+        synchronized (this) {
+            if (!shared.subscribers.remove(subscriber)) {
+                return CompletableFuture.completedFuture(Boolean.FALSE);
+            }
+            last = shared.subscribers.isEmpty();
+            if (last) {
+                sharedWatchers.remove(shared.subscription, shared);
+            }
+        }
+        if (!last) {
+            return CompletableFuture.completedFuture(Boolean.TRUE);
+        }
+        return shared.created.thenCompose(Watcher::cancel);
+    }
+
+    /**
+     * A watch the delegate has to create, for a new shared watcher or a subscription which
+     * can't join one.
+     */
+    private final class Create {
+
+        private final WatchSpec                  spec;
+        private final SharedWatcher              shared;
+        private final CompletableFuture<Watcher> future;
+
+        Create(WatchSpec spec, SharedWatcher shared, CompletableFuture<Watcher> future) {
+            this.spec = spec;
+            this.shared = shared;
+            this.future = future;
+        }
+
+        void complete(Watcher watcher, Throwable throwable) {
+            if (shared == null) {
+                if (throwable != null) {
+                    future.completeExceptionally(throwable);
+                } else {
+                    future.complete(watcher);
+                }
+            } else if (throwable != null) {
+                remove(shared);
+                shared.created.completeExceptionally(throwable);
+            } else {
+                shared.onCreated(watcher);
+            }
+        }
+    }
+
+    /**
+     * The identity of a server watcher, the options changing which events a callback sees.
+     */
+    private static final class Subscription {
+
+        private final ByteSequence           key;
+        private final Optional<ByteSequence> endKey;
+        private final boolean                prevKV;
+        private final boolean                progressNotify;
+        private final boolean                noPut;
+        private final boolean                noDelete;
+
+        Subscription(ByteSequence key, WatchOption option) {
+            this.key = key;
+            this.endKey = option.getEndKey();
+            this.prevKV = option.isPrevKV();
+            this.progressNotify = option.isProgressNotify();
+            this.noPut = option.isNoPut();
+            this.noDelete = option.isNoDelete();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Subscription)) {
+                return false;
+            }
+            Subscription other = (Subscription) obj;
+            return key.equals(other.key)
+                    && endKey.equals(other.endKey)
+                    && prevKV == other.prevKV
+                    && progressNotify == other.progressNotify
+                    && noPut == other.noPut
+                    && noDelete == other.noDelete;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(key, endKey, prevKV, progressNotify, noPut, noDelete);
+        }
+    }
+
+    /**
+     * A server watcher and its subscribers, the watch callback fanning the events out.
+     */
+    private final class SharedWatcher implements WatchCallback {
+
+        private final Subscription                        subscription;
+        private final List<Subscriber>                    subscribers = new CopyOnWriteArrayList<>();
+        private final CompletableFuture<Watcher>          created     = new CompletableFuture<>();
+
+        /**
+         * every event not passed to the callbacks yet is after this revision, -1 while unknown
+         */
+        private long deliveredRevision;
+
+        SharedWatcher(Subscription subscription, WatchOption option) {
+            this.subscription = subscription;
+            this.deliveredRevision = option.getRevision() > 0 ? option.getRevision() - 1 : -1;
+        }
+
+        /**
+         * add a subscriber if the events it asks for are not passed to the callbacks yet, called
+         * with the EtcdSharedWatch lock held. The check and the add hold the lock onWatch holds
+         * while it moves the delivered revision and takes the subscribers, so a subscriber
+         * gets every event from its revision.
+         *
+         * @return the subscriber, null if it can't join
+         */
+        Subscriber join(WatchOption option, WatchCallback callback) {
+            Subscriber subscriber;
+            synchronized (this) {
+                if (!canJoin(option.getRevision())) {
+                    return null;
+                }
+                subscriber = new Subscriber(this, option, callback);
+                subscribers.add(subscriber);
+            }
+            created.whenComplete((watcher, throwable) -> {
+                if (throwable != null) {
+                    subscriber.created.completeExceptionally(throwable);
+                } else {
+                    subscriber.created.complete(subscriber);
+                }
+            });
+            return subscriber;
+        }
+
+        /**
+         * called with the shared watcher lock held.
+         */
+        private boolean canJoin(long revision) {
+            if (revision <= 0) {
+                return true;
+            }
+            return deliveredRevision >= 0 && revision > deliveredRevision;
+        }
+
+        void onCreated(Watcher watcher) {
+            synchronized (this) {
+                // a watch from now starts after the revision it was created at
+                if (deliveredRevision < 0) {
+                    deliveredRevision = watcher.getLastRevision();
+                }
+            }
+            created.complete(watcher);
+        }
+
+        @Override
+        public void onWatch(EtcdHeader header, long compactRevision, List<WatchEvent> events) {
+            Iterator<Subscriber> targets;
+            int count;
+            synchronized (this) {
+                if (!events.isEmpty()) {
+                    deliveredRevision = Math.max(deliveredRevision, modRevisionOf(events.get(events.size() - 1)));
+                } else if (header != null && compactRevision == 0) {
+                    deliveredRevision = Math.max(deliveredRevision, header.getRevision());
+                }
+                // the iterator of the copy on write list is a snapshot of the subscribers
+                // which joined before the revision moved
+                targets = subscribers.iterator();
+                count = subscribers.size();
+            }
+            if (compactRevision != 0) {
+                // the server canceled the watcher, new subscriptions need a new one
+                remove(this);
+            }
+
+            List<WatchEvent> shared = count > 1 ? Collections.unmodifiableList(events) : events;
+            while (targets.hasNext()) {
+                Subscriber subscriber = targets.next();
+                try {
+                    subscriber.onWatch(header, compactRevision, shared);
+                } catch (Exception e) {
+                    LOGGER.warn("watch callback failed", e);
+                }
+            }
+        }
+
+        @Override
+        public void onResuming() {
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.callback != null) {
+                    subscriber.callback.onResuming();
+                }
+            }
+        }
+    }
+
+    /**
+     * One subscription of a shared watcher, the watcher handle returned to the caller.
+     */
+    private final class Subscriber implements Watcher {
+
+        private final SharedWatcher              shared;
+        private final WatchOption                option;
+        private final WatchCallback              callback;
+        private final long                       startRevision;
+        private final CompletableFuture<Watcher> created = new CompletableFuture<>();
+        private volatile boolean                 canceled;
+
+        Subscriber(SharedWatcher shared, WatchOption option, WatchCallback callback) {
+            this.shared = shared;
+            this.option = option;
+            this.callback = callback;
+            this.startRevision = option.getRevision();
+        }
+
+        void onWatch(EtcdHeader header, long compactRevision, List<WatchEvent> events) {
+            if (callback == null) {
+                return;
+            }
+            if (startRevision > 0 && !events.isEmpty() && modRevisionOf(events.get(0)) < startRevision) {
+                List<WatchEvent> filtered = new ArrayList<>(events.size());
+                for (WatchEvent event : events) {
+                    if (modRevisionOf(event) >= startRevision) {
+                        filtered.add(event);
+                    }
+                }
+                if (filtered.isEmpty()) {
+                    return;
+                }
+                events = filtered;
+            }
+            callback.onWatch(header, compactRevision, events);
+        }
+
+        private Watcher watcher() {
+            return shared.created.getNow(null);
+        }
+
+        @Override
+        public long getWatchID() {
+            Watcher watcher = watcher();
+            return watcher == null ? -1 : watcher.getWatchID();
+        }
+
+        @Override
+        public long getLastRevision() {
+            Watcher watcher = watcher();
+            return watcher == null ? -1 : watcher.getLastRevision();
+        }
+
+        @Override
+        public ByteSequence getKey() {
+            return shared.subscription.key;
+        }
+
+        @Override
+        public boolean isResuming() {
+            Watcher watcher = watcher();
+            return watcher != null && watcher.isResuming();
+        }
+
+        @Override
+        public WatchOption getWatchOption() {
+            return option;
+        }
+
+        @Override
+        public int getQueueDepth() {
+            Watcher watcher = watcher();
+            return watcher == null ? 0 : watcher.getQueueDepth();
+        }
+
+        @Override
+        public long getDispatchLagNanos() {
+            Watcher watcher = watcher();
+            return watcher == null ? 0 : watcher.getDispatchLagNanos();
+        }
+
+        @Override
+        public long getDroppedEvents() {
+            Watcher watcher = watcher();
+            return watcher == null ? 0 : watcher.getDroppedEvents();
+        }
+
+        @Override
+        public long getDeliveredRevision() {
+            Watcher watcher = watcher();
+            return watcher == null ? 0 : watcher.getDeliveredRevision();
+        }
+
+        @Override
+        public WatchHealth getHealth() {
+            Watcher watcher = watcher();
+            return watcher == null ? new WatchHealth(0, 0, 0, 0, 0, 0, false, false, canceled) : watcher.getHealth();
+        }
+
+        @Override
+        public CompletableFuture<Boolean> cancel() {
+            canceled = true;
+            return unsubscribe(shared, this);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!canceled) {
+                try {
+                    cancel().get(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IOException("Close was interrupted.", e);
+                } catch (ExecutionException e) {
+                    throw new IOException("Exception during execute.", e);
+                } catch (TimeoutException e) {
+                    throw new IOException("Close out of time.", e);
+                }
+            }
+        }
+    }
+}
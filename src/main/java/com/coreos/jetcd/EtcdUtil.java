@@ -13,11 +13,13 @@ import com.coreos.jetcd.lease.Lease;
 import com.coreos.jetcd.watch.WatchEvent;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * This util is to convert api class to client class.
@@ -28,17 +30,32 @@ class EtcdUtil {
     }
 
     /**
-     * convert ByteSequence to ByteString
+     * convert ByteSequence to ByteString, the underlying ByteString is passed through without copy
      */
     protected static ByteString byteStringFromByteSequence(ByteSequence byteSequence) {
-        return ByteString.copyFrom(byteSequence.getBytes());
+        return byteSequence.getByteString();
     }
 
     /**
-     * convert ByteString to ByteSequence
+     * convert ByteString to ByteSequence, the ByteString is wrapped without copy
      */
     protected static ByteSequence byteSequceFromByteString(ByteString byteString) {
-        return ByteSequence.fromBytes(byteString.toByteArray());
+        return ByteSequence.fromByteString(byteString);
+    }
+
+    /**
+     * get the end key of the range covering all the keys with the given prefix
+     */
+    protected static ByteSequence prefixEndOf(ByteSequence prefix) {
+        byte[] end = prefix.getBytes();
+        for (int i = end.length - 1; i >= 0; i--) {
+            if (end[i] != (byte) 0xff) {
+                end[i] = (byte) (end[i] + 1);
+                return ByteSequence.fromBytes(Arrays.copyOf(end, i + 1));
+            }
+        }
+        // no key is greater than the prefix, the range is all keys >= prefix
+        return ByteSequence.fromByteString(EtcdConstants.NULL_KEY);
     }
 
     /**
@@ -58,29 +75,41 @@ class EtcdUtil {
     }
 
     /**
-     * convert API watch event to etcd client event
+     * convert API watch event to etcd client event, the key values are converted on first access
      */
     protected static WatchEvent apiToClientEvent(Event event) {
-        WatchEvent.EventType eventType = WatchEvent.EventType.UNRECOGNIZED;
-        switch (event.getType()) {
+        return new LazyWatchEvent(event, apiToClientEventType(event.getType()));
+    }
+
+    protected static WatchEvent.EventType apiToClientEventType(Event.EventType type) {
+        switch (type) {
             case DELETE:
-                eventType = WatchEvent.EventType.DELETE;
-                break;
+                return WatchEvent.EventType.DELETE;
             case PUT:
-                eventType = WatchEvent.EventType.PUT;
-                break;
+                return WatchEvent.EventType.PUT;
+            default:
+                return WatchEvent.EventType.UNRECOGNIZED;
         }
-        return new WatchEvent(apiToClientKV(event.getKv()), apiToClientKV(event.getPrevKv()), eventType);
     }
 
     protected static List<WatchEvent> apiToClientEvents(List<Event> events) {
-        List<WatchEvent> watchEvents = new ArrayList<>();
+        List<WatchEvent> watchEvents = new ArrayList<>(events.size());
         for (Event event : events) {
             watchEvents.add(apiToClientEvent(event));
         }
         return watchEvents;
     }
 
+    /**
+     * get the mod revision of the event without converting its key value
+     */
+    static long modRevisionOf(WatchEvent event) {
+        if (event instanceof LazyWatchEvent) {
+            return ((LazyWatchEvent) event).getEvent().getKv().getModRevision();
+        }
+        return event.getKeyValue().getModRevision();
+    }
+
     /**
      * convert API response header to self defined header
      */
@@ -124,16 +153,60 @@ class EtcdUtil {
                 return result;
             }
         };
-        sourceFuture.addListener(() -> {
+        Runnable completion = () -> {
             try {
                 targetFuture.complete(resultConvert.convert(sourceFuture.get()));
             } catch (Exception e) {
                 targetFuture.completeExceptionally(e);
             }
-        }, executor);
+        };
+        sourceFuture.addListener(completion, executor);
         return targetFuture;
     }
 
+    /**
+     * wrap the executor so a task it rejects, once it is shut down, runs in the calling thread.
+     * The completions of the calls failed by a channel shut down on close still complete
+     * their futures.
+     */
+    static Executor inlineOnRejection(Executor executor) {
+        return command -> {
+            try {
+                executor.execute(command);
+            } catch (RejectedExecutionException e) {
+                command.run();
+            }
+        };
+    }
+
+    /**
+     * combine the futures of a bulk watch registration. If a watch fails, the combined future
+     * fails with its error once every create is answered, and the watchers which were created
+     * are canceled, as nobody holds them.
+     */
+    static CompletableFuture<List<EtcdWatch.Watcher>> allWatchers(List<CompletableFuture<EtcdWatch.Watcher>> futures) {
+        CompletableFuture<List<EtcdWatch.Watcher>> combined = new CompletableFuture<>();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, error) -> {
+            List<EtcdWatch.Watcher> watchers = new ArrayList<>(futures.size());
+            Throwable failure = null;
+            for (CompletableFuture<EtcdWatch.Watcher> future : futures) {
+                try {
+                    watchers.add(future.join());
+                } catch (CompletionException e) {
+                    failure = failure != null ? failure : e.getCause();
+                } catch (CancellationException e) {
+                    failure = failure != null ? failure : e;
+                }
+            }
+            if (failure == null) {
+                combined.complete(watchers);
+            } else {
+                watchers.forEach(EtcdWatch.Watcher::cancel);
+                combined.completeExceptionally(failure);
+            }
+        });
+        return combined;
+    }
 
     interface Converter<S, T> {
         T convert(S source);
@@ -4,8 +4,13 @@ import com.coreos.jetcd.data.ByteSequence;
 import com.coreos.jetcd.data.EtcdHeader;
 import com.coreos.jetcd.options.WatchOption;
 import com.coreos.jetcd.watch.WatchEvent;
+import com.coreos.jetcd.watch.WatchHealth;
+import com.coreos.jetcd.watch.WatchPublisher;
+import com.coreos.jetcd.watch.WatchSpec;
 
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
@@ -27,6 +32,42 @@ public interface EtcdWatch {
      */
     CompletableFuture<Watcher> watch(ByteSequence key, WatchOption watchOption, WatchCallback callback);
 
+    /**
+     * Watch on several keys or prefixes at once, the create requests are written to the
+     * watch stream back to back.
+     * <p>The future completes with the watchers in the order of the specs once all of them
+     * are created. If one of them fails, it completes with its error and the watchers which
+     * were created are canceled.
+     *
+     * @param specs the watches to register
+     * @return CompletableFuture of the watchers
+     */
+    default CompletableFuture<List<Watcher>> watchAll(Collection<WatchSpec> specs) {
+        List<CompletableFuture<Watcher>> futures = new ArrayList<>(specs.size());
+        for (WatchSpec spec : specs) {
+            futures.add(watch(spec.getKey(), spec.getWatchOption(), spec.getCallback()));
+        }
+        return EtcdUtil.allWatchers(futures);
+    }
+
+    /**
+     * Publish the events of a key or prefix to subscribers pulling them, each subscription
+     * creates a watcher. Events not requested yet stay in the dispatch queue of the watcher.
+     * <p>With the default {@link com.coreos.jetcd.watch.WatchOverflowPolicy#BLOCK} policy a
+     * full queue stops the reading of the watch stream, and the stream is shared by every
+     * watcher of the client: a subscriber which stops requesting pauses all the other watches
+     * once its queue is full. Use {@link com.coreos.jetcd.watch.WatchOverflowPolicy#DROP_AND_RESYNC}
+     * when a subscriber may fall behind, or a client of its own for such subscribers.
+     *
+     * @param key         the key subscribe
+     * @param watchOption key option
+     * @return the publisher of the events
+     * @throws UnsupportedOperationException if the client does not pass events on demand
+     */
+    default WatchPublisher publisher(ByteSequence key, WatchOption watchOption) {
+        throw new UnsupportedOperationException("publisher not supported by " + getClass().getName());
+    }
+
     interface Watcher extends Closeable {
 
         /**
@@ -49,6 +90,55 @@ public interface EtcdWatch {
          */
         WatchOption getWatchOption();
 
+        /**
+         * get the number of events received but not passed to the callback yet.
+         *
+         * @return queued events
+         */
+        default int getQueueDepth() {
+            return 0;
+        }
+
+        /**
+         * get how long the oldest event not passed to the callback yet has been waiting.
+         *
+         * @return dispatch lag in nanoseconds, zero if no event is waiting
+         */
+        default long getDispatchLagNanos() {
+            return 0;
+        }
+
+        /**
+         * get the number of events dropped or coalesced by the overflow policy.
+         *
+         * @return dropped events
+         */
+        default long getDroppedEvents() {
+            return 0;
+        }
+
+        /**
+         * get the revision up to which the events were passed to the callback, progress
+         * notifications included.
+         *
+         * @return the delivered revision
+         */
+        default long getDeliveredRevision() {
+            return getLastRevision();
+        }
+
+        /**
+         * get how far the watcher is behind the watch stream and its state, to alert on
+         * slow watchers.
+         *
+         * @return the health of the watcher
+         */
+        default WatchHealth getHealth() {
+            long delivered = getDeliveredRevision();
+            return new WatchHealth(delivered, delivered, getDispatchLagNanos(), 0, getQueueDepth(),
+                    getDroppedEvents(), false, isResuming(), false);
+        }
+
         /**
          * cancel the watcher
          *
@@ -2,38 +2,137 @@ package com.coreos.jetcd;
 
 import com.coreos.jetcd.api.*;
 import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.EtcdHeader;
 import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.options.WatchResumeOption;
 import com.coreos.jetcd.watch.WatchCreateException;
+import com.coreos.jetcd.watch.WatchEvent;
+import com.coreos.jetcd.watch.WatchHealth;
+import com.coreos.jetcd.watch.WatchPublisher;
+import com.coreos.jetcd.watch.WatchSpec;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.ByteString;
 import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
 import io.grpc.stub.StreamObserver;
-import javafx.util.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static com.coreos.jetcd.EtcdUtil.apiToClientEvents;
 import static com.coreos.jetcd.EtcdUtil.apiToClientHeader;
+import static com.coreos.jetcd.EtcdUtil.modRevisionOf;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 /**
  * etcd watcher Implementation
+ * <p>The events of each watcher are handed to a {@link WatchDispatcher} which calls the
+ * callback on the dispatch executor, the transport thread only parses and queues them.
+ * Responses are read from the stream one at a time, the next one is requested when no
+ * watcher with the BLOCK overflow policy has a full queue.
+ * <p>Create requests are pipelined, etcd answers the creates of a stream in the order they
+ * were sent, so each create is queued and written under one lock and every create response
+ * is matched with the head of the queue. A create which is not answered in time is abandoned:
+ * it keeps its place in the queue and the watcher created by its late response is canceled.
+ * <p>The watch client is closed with the etcd client, the watchers are then canceled and no
+ * longer resumed.
  */
 public class EtcdWatchImpl implements EtcdWatch {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(EtcdWatchImpl.class);
+
     private volatile StreamObserver<WatchRequest> requestStream;
 
+    private volatile ClientCallStreamObserver<WatchRequest> callStream;
+
+    /**
+     * the number of watchers whose queue is full, the stream is not read while it is not zero
+     */
+    private final AtomicInteger blockedWatchers = new AtomicInteger();
+
+    /**
+     * whether a response was processed but the next one was not requested yet
+     */
+    private final AtomicBoolean pendingRequest = new AtomicBoolean();
+
+    private final Executor callExecutor;
+
+    private final WatchResumeScheduler resumeScheduler;
+
     private ConcurrentHashMap<Long, WatcherImpl> watchers = new ConcurrentHashMap<>();
 
     private final WatchGrpc.WatchStub watchStub;
 
-    private ConcurrentLinkedQueue<Pair<WatcherImpl, CompletableFuture<Watcher>>> pendingCreateWatchers = new ConcurrentLinkedQueue<>();
+    /**
+     * the creates sent on the current stream and not answered yet, in the order they were sent,
+     * guarded by this
+     */
+    private final Deque<PendingCreate> pendingCreates = new ArrayDeque<>();
     private Map<Long, CompletableFuture<Boolean>> pendingCancelFutures = new ConcurrentHashMap<>();
 
-    public EtcdWatchImpl(ManagedChannel channel, Optional<String> token) {
+    private ScheduledExecutorService timer;
+
+    /**
+     * records the last revisions of the watches with a checkpoint name, null if none
+     */
+    private final WatchCheckpointStore checkpointStore;
+
+    /**
+     * request progress notifications for every watcher
+     */
+    private final boolean progressNotify;
+
+    /**
+     * the latest header revision of the watch stream, written by the stream reader only
+     */
+    private volatile long clusterRevision;
+
+    private final ManagedChannel channel;
+
+    /**
+     * set once by close, written under this
+     */
+    private volatile boolean closed;
+
+    public EtcdWatchImpl(ManagedChannel channel, Optional<String> token, Executor callExecutor) {
+        this(channel, token, callExecutor, WatchResumeOption.DEFAULT);
+    }
+
+    public EtcdWatchImpl(ManagedChannel channel, Optional<String> token, Executor callExecutor, WatchResumeOption resumeOption) {
+        this(channel, token, callExecutor, resumeOption, null);
+    }
+
+    public EtcdWatchImpl(ManagedChannel channel, Optional<String> token, Executor callExecutor, WatchResumeOption resumeOption,
+                         WatchCheckpointStore checkpointStore) {
+        this(channel, token, callExecutor, resumeOption, checkpointStore, false);
+    }
+
+    /**
+     * @param progressNotify whether etcd sends progress notifications to every watcher, so
+     *                       the lag of the quiet watchers is known
+     */
+    public EtcdWatchImpl(ManagedChannel channel, Optional<String> token, Executor callExecutor, WatchResumeOption resumeOption,
+                         WatchCheckpointStore checkpointStore, boolean progressNotify) {
+        this.checkpointStore = checkpointStore;
+        this.progressNotify = progressNotify;
+        this.channel = channel;
         this.watchStub = EtcdClientUtil.configureStub(WatchGrpc.newStub(channel), token);
+        this.callExecutor = callExecutor;
+        this.resumeScheduler = new WatchResumeScheduler(resumeOption, this::resumeWatcher);
     }
 
     /**
@@ -48,51 +147,257 @@ public class EtcdWatchImpl implements EtcdWatch {
      */
     @Override
     public CompletableFuture<Watcher> watch(ByteSequence key, WatchOption watchOption, WatchCallback callback) {
-        WatchRequest request = optionToWatchCreateRequest(EtcdUtil.byteStringFromByteSequence(key), watchOption);
+        checkState(!closed, "watch client closed");
         WatcherImpl watcher = new WatcherImpl(key, watchOption, callback);
-        CompletableFuture<Watcher> waitFuture = new CompletableFuture();
-        this.pendingCreateWatchers.add(new Pair<>(watcher, waitFuture));
-        getRequestStream().onNext(request);
-        return waitFuture;
+        create(Collections.singletonList(newCreate(watcher, startRevision(watchOption))));
+        return watcher.createFuture;
+    }
+
+    /**
+     * Watch on several keys or prefixes at once. The create requests are written back to back
+     * under the stream lock, the transport flushes them together.
+     *
+     * @param specs the watches to register
+     * @return CompletableFuture of the watchers
+     */
+    @Override
+    public CompletableFuture<List<Watcher>> watchAll(Collection<WatchSpec> specs) {
+        checkState(!closed, "watch client closed");
+        List<PendingCreate> creates = new ArrayList<>(specs.size());
+        List<CompletableFuture<Watcher>> futures = new ArrayList<>(specs.size());
+        for (WatchSpec spec : specs) {
+            WatcherImpl watcher = new WatcherImpl(spec.getKey(), spec.getWatchOption(), spec.getCallback());
+            creates.add(newCreate(watcher, startRevision(spec.getWatchOption())));
+            futures.add(watcher.createFuture);
+        }
+        create(creates);
+        return EtcdUtil.allWatchers(futures);
     }
 
     /**
      * Cancel the watch task with the watcher, the onCanceled will be called after successfully canceled.
      *
      * @param id the watcher to be canceled
+     * @return the future completed when etcd canceled the watcher
      */
     protected CompletableFuture<Boolean> cancelWatch(long id) {
-        WatcherImpl temp = watchers.get(id);
-        CompletableFuture<Boolean> completableFuture = null;
-        if (temp != null) {
-            synchronized (temp) {
-                if (this.watchers.containsKey(temp.getWatchID())) {
-                    this.watchers.remove(temp.getWatchID());
-                    completableFuture = new CompletableFuture<>();
-                    this.pendingCancelFutures.put(id, completableFuture);
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        CompletableFuture<Boolean> canceling = this.pendingCancelFutures.putIfAbsent(id, future);
+        if (canceling != null) {
+            return canceling;
+        }
+        this.watchers.remove(id);
+
+        WatchCancelRequest cancelRequest = WatchCancelRequest.newBuilder().setWatchId(id).build();
+        if (!send(WatchRequest.newBuilder().setCancelRequest(cancelRequest).build())) {
+            // the stream was canceled with the client
+            this.pendingCancelFutures.remove(id, future);
+            future.complete(Boolean.TRUE);
+        }
+        return future;
+    }
+
+    /**
+     * Publish the events of a key or prefix to subscribers pulling them. The dispatch queue
+     * of the watcher passes the events as far as they were requested, the BLOCK overflow
+     * policy stops the reading of the stream when it is full.
+     *
+     * @param key         the key subscribe
+     * @param watchOption key option
+     * @return the publisher of the events
+     */
+    @Override
+    public WatchPublisher publisher(ByteSequence key, WatchOption watchOption) {
+        checkNotNull(key, "key should not be null");
+        checkNotNull(watchOption, "watchOption should not be null");
+        return subscriber -> {
+            checkNotNull(subscriber, "subscriber should not be null");
+            checkState(!closed, "watch client closed");
+            PublisherSubscription subscription = new PublisherSubscription(subscriber);
+            WatcherImpl watcher = new WatcherImpl(key, watchOption, subscription, 0);
+            subscription.watcher = watcher;
+            subscriber.onSubscribe(subscription);
+            if (subscription.done.get()) {
+                return;
+            }
+            create(Collections.singletonList(newCreate(watcher, startRevision(watchOption))));
+            watcher.createFuture.whenComplete((created, throwable) -> {
+                if (throwable != null) {
+                    subscription.fail(throwable);
                 }
+            });
+        };
+    }
+
+    /**
+     * the revision to watch from, after the recorded revision of a checkpointed watch from now.
+     */
+    private long startRevision(WatchOption watchOption) {
+        if (checkpointStore == null || watchOption.getRevision() != 0 || !watchOption.getCheckpoint().isPresent()) {
+            return watchOption.getRevision();
+        }
+        long revision = checkpointStore.getRevision(watchOption.getCheckpoint().get());
+        return revision > 0 ? revision + 1 : 0;
+    }
+
+    private PendingCreate newCreate(WatcherImpl watcher, long revision) {
+        WatchRequest request = optionToWatchCreateRequest(EtcdUtil.byteStringFromByteSequence(watcher.getKey()), watcher.getWatchOption(), revision);
+        return new PendingCreate(watcher, request);
+    }
+
+    /**
+     * send the create requests, the creates are queued and written atomically so the queue
+     * order is the order of the requests on the stream.
+     */
+    private void create(List<PendingCreate> creates) {
+        synchronized (this) {
+            if (!closed) {
+                ScheduledExecutorService timer = timer();
+                StreamObserver<WatchRequest> stream = getRequestStream();
+                for (PendingCreate pending : creates) {
+                    pending.timeout = timer.schedule(() -> onCreateTimeout(pending), pending.watcher.getWatchOption().getCreateTimeoutNanos(), TimeUnit.NANOSECONDS);
+                    this.pendingCreates.addLast(pending);
+                    stream.onNext(pending.request);
+                }
+                return;
             }
         }
+        for (PendingCreate pending : creates) {
+            failWatcher(pending.watcher, new IllegalStateException("watch client closed"));
+        }
+    }
 
-        WatchCancelRequest cancelRequest = WatchCancelRequest.newBuilder().setWatchId(id).build();
-        WatchRequest request = WatchRequest.newBuilder().setCancelRequest(cancelRequest).build();
+    /**
+     * write a request on the stream, gRPC streams must not be written concurrently.
+     *
+     * @return false if the client is closed, the request was not sent
+     */
+    private synchronized boolean send(WatchRequest request) {
+        if (closed) {
+            return false;
+        }
         getRequestStream().onNext(request);
-        return completableFuture;
+        return true;
+    }
+
+    /**
+     * abandon a create etcd did not answer in time: a new watch fails with a TimeoutException,
+     * a re-created watcher is handed to the resume scheduler again.
+     */
+    private void onCreateTimeout(PendingCreate pending) {
+        if (!pending.abandon()) {
+            return;
+        }
+        WatcherImpl watcher = pending.watcher;
+        if (watcher.createFuture.isDone()) {
+            LOGGER.warn("re-creating the watcher of key {} timed out, retrying", watcher.getKey().toStringUtf8());
+            if (!resumeScheduler.schedule(Collections.singletonList(watcher))) {
+                failWatcher(watcher, new IllegalStateException("watch client closed"));
+            }
+        } else {
+            failWatcher(watcher, new TimeoutException("watch create timed out"));
+        }
+    }
+
+    /**
+     * cancel a watcher without a watch id, its create future fails unless it was created.
+     */
+    private void failWatcher(WatcherImpl watcher, Throwable throwable) {
+        watcher.dispatcher.close();
+        synchronized (watcher) {
+            watcher.setCanceled(true);
+        }
+        watcher.completeCancel();
+        watcher.createFuture.completeExceptionally(throwable);
+    }
+
+    /**
+     * close the watch client: the stream is canceled, the watchers are canceled and the ones
+     * not created yet fail with an IllegalStateException, the resume scheduler and the timer
+     * are shut down. Does nothing if the client is closed already.
+     */
+    public void close() {
+        StreamObserver<WatchRequest> stream;
+        List<WatcherImpl> closing = new ArrayList<>();
+        List<CompletableFuture<Boolean>> canceled;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            stream = this.requestStream;
+            this.requestStream = null;
+            this.callStream = null;
+            closing.addAll(watchers.values());
+            this.watchers.clear();
+            canceled = new ArrayList<>(pendingCancelFutures.values());
+            this.pendingCancelFutures.clear();
+            for (PendingCreate pending : pendingCreates) {
+                if (pending.abandon()) {
+                    pending.timeout.cancel(false);
+                    closing.add(pending.watcher);
+                }
+            }
+            this.pendingCreates.clear();
+            if (stream != null) {
+                stream.onError(Status.CANCELLED.withDescription("watch client closed").asRuntimeException());
+            }
+        }
+        closing.addAll(resumeScheduler.close());
+        for (WatcherImpl watcher : closing) {
+            failWatcher(watcher, new IllegalStateException("watch client closed"));
+        }
+        for (CompletableFuture<Boolean> future : canceled) {
+            future.complete(Boolean.TRUE);
+        }
+        synchronized (this) {
+            if (timer != null) {
+                timer.shutdownNow();
+            }
+        }
+    }
+
+    private synchronized ScheduledExecutorService timer() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("jetcd-watch-timer-%d").setDaemon(true).build());
+        }
+        return timer;
     }
 
     /**
-     * empty the old request stream, watchers and resume the old watchers
+     * empty the old request stream, watchers and hand the old watchers to the resume scheduler,
+     * with the watchers whose create was not answered by the old stream
      * empty the pendingCancelFutures as there is no need to cancel, the old request stream has been dead
      */
-    private synchronized void resume() {
-        this.requestStream = null;
-        WatcherImpl[] resumeWatchers = (WatcherImpl[]) watchers.values().toArray();
-        this.watchers.clear();
-        for (CompletableFuture<Boolean> watcherCompletableFuture : pendingCancelFutures.values()) {
-            watcherCompletableFuture.complete(Boolean.TRUE);
+    private void resume() {
+        if (closed || channel.isShutdown()) {
+            // the stream failed with the channel, re-creating the watchers would fail forever
+            close();
+            return;
         }
-        this.pendingCancelFutures.clear();
-        resumeWatchers(resumeWatchers);
+        List<WatcherImpl> created;
+        List<WatcherImpl> creating = new ArrayList<>();
+        List<CompletableFuture<Boolean>> canceled;
+        synchronized (this) {
+            this.requestStream = null;
+            this.callStream = null;
+            created = new ArrayList<>(watchers.values());
+            this.watchers.clear();
+            canceled = new ArrayList<>(pendingCancelFutures.values());
+            this.pendingCancelFutures.clear();
+            for (PendingCreate pending : pendingCreates) {
+                if (pending.abandon()) {
+                    pending.timeout.cancel(false);
+                    creating.add(pending.watcher);
+                }
+            }
+            this.pendingCreates.clear();
+        }
+        for (CompletableFuture<Boolean> future : canceled) {
+            future.complete(Boolean.TRUE);
+        }
+        resumeWatchers(created, creating);
     }
 
     /**
@@ -109,16 +414,32 @@ public class EtcdWatchImpl implements EtcdWatch {
         if (this.requestStream == null) {
             synchronized (this) {
                 if (this.requestStream == null) {
-                    StreamObserver<WatchResponse> watchResponseStreamObserver = new StreamObserver<WatchResponse>() {
+                    StreamObserver<WatchResponse> watchResponseStreamObserver = new ClientResponseObserver<WatchRequest, WatchResponse>() {
+                        private ClientCallStreamObserver<WatchRequest> stream;
+
+                        @Override
+                        public void beforeStart(ClientCallStreamObserver<WatchRequest> requestStream) {
+                            requestStream.disableAutoInboundFlowControl();
+                            this.stream = requestStream;
+                        }
+
                         @Override
                         public void onNext(WatchResponse watchResponse) {
+                            long revision = watchResponse.getHeader().getRevision();
+                            if (revision > clusterRevision) {
+                                clusterRevision = revision;
+                            }
                             if (watchResponse.getCreated()) {
                                 processCreate(watchResponse);
+                            } else if (watchResponse.getCompactRevision() != 0) {
+                                // etcd cancels a compacted watcher, the cancel response reports it
+                                processCompacted(watchResponse);
                             } else if (watchResponse.getCanceled()) {
                                 processCanceled(watchResponse);
                             } else {
                                 processEvents(watchResponse);
                             }
+                            requestNext(stream);
                         }
 
                         @Override
@@ -131,16 +452,42 @@ public class EtcdWatchImpl implements EtcdWatch {
 
                         }
                     };
+                    this.pendingRequest.set(false);
                     this.requestStream = this.watchStub.watch(watchResponseStreamObserver);
+                    this.callStream = (ClientCallStreamObserver<WatchRequest>) this.requestStream;
                 }
             }
         }
         return this.requestStream;
     }
 
+    /**
+     * request the next response of the stream, unless a watcher is blocked, then the request
+     * is left pending until the last blocked watcher drains its queue.
+     */
+    private void requestNext(ClientCallStreamObserver<WatchRequest> stream) {
+        pendingRequest.set(true);
+        if (blockedWatchers.get() == 0 && pendingRequest.compareAndSet(true, false)) {
+            stream.request(1);
+        }
+    }
+
+    private void onWatcherBlocked(boolean blocked) {
+        if (blocked) {
+            blockedWatchers.incrementAndGet();
+            return;
+        }
+        ClientCallStreamObserver<WatchRequest> stream = this.callStream;
+        if (blockedWatchers.decrementAndGet() == 0 && stream != null && pendingRequest.compareAndSet(true, false)) {
+            stream.request(1);
+        }
+    }
+
     /**
      * Process create response from etcd server
-     * <p>If there is no pendingWatcher, ignore.
+     * <p>The response answers the oldest create of the stream, if there is none, ignore.
+     * <p>If the create was abandoned or the watcher was canceled in the meantime, cancel the
+     * new watcher.
      * <p>If cancel flag is true or CompactRevision not equal zero means the start revision
      * has been compacted out of the store, call onCreateFailed.
      * <p>If watchID = -1, complete future with WatchCreateException.
@@ -150,51 +497,93 @@ public class EtcdWatchImpl implements EtcdWatch {
      * @param response
      */
     private void processCreate(WatchResponse response) {
-        Pair<WatcherImpl, CompletableFuture<Watcher>> requestPair = pendingCreateWatchers.poll();
-        WatcherImpl watcher = requestPair.getKey();
-        if (response.getCreated()) {
-            if (response.getCanceled() || response.getCompactRevision() != 0) {
-                watcher.setCanceled(true);
-                requestPair.getValue().completeExceptionally(new WatchCreateException("the start revision has been compacted", apiToClientHeader(response.getHeader()), response.getCompactRevision()));
-                ;
+        PendingCreate pending;
+        synchronized (this) {
+            pending = this.pendingCreates.pollFirst();
+        }
+        if (pending == null) {
+            LOGGER.warn("ignored a create response without a pending create, watch id {}", response.getWatchId());
+            return;
+        }
+        boolean failed = response.getWatchId() == -1 || response.getCanceled() || response.getCompactRevision() != 0;
+        WatcherImpl watcher = pending.watcher;
+        if (!pending.complete()) {
+            if (!failed) {
+                cancelWatch(response.getWatchId());
             }
+            return;
+        }
+        pending.timeout.cancel(false);
 
-            if (response.getWatchId() == -1 && watcher.callback != null) {
-                requestPair.getValue().completeExceptionally(new WatchCreateException("create watcher failed", apiToClientHeader(response.getHeader()), response.getCompactRevision()));
-            } else {
-                this.watchers.put(watcher.getWatchID(), watcher);
-                watcher.setWatchID(response.getWatchId());
-                requestPair.getValue().complete(watcher);
+        if (response.getCanceled() || response.getCompactRevision() != 0) {
+            watcher.setCanceled(true);
+            if (response.getCompactRevision() != 0) {
+                watcher.removeCheckpoint();
+            }
+            watcher.createFuture.completeExceptionally(new WatchCreateException("the start revision has been compacted", apiToClientHeader(response.getHeader()), response.getCompactRevision()));
+            if (watcher.isResuming()) {
+                // nobody waits for the create of a re-created watcher, notify the callback
+                watcher.dispatcher.dispatch(response.getHeader(), response.getCompactRevision(), Collections.emptyList());
             }
+            return;
+        }
 
-            //note the header revision so that put following a current watcher disconnect will arrive
-            //on watcher channel after reconnect
-            synchronized (watcher) {
-                watcher.setLastRevision(response.getHeader().getRevision());
+        if (response.getWatchId() == -1) {
+            watcher.setCanceled(true);
+            watcher.createFuture.completeExceptionally(new WatchCreateException("create watcher failed", apiToClientHeader(response.getHeader()), response.getCompactRevision()));
+            return;
+        }
+
+        resumeScheduler.reset();
+        boolean canceled;
+        synchronized (watcher) {
+            // cancel() leaves a watcher without watch id to its create
+            canceled = watcher.isCanceled();
+            if (!canceled) {
+                watcher.setWatchID(response.getWatchId());
+                this.watchers.put(watcher.getWatchID(), watcher);
+                //note the header revision so that put following a current watcher disconnect will arrive
+                //on watcher channel after reconnect, unless events before it are still expected
+                long start = pending.request.getCreateRequest().getStartRevision();
+                if (watcher.getLastRevision() < 0 && start <= 0) {
+                    watcher.setLastRevision(response.getHeader().getRevision());
+                }
+                if (!watcher.isResuming()) {
+                    // the callback is up to the revision before the first event it may get
+                    watcher.createdRevision = start > 0 ? start - 1 : response.getHeader().getRevision();
+                }
+                watcher.progressNanos = System.nanoTime();
                 if (watcher.isResuming()) {
                     watcher.setResuming(false);
                 }
             }
         }
+        watcher.createFuture.complete(watcher);
+        if (canceled) {
+            cancelWatch(response.getWatchId()).whenComplete((result, throwable) -> watcher.completeCancel());
+        }
     }
 
     /**
      * Process subscribe watch events
      * <p>If the watch id is not in the watchers map, scan it in the pendingCancelFutures map
      * if exist, ignore, otherwise cancel it.
-     * <p>If the watcher exist, call the onWatch and set the last revision for resume
+     * <p>If the watcher exist, call the onWatch and set the last revision for resume, the
+     * client side filters of the watch option apply after the last revision is set
      *
      * @param watchResponse
      */
     private void processEvents(WatchResponse watchResponse) {
         WatcherImpl watcher = watchers.get(watchResponse.getWatchId());
         if (watcher != null) {
+            watcher.progressNanos = System.nanoTime();
             synchronized (watcher) {
                 if (watchResponse.getEventsCount() != 0) {
                     List<Event> events = watchResponse.getEventsList();
                     // if on resume process, filter processed events
                     if (watcher.isResuming()) {
                         long lastRevision = watcher.getLastRevision();
+                        events = new ArrayList<>(events);
                         events.removeIf((e) -> e.getKv().getModRevision() <= lastRevision);
                     }
                     watcher.setLastRevision(
@@ -202,34 +591,132 @@ public class EtcdWatchImpl implements EtcdWatch {
                                     .getEvents(watchResponse.getEventsCount() - 1)
                                     .getKv().getModRevision());
 
-                    if (watcher.callback != null) {
-                        watcher.callback.onWatch(apiToClientHeader(watchResponse.getHeader()), watchResponse.getCompactRevision(), apiToClientEvents(events));
+                    ResponseHeader header = watchResponse.getHeader();
+                    if (watcher.eventFilter != null) {
+                        events = watcher.eventFilter.apply(events);
+                        // a response filtered out entirely is dispatched without events like a
+                        // progress notification, so the delivered revision still moves
+                        if (events.isEmpty() && header.getRevision() < watcher.getLastRevision()) {
+                            header = header.toBuilder().setRevision(watcher.getLastRevision()).build();
+                        }
                     }
+                    watcher.dispatcher.dispatch(header, watchResponse.getCompactRevision(), events);
                 } else {
                     watcher.setLastRevision(watchResponse.getHeader().getRevision());
+                    watcher.dispatcher.dispatch(watchResponse.getHeader(), watchResponse.getCompactRevision(), Collections.emptyList());
                 }
             }
-        } else {
+        } else if (!this.pendingCancelFutures.containsKey(watchResponse.getWatchId())) {
             // if the watcher is not canceling, cancel it.
-            CompletableFuture<Boolean> completableFuture = this.pendingCancelFutures.get(watchResponse.getWatchId());
-            if (this.pendingCancelFutures.putIfAbsent(watcher.getWatchID(), completableFuture) == null) {
-                cancelWatch(watchResponse.getWatchId());
-            }
+            cancelWatch(watchResponse.getWatchId());
         }
     }
 
     /**
      * resume all the watchers
      *
-     * @param watchers
+     * @param created  the watchers created on the failed stream
+     * @param creating the watchers whose create was not answered
+     */
+    private void resumeWatchers(List<WatcherImpl> created, List<WatcherImpl> creating) {
+        for (WatcherImpl watcher : created) {
+            synchronized (watcher) {
+                watcher.setResuming(true);
+                watcher.setWatchID(-1);
+            }
+            watcher.dispatcher.dispatchResuming();
+        }
+        List<WatcherImpl> watchers = new ArrayList<>(created);
+        watchers.addAll(creating);
+        if (!resumeScheduler.schedule(watchers)) {
+            // closed meanwhile
+            for (WatcherImpl watcher : watchers) {
+                failWatcher(watcher, new IllegalStateException("watch client closed"));
+            }
+        }
+    }
+
+    /**
+     * re-create a watcher of the failed stream, called by the resume scheduler. A watcher
+     * which was never created watches from the revision of its option.
+     */
+    private void resumeWatcher(WatcherImpl watcher) {
+        long revision;
+        synchronized (watcher) {
+            if (watcher.isCanceled()) {
+                revision = -1;
+            } else if (watcher.getLastRevision() >= 0) {
+                revision = watcher.getLastRevision() + 1;
+            } else {
+                revision = watcher.getWatchOption().getRevision();
+            }
+        }
+        if (revision < 0) {
+            watcher.completeCancel();
+        } else {
+            recreate(watcher, revision);
+        }
+    }
+
+    /**
+     * get the number of watchers waiting to be re-created after a stream failure.
+     *
+     * @return the number of watchers waiting
+     */
+    public int getPendingResumes() {
+        return resumeScheduler.getPending();
+    }
+
+    /**
+     * re-create the watcher of a dropped dispatch queue from the revision of the first
+     * dropped event, the old watch is canceled.
+     *
+     * @param watcher  the watcher to re-create
+     * @param revision the revision to watch from
+     */
+    private void resync(WatcherImpl watcher, long revision) {
+        long oldWatchID = watcher.getWatchID();
+        if (this.watchers.remove(oldWatchID, watcher)) {
+            cancelWatch(oldWatchID);
+            recreate(watcher, revision);
+        }
+    }
+
+    /**
+     * send a create request for an existing watcher, the watcher keeps its callback and
+     * dispatch queue and gets a new watch id when created.
+     */
+    private void recreate(WatcherImpl watcher, long revision) {
+        synchronized (watcher) {
+            watcher.setResuming(true);
+            watcher.setLastRevision(revision - 1);
+            watcher.setWatchID(-1);
+        }
+        create(Collections.singletonList(newCreate(watcher, revision)));
+    }
+
+    /**
+     * Process the response of a watcher whose revision was compacted, etcd canceled the
+     * watcher. The watcher is dropped and canceled, the callback gets the compact revision.
+     *
+     * @param response
      */
-    private void resumeWatchers(WatcherImpl[] watchers) {
-        for (WatcherImpl watcher : watchers) {
-            if (watcher.callback != null) {
-                watcher.callback.onResuming();
+    private void processCompacted(WatchResponse response) {
+        processCanceled(response);
+        WatcherImpl watcher = watchers.remove(response.getWatchId());
+        if (watcher == null) {
+            return;
+        }
+        synchronized (watcher) {
+            watcher.setCanceled(true);
+            if (watcher.cancelFuture == null) {
+                // etcd no longer knows the watch id, a later cancel has nothing to wait for
+                watcher.cancelFuture = CompletableFuture.completedFuture(Boolean.TRUE);
             }
-            watch(watcher.getKey(), getResumeWatchOptionWithWatcher(watcher), watcher.callback);
         }
+        watcher.completeCancel();
+        watcher.removeCheckpoint();
+        watcher.dispatcher.dispatch(response.getHeader(), response.getCompactRevision(), Collections.emptyList());
     }
 
     /**
@@ -239,7 +726,9 @@ public class EtcdWatchImpl implements EtcdWatch {
      */
     private void processCanceled(WatchResponse response) {
         CompletableFuture<Boolean> cancelFuture = this.pendingCancelFutures.remove(response.getWatchId());
-        cancelFuture.complete(Boolean.TRUE);
+        if (cancelFuture != null) {
+            cancelFuture.complete(Boolean.TRUE);
+        }
     }
 
     /**
@@ -249,12 +738,12 @@ public class EtcdWatchImpl implements EtcdWatch {
      * @param option
      * @return
      */
-    private WatchRequest optionToWatchCreateRequest(ByteString key, WatchOption option) {
+    private WatchRequest optionToWatchCreateRequest(ByteString key, WatchOption option, long revision) {
         WatchCreateRequest.Builder builder = WatchCreateRequest.newBuilder()
                 .setKey(key)
                 .setPrevKv(option.isPrevKV())
-                .setProgressNotify(option.isProgressNotify())
-                .setStartRevision(option.getRevision());
+                .setProgressNotify(progressNotify || option.isProgressNotify())
+                .setStartRevision(revision);
 
         if (option.getEndKey().isPresent()) {
             builder.setRangeEnd(EtcdUtil.byteStringFromByteSequence(option.getEndKey().get()));
@@ -272,23 +761,141 @@ public class EtcdWatchImpl implements EtcdWatch {
     }
 
     /**
-     * build new WatchOption from dead to resume it in new requestStream
-     *
-     * @param watcher
-     * @return
+     * Records the revision of the responses the callback handled, so a restarted watch does
+     * not skip the events which were received but not handled yet.
      */
-    private WatchOption getResumeWatchOptionWithWatcher(Watcher watcher) {
-        WatchOption oldOption = watcher.getWatchOption();
-        return WatchOption.newBuilder().withNoDelete(oldOption.isNoDelete())
-                .withNoPut(oldOption.isNoPut())
-                .withPrevKV(oldOption.isPrevKV())
-                .withProgressNotify(oldOption.isProgressNotify())
-                .withRange(oldOption.getEndKey().get())
-                .withRevision(watcher.getLastRevision() + 1)
-                .withResuming(true)
-                .build();
+    private final class CheckpointCallback implements WatchCallback {
+
+        private final WatchCallback callback;
+        private final String        checkpoint;
+
+        CheckpointCallback(WatchCallback callback, String checkpoint) {
+            this.callback = callback;
+            this.checkpoint = checkpoint;
+        }
+
+        @Override
+        public void onWatch(EtcdHeader header, long compactRevision, List<WatchEvent> events) {
+            callback.onWatch(header, compactRevision, events);
+            if (compactRevision != 0) {
+                return;
+            }
+            long revision = 0;
+            for (WatchEvent event : events) {
+                revision = Math.max(revision, modRevisionOf(event));
+            }
+            if (events.isEmpty() && header != null) {
+                revision = header.getRevision();
+            }
+            if (revision > 0) {
+                checkpointStore.update(checkpoint, revision);
+            }
+        }
+
+        @Override
+        public void onResuming() {
+            callback.onResuming();
+        }
     }
 
+    /**
+     * The subscription of a publisher subscriber, the callback of its watcher passing the
+     * events one by one. The error is signaled through the dispatcher of the watcher, so it
+     * is serial with the events whichever thread fails the subscription.
+     */
+    private final class PublisherSubscription implements WatchCallback, WatchPublisher.Subscription {
+
+        private final WatchPublisher.Subscriber subscriber;
+        private WatcherImpl                     watcher;
+        private final AtomicBoolean             done = new AtomicBoolean();
+
+        PublisherSubscription(WatchPublisher.Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (done.get()) {
+                return;
+            }
+            if (n <= 0) {
+                fail(new IllegalArgumentException("the number of requested events should be greater than zero: n=" + n));
+                return;
+            }
+            watcher.dispatcher.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            if (done.compareAndSet(false, true)) {
+                watcher.cancel();
+            }
+        }
+
+        void fail(Throwable throwable) {
+            if (done.compareAndSet(false, true)) {
+                watcher.dispatcher.terminate(() -> subscriber.onError(throwable));
+                watcher.cancel();
+            }
+        }
+
+        @Override
+        public void onWatch(EtcdHeader header, long compactRevision, List<WatchEvent> events) {
+            if (compactRevision != 0) {
+                fail(new WatchCreateException("the start revision has been compacted", header, compactRevision));
+                return;
+            }
+            for (WatchEvent event : events) {
+                if (done.get()) {
+                    return;
+                }
+                subscriber.onNext(event);
+            }
+        }
+
+        @Override
+        public void onResuming() {
+        }
+    }
+
+    /**
+     * A create request sent on the stream, waiting for its response. The response, the create
+     * timeout and the stream failure race to settle it, only the first one acts.
+     */
+    private static final class PendingCreate {
+
+        private final WatcherImpl  watcher;
+        private final WatchRequest request;
+        private boolean            settled;
+        private ScheduledFuture<?> timeout;
+
+        PendingCreate(WatcherImpl watcher, WatchRequest request) {
+            this.watcher = watcher;
+            this.request = request;
+        }
+
+        /**
+         * settle with the response.
+         *
+         * @return false if the create was abandoned already
+         */
+        synchronized boolean complete() {
+            if (settled) {
+                return false;
+            }
+            settled = true;
+            return true;
+        }
+
+        /**
+         * settle without the response, the late response will be ignored.
+         *
+         * @return false if the create was settled already
+         */
+        synchronized boolean abandon() {
+            return complete();
+        }
+    }
 
     /**
      * Watcher class hold watcher information.
@@ -299,23 +906,139 @@ public class EtcdWatchImpl implements EtcdWatch {
         private final ByteSequence key;
 
         public final WatchCallback callback;
-        private long watchID;
+        private final WatchDispatcher dispatcher;
+
+        /**
+         * the client side filters of the watch option, null if there is none
+         */
+        private final WatchEventFilter eventFilter;
+        /**
+         * the checkpoint name, null if the watch is not checkpointed
+         */
+        private final String checkpoint;
+
+        /**
+         * completed when the watcher is created the first time
+         */
+        private final CompletableFuture<Watcher> createFuture = new CompletableFuture<>();
+
+        private CompletableFuture<Boolean> cancelFuture;
+
+        /**
+         * the watch id of the stream, -1 while the watcher is being created
+         */
+        private long watchID = -1;
 
         private long lastRevision = -1;
         private boolean canceled = false;
 
         private boolean resuming;
 
+        /**
+         * whether the watcher waits in the resume scheduler, guarded by the scheduler
+         */
+        volatile boolean resumeQueued;
+
+        /**
+         * the revision the callback is up to when the watcher was created
+         */
+        volatile long createdRevision;
+
+        /**
+         * when etcd last sent a response for the watcher
+         */
+        volatile long progressNanos = System.nanoTime();
+
         private WatcherImpl(ByteSequence key, WatchOption watchOption, WatchCallback callback) {
+            this(key, watchOption, callback, Long.MAX_VALUE);
+        }
+
+        /**
+         * @param demand the number of events the callback may get until more are requested
+         */
+        private WatcherImpl(ByteSequence key, WatchOption watchOption, WatchCallback callback, long demand) {
             this.key = key;
             this.watchOption = watchOption;
             this.callback = callback;
             this.resuming = watchOption.isResuming();
+            this.eventFilter = WatchEventFilter.of(watchOption);
+            this.checkpoint = checkpointStore != null ? watchOption.getCheckpoint().orElse(null) : null;
+            WatchCallback dispatched = checkpoint != null ? new CheckpointCallback(callback, checkpoint) : callback;
+            this.dispatcher = new WatchDispatcher(dispatched, watchOption.getDispatchExecutor().orElse(callExecutor), watchOption,
+                    new WatchDispatcher.Listener() {
+                        @Override
+                        public void onBlocked(boolean blocked) {
+                            onWatcherBlocked(blocked);
+                        }
+
+                        @Override
+                        public void onResync(long revision) {
+                            resync(WatcherImpl.this, revision);
+                        }
+                    }, demand, watchOption.getCoalesceWindowNanos() > 0 ? timer() : null);
         }
 
+        /**
+         * cancel the watcher, a watcher without watch id is canceled when its create is
+         * answered, or skipped by the resume scheduler.
+         */
         @Override
         public CompletableFuture<Boolean> cancel() {
-            return cancelWatch(watchID);
+            dispatcher.close();
+            CompletableFuture<Boolean> future;
+            long id;
+            synchronized (this) {
+                if (cancelFuture != null) {
+                    return cancelFuture;
+                }
+                setCanceled(true);
+                future = cancelFuture = new CompletableFuture<>();
+                id = watchID;
+            }
+            if (resumeQueued) {
+                future.complete(Boolean.TRUE);
+            } else if (id >= 0) {
+                cancelWatch(id).whenComplete((canceled, throwable) -> future.complete(Boolean.TRUE));
+            }
+            return future;
+        }
+
+        private void completeCancel() {
+            CompletableFuture<Boolean> future;
+            synchronized (this) {
+                future = cancelFuture;
+            }
+            if (future != null) {
+                future.complete(Boolean.TRUE);
+            }
+        }
+
+        @Override
+        public int getQueueDepth() {
+            return dispatcher.getQueueDepth();
+        }
+
+        @Override
+        public long getDispatchLagNanos() {
+            return dispatcher.getDispatchLagNanos();
+        }
+
+        @Override
+        public long getDroppedEvents() {
+            return dispatcher.getDroppedEvents();
+        }
+
+        @Override
+        public long getDeliveredRevision() {
+            return Math.max(createdRevision, dispatcher.getDeliveredRevision());
+        }
+
+        @Override
+        public WatchHealth getHealth() {
+            long delivered = getDeliveredRevision();
+            return new WatchHealth(Math.max(clusterRevision, delivered), delivered, dispatcher.getDispatchLagNanos(),
+                    System.nanoTime() - progressNanos, dispatcher.getQueueDepth(), dispatcher.getDroppedEvents(),
+                    dispatcher.isBlocked(), isResuming(), isCanceled());
         }
 
         /**
@@ -327,6 +1050,15 @@ public class EtcdWatchImpl implements EtcdWatch {
             this.lastRevision = lastRevision;
         }
 
+        /**
+         * forget the recorded revision, it was compacted.
+         */
+        private void removeCheckpoint() {
+            if (checkpoint != null) {
+                checkpointStore.remove(checkpoint);
+            }
+        }
+
         public boolean isCanceled() {
             return canceled;
         }
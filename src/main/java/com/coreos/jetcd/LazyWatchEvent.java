@@ -0,0 +1,48 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.api.Event;
+import com.coreos.jetcd.data.KeyValue;
+import com.coreos.jetcd.watch.WatchEvent;
+
+import static com.coreos.jetcd.EtcdUtil.apiToClientKV;
+
+/**
+ * Watch event over the API event, the key value and the previous key value are converted
+ * the first time they are read, a consumer looking at the event type only converts nothing.
+ * <p>The ByteStrings of the message are wrapped without copy, see {@link EtcdUtil}.
+ */
+final class LazyWatchEvent extends WatchEvent {
+
+    private final Event event;
+
+    private volatile KeyValue keyValue;
+
+    private volatile KeyValue prevKV;
+
+    LazyWatchEvent(Event event, EventType eventType) {
+        super(null, null, eventType);
+        this.event = event;
+    }
+
+    Event getEvent() {
+        return event;
+    }
+
+    @Override
+    public KeyValue getKeyValue() {
+        KeyValue result = keyValue;
+        if (result == null) {
+            keyValue = result = apiToClientKV(event.getKv());
+        }
+        return result;
+    }
+
+    @Override
+    public KeyValue getPrevKV() {
+        KeyValue result = prevKV;
+        if (result == null) {
+            prevKV = result = apiToClientKV(event.getPrevKv());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,266 @@
+package com.coreos.jetcd;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.coreos.jetcd.api.LeaseKeepAliveResponse;
+import com.coreos.jetcd.lease.Lease;
+import com.coreos.jetcd.options.LeasePoolOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Leases granted ahead of use.
+ * <p>The pool keeps up to its size of granted leases idle and kept alive by the lease client,
+ * so acquiring a lease does not wait for the grant round trip. Every acquired lease is
+ * replaced by a new grant in the background, the missing leases are granted together
+ * without waiting for each other. When the pool is empty a lease is granted on acquire.
+ * A failed grant stops the refill for the retry delay of the option.
+ * <p>An acquired lease belongs to the caller and stays kept alive: it should be released with
+ * {@link EtcdLease#cancelKeepAlive(Lease)}, and its handler may be set with
+ * {@link EtcdLease#setEtcdLeaseHandler(Lease, EtcdLease.EtcdLeaseHandler)}.
+ * <p>Closing the pool revokes the idle leases.
+ */
+public class LeasePool implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LeasePool.class);
+
+    private final EtcdLease                leaseClient;
+    private final LeasePoolOption          option;
+    private final ScheduledExecutorService executor;
+
+    private final ArrayDeque<Lease> idle = new ArrayDeque<>();
+    private final LeaseHandler      handler = new LeaseHandler();
+
+    /**
+     * the grants in flight, counted with the idle leases against the size
+     */
+    private int     pending;
+    /**
+     * the pool is not refilled during the retry delay after a failed grant
+     */
+    private boolean backingOff;
+    private boolean started;
+    private boolean closed;
+
+    public LeasePool(EtcdLease leaseClient, LeasePoolOption option) {
+        this.leaseClient = checkNotNull(leaseClient, "leaseClient should not be null");
+        this.option = checkNotNull(option, "option should not be null");
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("jetcd-lease-pool-%d").setDaemon(true).build());
+    }
+
+    /**
+     * fill the pool, the keep alive service of the lease client is started if it is not running.
+     *
+     * @throws IllegalStateException if the pool was started already
+     */
+    public void start() {
+        synchronized (this) {
+            checkState(!started, "lease pool already started");
+            checkState(!closed, "lease pool closed");
+            started = true;
+        }
+        if (!leaseClient.isKeepAliveServiceRunning()) {
+            try {
+                leaseClient.startKeepAliveService();
+            } catch (IllegalStateException e) {
+                // started concurrently
+            }
+        }
+        fill();
+    }
+
+    /**
+     * take an idle lease, or grant one if the pool is empty, the pool is refilled in the background.
+     *
+     * @return the lease, kept alive
+     * @throws IllegalStateException if the pool is not started or closed
+     */
+    public CompletableFuture<Lease> acquire() {
+        Lease lease;
+        synchronized (this) {
+            checkState(started, "lease pool not started");
+            checkState(!closed, "lease pool closed");
+            lease = idle.poll();
+        }
+        fill();
+        if (lease != null) {
+            return CompletableFuture.completedFuture(lease);
+        }
+        CompletableFuture<Lease> future = new CompletableFuture<>();
+        leaseClient.grant(option.getTtl()).whenComplete((granted, throwable) -> {
+            if (throwable == null) {
+                try {
+                    leaseClient.keepAlive(granted, null);
+                } catch (IllegalStateException e) {
+                    // the lease is not kept alive, do not leave it to expire
+                    leaseClient.revoke(granted);
+                    throwable = e;
+                }
+            }
+            if (throwable != null) {
+                future.completeExceptionally(throwable);
+            } else {
+                future.complete(granted);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * get the number of leases ready to be acquired.
+     *
+     * @return the idle leases
+     */
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * get the number of grants in flight.
+     *
+     * @return the pending grants
+     */
+    public synchronized int getPendingCount() {
+        return pending;
+    }
+
+    /**
+     * revoke the idle leases, the acquired leases are not changed.
+     */
+    @Override
+    public void close() {
+        List<Lease> leases;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            leases = new ArrayList<>(idle);
+            idle.clear();
+        }
+        executor.shutdown();
+        for (Lease lease : leases) {
+            release(lease);
+        }
+    }
+
+    /**
+     * grant the leases missing from the pool, unless a grant failed recently.
+     */
+    private void fill() {
+        int missing;
+        synchronized (this) {
+            if (closed || backingOff) {
+                return;
+            }
+            missing = option.getSize() - idle.size() - pending;
+            if (missing <= 0) {
+                return;
+            }
+            pending += missing;
+        }
+        for (int i = 0; i < missing; i++) {
+            leaseClient.grant(option.getTtl()).whenComplete((lease, throwable) -> {
+                if (throwable == null) {
+                    try {
+                        leaseClient.keepAlive(lease, handler);
+                    } catch (IllegalStateException e) {
+                        leaseClient.revoke(lease);
+                        throwable = e;
+                    }
+                }
+                if (throwable != null) {
+                    onGrantFailed(throwable);
+                    return;
+                }
+                boolean added;
+                synchronized (this) {
+                    pending--;
+                    added = !closed && idle.add(lease);
+                }
+                if (!added) {
+                    release(lease);
+                }
+            });
+        }
+    }
+
+    private void onGrantFailed(Throwable throwable) {
+        boolean retry;
+        synchronized (this) {
+            pending--;
+            retry = !backingOff;
+            backingOff = true;
+        }
+        // the grants in flight fail together, only the first one schedules the refill
+        if (retry) {
+            LOGGER.warn("failed to grant a pooled lease, retrying", throwable);
+            schedule(() -> {
+                synchronized (this) {
+                    backingOff = false;
+                }
+                fill();
+            }, option.getRetryDelayNanos());
+        }
+    }
+
+    private void release(Lease lease) {
+        try {
+            leaseClient.cancelKeepAlive(lease);
+        } catch (Exception e) {
+            // the lease expired already, or the keep alive service was closed
+            leaseClient.revoke(lease);
+        }
+    }
+
+    private void schedule(Runnable task, long delayNanos) {
+        try {
+            executor.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // the pool was closed
+        }
+    }
+
+    /**
+     * Replaces an idle lease when it expires, the handler is left on the acquired leases
+     * until the caller sets its own.
+     */
+    private final class LeaseHandler implements EtcdLease.EtcdLeaseHandler {
+
+        @Override
+        public void onKeepAliveRespond(LeaseKeepAliveResponse keepAliveResponse) {
+        }
+
+        @Override
+        public void onLeaseExpired(long leaseId) {
+            boolean removed;
+            synchronized (LeasePool.this) {
+                removed = idle.removeIf(lease -> lease.getLeaseID() == leaseId);
+            }
+            if (removed) {
+                LOGGER.warn("pooled lease {} expired, granting a new one", leaseId);
+                schedule(LeasePool.this::fill, 0);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // the lease client reconnects its keep alive stream
+        }
+    }
+}
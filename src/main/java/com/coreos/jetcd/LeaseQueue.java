@@ -0,0 +1,148 @@
+package com.coreos.jetcd;
+
+import java.util.Arrays;
+
+/**
+ * Indexed binary min-heap of lease holders ordered by one of their {@link System#nanoTime()}
+ * timestamps, the next keep alive or the dead line.
+ * <p>Each holder records its position in the heap, so a holder whose timestamp changed is
+ * moved, and a removed holder is taken out, in O(log n) without searching the heap.
+ * <p>This class is not thread safe, the lease client guards its queues with one lock.
+ */
+final class LeaseQueue {
+
+    enum Key {
+        KEEP_ALIVE, DEAD_LINE
+    }
+
+    private final Key                       key;
+    private EtcdLeaseImpl.LeaseHolder[]     heap = new EtcdLeaseImpl.LeaseHolder[16];
+    private int                             size;
+
+    LeaseQueue(Key key) {
+        this.key = key;
+    }
+
+    /**
+     * add the holder, or move it if it is queued already and its timestamp was changed.
+     */
+    void update(EtcdLeaseImpl.LeaseHolder holder) {
+        int index = indexOf(holder);
+        if (index < 0) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            heap[size] = holder;
+            setIndex(holder, size);
+            siftUp(size++);
+        } else {
+            siftDown(siftUp(index));
+        }
+    }
+
+    /**
+     * remove the holder if it is queued.
+     */
+    void remove(EtcdLeaseImpl.LeaseHolder holder) {
+        int index = indexOf(holder);
+        if (index < 0) {
+            return;
+        }
+        setIndex(holder, -1);
+        EtcdLeaseImpl.LeaseHolder last = heap[--size];
+        heap[size] = null;
+        if (index != size) {
+            heap[index] = last;
+            setIndex(last, index);
+            siftDown(siftUp(index));
+        }
+    }
+
+    /**
+     * get the holder with the earliest timestamp without removing it.
+     *
+     * @return the earliest holder, null if the queue is empty
+     */
+    EtcdLeaseImpl.LeaseHolder peek() {
+        return size == 0 ? null : heap[0];
+    }
+
+    /**
+     * get the queued holders, in no particular order.
+     */
+    EtcdLeaseImpl.LeaseHolder[] toArray() {
+        return Arrays.copyOf(heap, size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            setIndex(heap[i], -1);
+            heap[i] = null;
+        }
+        size = 0;
+    }
+
+    private int siftUp(int index) {
+        EtcdLeaseImpl.LeaseHolder holder = heap[index];
+        long time = timeOf(holder);
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (timeOf(heap[parent]) - time <= 0) {
+                break;
+            }
+            move(parent, index);
+            index = parent;
+        }
+        heap[index] = holder;
+        setIndex(holder, index);
+        return index;
+    }
+
+    private void siftDown(int index) {
+        EtcdLeaseImpl.LeaseHolder holder = heap[index];
+        long time = timeOf(holder);
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && timeOf(heap[right]) - timeOf(heap[child]) < 0) {
+                child = right;
+            }
+            if (time - timeOf(heap[child]) <= 0) {
+                break;
+            }
+            move(child, index);
+            index = child;
+        }
+        heap[index] = holder;
+        setIndex(holder, index);
+    }
+
+    private void move(int from, int to) {
+        heap[to] = heap[from];
+        setIndex(heap[to], to);
+    }
+
+    /**
+     * nanoTime values may overflow, they are compared by their difference.
+     */
+    private long timeOf(EtcdLeaseImpl.LeaseHolder holder) {
+        return key == Key.KEEP_ALIVE ? holder.getNextKeepAlive() : holder.getDeadLine();
+    }
+
+    private int indexOf(EtcdLeaseImpl.LeaseHolder holder) {
+        return key == Key.KEEP_ALIVE ? holder.keepAliveIndex : holder.deadLineIndex;
+    }
+
+    private void setIndex(EtcdLeaseImpl.LeaseHolder holder, int index) {
+        if (key == Key.KEEP_ALIVE) {
+            holder.keepAliveIndex = index;
+        } else {
+            holder.deadLineIndex = index;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.coreos.jetcd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent map from primitive long keys to values, so lease ids are not boxed on lookup.
+ * <p>The map is split into segments by the hash of the key, each segment is an open addressing
+ * table with linear probing guarded by its own lock. A slot is empty when its value is null,
+ * so every long is a valid key and null values are not allowed.
+ * <p>Lookups, the common operation on the keep alive response path, take no lock: they probe
+ * under an optimistic read stamp and only fall back to the read lock if a write overlapped.
+ */
+final class LongMap<V> {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment<V>[] segments;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    LongMap() {
+        segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>();
+        }
+    }
+
+    V get(long key) {
+        long hash = hash(key);
+        return segment(hash).get(key, hash);
+    }
+
+    boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * put the value, replacing the value of the key.
+     *
+     * @return the previous value, null if none
+     */
+    V put(long key, V value) {
+        long hash = hash(key);
+        return segment(hash).put(key, hash, value, false);
+    }
+
+    /**
+     * put the value unless the key has a value already.
+     *
+     * @return the current value, null if the value was put
+     */
+    V putIfAbsent(long key, V value) {
+        long hash = hash(key);
+        return segment(hash).put(key, hash, value, true);
+    }
+
+    /**
+     * remove the key.
+     *
+     * @return the removed value, null if none
+     */
+    V remove(long key) {
+        long hash = hash(key);
+        return segment(hash).remove(key, hash);
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * copy the values, each segment is copied under its lock so the copy is not atomic.
+     */
+    List<V> values() {
+        List<V> values = new ArrayList<>();
+        for (Segment<V> segment : segments) {
+            segment.copyValues(values);
+        }
+        return values;
+    }
+
+    /**
+     * remove every key.
+     *
+     * @return the removed values
+     */
+    List<V> drain() {
+        List<V> values = new ArrayList<>();
+        for (Segment<V> segment : segments) {
+            segment.drain(values);
+        }
+        return values;
+    }
+
+    private Segment<V> segment(long hash) {
+        return segments[(int) (hash >>> 60)];
+    }
+
+    /**
+     * the finalizer of murmur3, lease ids are not spread evenly in their low bits.
+     */
+    private static long hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static final class Segment<V> {
+
+        private final StampedLock lock   = new StampedLock();
+        private long[]            keys   = new long[8];
+        private Object[]          values = new Object[8];
+        private int               size;
+
+        @SuppressWarnings("unchecked")
+        V get(long key, long hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                Object value = probe(keys, values, key, hash);
+                if (lock.validate(stamp)) {
+                    return (V) value;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return (V) probe(keys, values, key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * find the value of the key. The tables may be changed meanwhile by a write under an
+         * optimistic stamp, so the probe stays within both tables and their length.
+         */
+        private static Object probe(long[] keys, Object[] values, long key, long hash) {
+            int length = Math.min(keys.length, values.length);
+            int mask = length - 1;
+            int i = (int) hash & mask;
+            for (int n = 0; n < length; n++, i = (i + 1) & mask) {
+                Object value = values[i];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[i] == key) {
+                    return value;
+                }
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        V put(long key, long hash, V value, boolean onlyIfAbsent) {
+            if (value == null) {
+                throw new NullPointerException("value should not be null");
+            }
+            long stamp = lock.writeLock();
+            try {
+                int mask = keys.length - 1;
+                int i = (int) hash & mask;
+                for (; values[i] != null; i = (i + 1) & mask) {
+                    if (keys[i] == key) {
+                        V previous = (V) values[i];
+                        if (!onlyIfAbsent) {
+                            values[i] = value;
+                        }
+                        return previous;
+                    }
+                }
+                keys[i] = key;
+                values[i] = value;
+                // keep at most half of the slots used so the probes stay short
+                if (++size * 2 > keys.length) {
+                    resize();
+                }
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V remove(long key, long hash) {
+            long stamp = lock.writeLock();
+            try {
+                int mask = keys.length - 1;
+                int i = (int) hash & mask;
+                for (; values[i] != null; i = (i + 1) & mask) {
+                    if (keys[i] == key) {
+                        V removed = (V) values[i];
+                        shiftBack(i);
+                        size--;
+                        return removed;
+                    }
+                }
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void copyValues(List<V> to) {
+            long stamp = lock.readLock();
+            try {
+                addValues(to);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void drain(List<V> to) {
+            long stamp = lock.writeLock();
+            try {
+                addValues(to);
+                keys = new long[8];
+                values = new Object[8];
+                size = 0;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void addValues(List<V> to) {
+            for (Object value : values) {
+                if (value != null) {
+                    to.add((V) value);
+                }
+            }
+        }
+
+        /**
+         * empty the slot and move back the following entries of its probe run, which keeps
+         * the table without tombstones.
+         */
+        private void shiftBack(int free) {
+            int mask = keys.length - 1;
+            for (int i = (free + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+                int home = (int) hash(keys[i]) & mask;
+                // the entry may move to the free slot if its home is not between the free slot and it
+                if (((i - home) & mask) >= ((i - free) & mask)) {
+                    keys[free] = keys[i];
+                    values[free] = values[i];
+                    free = i;
+                }
+            }
+            values[free] = null;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Object[oldValues.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldValues[j] != null) {
+                    int i = (int) hash(oldKeys[j]) & mask;
+                    while (values[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+    }
+}
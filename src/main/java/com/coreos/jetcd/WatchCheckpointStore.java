@@ -0,0 +1,236 @@
+package com.coreos.jetcd;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Records the last revision of named watches in a memory-mapped file, so a restarted client
+ * resumes its watches after the recorded revision instead of reloading the whole prefix.
+ * <p>The file has a fixed number of slots, each holding the name of a watch and its last
+ * revision. A revision update is a write to the mapping, the operating system writes it back
+ * to the file even if the process dies, the mapping is forced to the disk periodically to
+ * survive a crash of the host as well. A restarted watch may receive again the events after
+ * the last forced revision, the callbacks should be idempotent.
+ * <p>A watch uses the store when its option has a
+ * {@link com.coreos.jetcd.options.WatchOption.Builder#withCheckpoint(String) checkpoint name}
+ * and the client was built with the store. The checkpoint of a compacted watch is removed,
+ * the application reloads its data and watches from the revision it read.
+ */
+public final class WatchCheckpointStore implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WatchCheckpointStore.class);
+
+    private static final int MAGIC       = 0x6a657463;
+    private static final int VERSION     = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE   = 128;
+
+    /**
+     * the longest name, in UTF-8 bytes, a slot holds the revision and the name length first
+     */
+    public static final int MAX_NAME_LENGTH = SLOT_SIZE - 8 - 2;
+
+    private final FileChannel              channel;
+    private final MappedByteBuffer         buffer;
+    private final Map<String, Integer>     slots = new HashMap<>();
+    private final Deque<Integer>           free  = new ArrayDeque<>();
+    private final ScheduledExecutorService forcer;
+
+    private boolean dirty;
+    private boolean full;
+    private boolean closed;
+
+    private WatchCheckpointStore(FileChannel channel, int capacity, long forceIntervalNanos) throws IOException {
+        this.channel = channel;
+        boolean created = channel.size() == 0;
+        if (!created) {
+            capacity = (int) ((channel.size() - HEADER_SIZE) / SLOT_SIZE);
+        }
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+        if (created) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, capacity);
+            buffer.force();
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != capacity) {
+            throw new IOException("not a watch checkpoint file");
+        }
+        load(capacity);
+        this.forcer = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("jetcd-watch-checkpoint-%d").setDaemon(true).build());
+        forcer.scheduleWithFixedDelay(this::force, forceIntervalNanos, forceIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * open or create a store of 1024 watches, forced to the disk every second.
+     *
+     * @param file the checkpoint file
+     * @return the store
+     * @throws IOException if the file cannot be mapped or is not a checkpoint file
+     */
+    public static WatchCheckpointStore open(Path file) throws IOException {
+        return open(file, 1024, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * open or create a store, an existing file keeps its capacity.
+     *
+     * @param file          the checkpoint file
+     * @param capacity      the number of watches of a new file
+     * @param forceInterval how often the updates are forced to the disk
+     * @param unit          the unit of the interval
+     * @return the store
+     * @throws IOException if the file cannot be mapped or is not a checkpoint file
+     */
+    public static WatchCheckpointStore open(Path file, int capacity, long forceInterval, TimeUnit unit) throws IOException {
+        checkNotNull(file, "file should not be null");
+        checkArgument(capacity > 0, "capacity should be greater than zero: capacity=%s", capacity);
+        checkArgument(forceInterval > 0, "forceInterval should be greater than zero: forceInterval=%s", forceInterval);
+        checkNotNull(unit, "unit should not be null");
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new WatchCheckpointStore(channel, capacity, unit.toNanos(forceInterval));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * get the last recorded revision of a watch.
+     *
+     * @param name the checkpoint name
+     * @return the revision, 0 if the watch has no checkpoint
+     */
+    public synchronized long getRevision(String name) {
+        Integer slot = slots.get(name);
+        return slot == null ? 0 : buffer.getLong(offset(slot));
+    }
+
+    /**
+     * record the last revision of a watch, ignored if the store is full or closed.
+     *
+     * @param name     the checkpoint name
+     * @param revision the last revision the watch received
+     */
+    public synchronized void update(String name, long revision) {
+        if (closed) {
+            return;
+        }
+        Integer slot = slots.get(name);
+        if (slot != null) {
+            buffer.putLong(offset(slot), revision);
+            dirty = true;
+        } else if (allocate(name, revision)) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * remove the checkpoint of a watch, its next watch starts from the revision of its option.
+     *
+     * @param name the checkpoint name
+     */
+    public synchronized void remove(String name) {
+        Integer slot = slots.remove(name);
+        if (slot == null || closed) {
+            return;
+        }
+        buffer.putShort(offset(slot) + 8, (short) 0);
+        free.addFirst(slot);
+        full = false;
+        dirty = true;
+    }
+
+    /**
+     * force the recorded revisions to the disk.
+     */
+    public synchronized void force() {
+        if (closed || !dirty) {
+            return;
+        }
+        dirty = false;
+        buffer.force();
+    }
+
+    /**
+     * force the revisions and close the file, later updates are ignored.
+     */
+    @Override
+    public void close() throws IOException {
+        forcer.shutdown();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            force();
+            closed = true;
+        }
+        channel.close();
+    }
+
+    private void load(int capacity) {
+        for (int slot = 0; slot < capacity; slot++) {
+            int offset = offset(slot);
+            int length = buffer.getShort(offset + 8);
+            if (length <= 0 || length > MAX_NAME_LENGTH) {
+                free.addLast(slot);
+                continue;
+            }
+            byte[] name = new byte[length];
+            for (int i = 0; i < length; i++) {
+                name[i] = buffer.get(offset + 10 + i);
+            }
+            slots.put(new String(name, StandardCharsets.UTF_8), slot);
+        }
+    }
+
+    private boolean allocate(String name, long revision) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length == 0 || bytes.length > MAX_NAME_LENGTH) {
+            LOGGER.warn("watch checkpoint name {} is longer than {} bytes, it is not recorded", name, MAX_NAME_LENGTH);
+            return false;
+        }
+        Integer slot = free.pollFirst();
+        if (slot == null) {
+            if (!full) {
+                full = true;
+                LOGGER.warn("watch checkpoint store is full, {} is not recorded", name);
+            }
+            return false;
+        }
+        int offset = offset(slot);
+        buffer.putLong(offset, revision);
+        for (int i = 0; i < bytes.length; i++) {
+            buffer.put(offset + 10 + i, bytes[i]);
+        }
+        // the length last, a slot is only used once its name is complete
+        buffer.putShort(offset + 8, (short) bytes.length);
+        slots.put(name, slot);
+        return true;
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+}
@@ -0,0 +1,511 @@
+package com.coreos.jetcd;
+
+import com.google.common.collect.Iterables;
+import com.google.protobuf.ByteString;
+
+import com.coreos.jetcd.api.Event;
+import com.coreos.jetcd.api.ResponseHeader;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.watch.WatchOverflowPolicy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.coreos.jetcd.EtcdUtil.apiToClientEvents;
+import static com.coreos.jetcd.EtcdUtil.apiToClientHeader;
+
+/**
+ * Delivers the responses of one watcher to its callback on an executor, so a slow callback
+ * does not stall the gRPC transport thread shared by all the watchers of a stream.
+ * <p>Responses are queued in order and drained by at most one task at a time, so the callback
+ * is never called concurrently. The queue is bounded by the number of queued events, the
+ * overflow is handled by the {@link WatchOverflowPolicy} of the watch option.
+ * <p>With a coalesce window, the events received within the window are held and merged to
+ * the latest event of each key, the callback gets them in one call when the window closes.
+ * <p>A dispatcher created with a demand passes no more events to the callback than were
+ * {@link #request(long) requested}, a response is split if needed. Responses without events
+ * are passed regardless of the demand.
+ * <p>A {@link #terminate(Runnable) terminal signal} is run by the drain as well, so it is
+ * never concurrent with the callback.
+ */
+final class WatchDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WatchDispatcher.class);
+
+    /**
+     * Notified of the overflow handling which needs the watch stream.
+     */
+    interface Listener {
+
+        /**
+         * the queue of a {@link WatchOverflowPolicy#BLOCK} watcher became full, or drained.
+         */
+        void onBlocked(boolean blocked);
+
+        /**
+         * the queue of a {@link WatchOverflowPolicy#DROP_AND_RESYNC} watcher was dropped, the
+         * watcher should be re-created from the revision.
+         */
+        void onResync(long revision);
+    }
+
+    private final EtcdWatch.WatchCallback callback;
+    private final Executor                executor;
+    private final int                     capacity;
+    private final WatchOverflowPolicy     policy;
+    private final Listener                listener;
+    private final ScheduledExecutorService timer;
+    private final long                    coalesceWindowNanos;
+    private final int                     coalesceMaxEvents;
+
+    private final Deque<Batch> queue = new ArrayDeque<>();
+
+    /**
+     * the number of queued events
+     */
+    private int     depth;
+    /**
+     * the number of events the callback may get, Long.MAX_VALUE for unbounded
+     */
+    private long    demand;
+    private long    droppedEvents;
+    private Batch   delivering;
+    /**
+     * the revision up to which the events were passed to the callback, 0 if none was
+     */
+    private long    deliveredRevision;
+    private boolean draining;
+    private boolean blocked;
+    private boolean closed;
+    /**
+     * the terminal signal waiting for the drain, null if none
+     */
+    private Runnable terminal;
+    private boolean  terminated;
+
+    /**
+     * the batch holding the events of the open coalesce window, the last queued one
+     */
+    private Batch              window;
+    private int                windowEvents;
+    private ScheduledFuture<?> windowClose;
+
+    WatchDispatcher(EtcdWatch.WatchCallback callback, Executor executor, WatchOption option, Listener listener) {
+        this(callback, executor, option, listener, Long.MAX_VALUE, null);
+    }
+
+    WatchDispatcher(EtcdWatch.WatchCallback callback, Executor executor, WatchOption option, Listener listener, long demand) {
+        this(callback, executor, option, listener, demand, null);
+    }
+
+    /**
+     * @param demand the number of events the callback may get until more are requested
+     * @param timer  closes the coalesce windows, needed if the option has a coalesce window
+     */
+    WatchDispatcher(EtcdWatch.WatchCallback callback, Executor executor, WatchOption option, Listener listener, long demand,
+                    ScheduledExecutorService timer) {
+        this.callback = callback;
+        this.executor = executor;
+        this.capacity = option.getDispatchQueueSize();
+        this.policy = option.getOverflowPolicy();
+        this.listener = listener;
+        this.demand = demand;
+        this.timer = timer;
+        this.coalesceWindowNanos = option.getCoalesceWindowNanos();
+        this.coalesceMaxEvents = option.getCoalesceMaxEvents();
+    }
+
+    /**
+     * queue a watch response for the callback.
+     */
+    void dispatch(ResponseHeader header, long compactRevision, List<Event> events) {
+        boolean block = false;
+        long resyncRevision = -1;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            Batch batch = new Batch(header, compactRevision, events, false);
+            boolean windowed = coalesceWindowNanos > 0 && batch.isMergeable() && !events.isEmpty();
+            if (!windowed && window != null) {
+                // keep the order, the following events open a new window
+                closeWindow();
+            }
+            if (windowed) {
+                hold(batch);
+            } else if (depth + events.size() <= capacity || events.isEmpty()) {
+                enqueue(batch);
+            } else if (policy == WatchOverflowPolicy.DROP_AND_RESYNC) {
+                resyncRevision = firstQueuedRevision(batch);
+                droppedEvents += depth + events.size();
+                queue.clear();
+                depth = 0;
+                enqueue(Batch.resuming());
+            } else if (policy == WatchOverflowPolicy.COALESCE) {
+                coalesce(batch);
+            } else {
+                enqueue(batch);
+            }
+            if (policy == WatchOverflowPolicy.BLOCK && !blocked && depth >= capacity) {
+                blocked = true;
+                block = true;
+            }
+        }
+        if (block) {
+            listener.onBlocked(true);
+        }
+        if (resyncRevision >= 0) {
+            listener.onResync(resyncRevision);
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * queue the onResuming notification, so it is ordered with the events.
+     */
+    void dispatchResuming() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (window != null) {
+                closeWindow();
+            }
+            enqueue(Batch.resuming());
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * add to the number of events the callback may get.
+     */
+    void request(long n) {
+        synchronized (this) {
+            demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * drop the queued responses, no callback is called after close returns, except the one
+     * running already.
+     */
+    void close() {
+        boolean unblock;
+        synchronized (this) {
+            closed = true;
+            if (window != null) {
+                closeWindow();
+            }
+            queue.clear();
+            depth = 0;
+            unblock = blocked;
+            blocked = false;
+        }
+        if (unblock) {
+            listener.onBlocked(false);
+        }
+    }
+
+    /**
+     * drop the queued responses and run the signal in the drain, once the running callback
+     * returned. No callback is called after the signal, and only the first signal is run,
+     * even if the dispatcher was closed.
+     *
+     * @return false if a signal was queued already
+     */
+    boolean terminate(Runnable signal) {
+        boolean unblock;
+        synchronized (this) {
+            if (terminated) {
+                return false;
+            }
+            terminated = true;
+            terminal = signal;
+            closed = true;
+            if (window != null) {
+                closeWindow();
+            }
+            queue.clear();
+            depth = 0;
+            unblock = blocked;
+            blocked = false;
+        }
+        if (unblock) {
+            listener.onBlocked(false);
+        }
+        scheduleDrain();
+        return true;
+    }
+
+    synchronized int getQueueDepth() {
+        return depth;
+    }
+
+    synchronized long getDispatchLagNanos() {
+        Batch oldest = delivering != null ? delivering : queue.peekFirst();
+        return oldest == null ? 0 : System.nanoTime() - oldest.enqueuedNanos;
+    }
+
+    synchronized long getDroppedEvents() {
+        return droppedEvents;
+    }
+
+    synchronized long getDeliveredRevision() {
+        return deliveredRevision;
+    }
+
+    synchronized boolean isBlocked() {
+        return blocked;
+    }
+
+    /**
+     * merge the events into the open window, or open one.
+     */
+    private void hold(Batch batch) {
+        batch.held = true;
+        if (window == null) {
+            window = batch;
+            windowEvents = 0;
+            enqueue(batch);
+            Batch opened = batch;
+            windowClose = timer.schedule(() -> onWindowClosed(opened), coalesceWindowNanos, TimeUnit.NANOSECONDS);
+        } else {
+            Map<ByteString, Event> latest = new LinkedHashMap<>();
+            for (Event event : Iterables.concat(window.events, batch.events)) {
+                latest.remove(event.getKv().getKey());
+                latest.put(event.getKv().getKey(), event);
+            }
+            int before = window.events.size() + batch.events.size();
+            depth += latest.size() - window.events.size();
+            droppedEvents += before - latest.size();
+            window.events = new ArrayList<>(latest.values());
+            window.header = batch.header;
+        }
+        windowEvents += batch.events.size();
+        if (windowEvents >= coalesceMaxEvents) {
+            closeWindow();
+        }
+    }
+
+    private void closeWindow() {
+        window.held = false;
+        window = null;
+        windowClose.cancel(false);
+        windowClose = null;
+    }
+
+    private void onWindowClosed(Batch batch) {
+        synchronized (this) {
+            if (window != batch) {
+                return;
+            }
+            closeWindow();
+        }
+        scheduleDrain();
+    }
+
+    private void enqueue(Batch batch) {
+        queue.addLast(batch);
+        depth += batch.events.size();
+    }
+
+    private long firstQueuedRevision(Batch batch) {
+        for (Batch queued : queue) {
+            if (queued.offset < queued.events.size()) {
+                return queued.events.get(queued.offset).getKv().getModRevision();
+            }
+        }
+        return batch.events.get(0).getKv().getModRevision();
+    }
+
+    /**
+     * merge the batch with the queued batches following the last compaction or resuming
+     * notification, keeping the latest event of each key in revision order.
+     */
+    private void coalesce(Batch batch) {
+        Deque<Batch> merged = new ArrayDeque<>();
+        while (!queue.isEmpty() && queue.peekLast().isMergeable()) {
+            merged.addFirst(queue.pollLast());
+        }
+        merged.addLast(batch);
+
+        Map<ByteString, Event> latest = new LinkedHashMap<>();
+        int before = 0;
+        for (Batch queued : merged) {
+            before += queued.events.size();
+            for (Event event : queued.events) {
+                latest.remove(event.getKv().getKey());
+                latest.put(event.getKv().getKey(), event);
+            }
+        }
+        depth -= before - batch.events.size();
+        droppedEvents += before - latest.size();
+
+        Batch coalesced = new Batch(batch.header, 0, new ArrayList<>(latest.values()), false);
+        coalesced.enqueuedNanos = merged.peekFirst().enqueuedNanos;
+        enqueue(coalesced);
+    }
+
+    /**
+     * whether the first queued response can be passed to the callback.
+     */
+    private boolean deliverable() {
+        if (terminal != null) {
+            return true;
+        }
+        Batch batch = queue.peekFirst();
+        return batch != null && !batch.held && (batch.events.isEmpty() || demand > 0);
+    }
+
+    private void scheduleDrain() {
+        synchronized (this) {
+            if (draining || !deliverable()) {
+                return;
+            }
+            draining = true;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("watch dispatch executor rejected the callback", e);
+            synchronized (this) {
+                draining = false;
+            }
+        }
+    }
+
+    private void drain() {
+        long delivered = 0;
+        while (true) {
+            Batch batch = null;
+            List<Event> events = null;
+            Runnable signal = null;
+            boolean unblock = false;
+            synchronized (this) {
+                delivering = null;
+                if (delivered > deliveredRevision) {
+                    deliveredRevision = delivered;
+                }
+                if (blocked && depth < capacity) {
+                    blocked = false;
+                    unblock = true;
+                }
+                if (terminal != null) {
+                    signal = terminal;
+                    terminal = null;
+                    draining = false;
+                } else if (!deliverable()) {
+                    draining = false;
+                } else {
+                    batch = queue.peekFirst();
+                    int from = batch.offset;
+                    int count = (int) Math.min(demand, batch.events.size() - from);
+                    batch.offset += count;
+                    if (batch.offset == batch.events.size()) {
+                        queue.pollFirst();
+                    }
+                    if (demand != Long.MAX_VALUE) {
+                        demand -= count;
+                    }
+                    depth -= count;
+                    delivering = batch;
+                    events = from == 0 && count == batch.events.size() ? batch.events : batch.events.subList(from, from + count);
+                    delivered = revisionOf(batch, events);
+                }
+            }
+            if (unblock) {
+                listener.onBlocked(false);
+            }
+            if (signal != null) {
+                try {
+                    signal.run();
+                } catch (Exception e) {
+                    LOGGER.warn("watch terminal signal failed", e);
+                }
+                return;
+            }
+            if (batch == null) {
+                return;
+            }
+            deliver(batch, events);
+        }
+    }
+
+    /**
+     * the revision the callback is up to once the events are passed, a response without
+     * events, such as a progress notification, is up to its header revision.
+     */
+    private static long revisionOf(Batch batch, List<Event> events) {
+        if (batch.resuming || batch.compactRevision != 0) {
+            return 0;
+        }
+        if (events.isEmpty()) {
+            return batch.header.getRevision();
+        }
+        return events.get(events.size() - 1).getKv().getModRevision();
+    }
+
+    private void deliver(Batch batch, List<Event> events) {
+        if (callback == null) {
+            return;
+        }
+        try {
+            if (batch.resuming) {
+                callback.onResuming();
+            } else {
+                callback.onWatch(apiToClientHeader(batch.header), batch.compactRevision, apiToClientEvents(events));
+            }
+        } catch (Exception e) {
+            LOGGER.warn("watch callback failed", e);
+        }
+    }
+
+    /**
+     * One watch response, or an onResuming notification, waiting for the callback.
+     */
+    private static final class Batch {
+
+        ResponseHeader       header;
+        final long           compactRevision;
+        List<Event>          events;
+        final boolean        resuming;
+        /**
+         * whether the batch is the open coalesce window, not passed to the callback yet
+         */
+        boolean              held;
+        long                 enqueuedNanos = System.nanoTime();
+        /**
+         * the number of events passed to the callback already
+         */
+        int                  offset;
+
+        Batch(ResponseHeader header, long compactRevision, List<Event> events, boolean resuming) {
+            this.header = header;
+            this.compactRevision = compactRevision;
+            this.events = events;
+            this.resuming = resuming;
+        }
+
+        static Batch resuming() {
+            return new Batch(null, 0, Collections.emptyList(), true);
+        }
+
+        boolean isMergeable() {
+            return !resuming && compactRevision == 0 && offset == 0;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.coreos.jetcd;
+
+import com.google.protobuf.ByteString;
+
+import com.coreos.jetcd.api.Event;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.watch.WatchEvent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import static com.coreos.jetcd.EtcdUtil.apiToClientEvent;
+
+/**
+ * The client side filters and projections of a watch option, applied to the API events of a
+ * response before they are queued for the callback.
+ * <p>A response passing unchanged is returned as is, the list is only copied when an event
+ * is dropped or projected.
+ */
+final class WatchEventFilter {
+
+    private final Pattern               keyPattern;
+    private final int                   maxValueSize;
+    private final boolean               keysOnly;
+    private final boolean               latestPerKey;
+    private final Predicate<WatchEvent> eventFilter;
+
+    private WatchEventFilter(WatchOption option) {
+        this.keyPattern = option.getKeyPattern().orElse(null);
+        this.maxValueSize = option.getMaxValueSize();
+        this.keysOnly = option.isKeysOnly();
+        this.latestPerKey = option.isLatestPerKey();
+        this.eventFilter = option.getEventFilter().orElse(null);
+    }
+
+    /**
+     * get the filter of the option.
+     *
+     * @return the filter, null if the option filters nothing
+     */
+    static WatchEventFilter of(WatchOption option) {
+        return option.isFiltered() ? new WatchEventFilter(option) : null;
+    }
+
+    List<Event> apply(List<Event> events) {
+        List<Event> result = null;
+        for (int i = 0; i < events.size(); i++) {
+            Event event = events.get(i);
+            Event kept = accept(event) ? project(event) : null;
+            if (kept != event && result == null) {
+                result = new ArrayList<>(events.subList(0, i));
+            }
+            if (result != null && kept != null) {
+                result.add(kept);
+            }
+        }
+        List<Event> filtered = result == null ? events : result;
+        return latestPerKey ? latest(filtered) : filtered;
+    }
+
+    private boolean accept(Event event) {
+        if (event.getKv().getValue().size() > maxValueSize) {
+            return false;
+        }
+        if (keyPattern != null && !keyPattern.matcher(event.getKv().getKey().toStringUtf8()).matches()) {
+            return false;
+        }
+        return eventFilter == null || eventFilter.test(apiToClientEvent(event));
+    }
+
+    private Event project(Event event) {
+        if (!keysOnly) {
+            return event;
+        }
+        Event.Builder builder = Event.newBuilder()
+                .setType(event.getType())
+                .setKv(event.getKv().toBuilder().clearValue());
+        if (event.hasPrevKv()) {
+            builder.setPrevKv(event.getPrevKv().toBuilder().clearValue());
+        }
+        return builder.build();
+    }
+
+    /**
+     * keep the latest event of each key, in revision order.
+     */
+    private static List<Event> latest(List<Event> events) {
+        if (events.size() < 2) {
+            return events;
+        }
+        Map<ByteString, Event> latest = new LinkedHashMap<>();
+        for (Event event : events) {
+            latest.remove(event.getKv().getKey());
+            latest.put(event.getKv().getKey(), event);
+        }
+        return latest.size() == events.size() ? events : new ArrayList<>(latest.values());
+    }
+}
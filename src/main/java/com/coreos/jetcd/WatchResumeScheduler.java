@@ -0,0 +1,196 @@
+package com.coreos.jetcd;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.coreos.jetcd.options.WatchResumeOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Re-creates the watchers of a failed watch stream without a thundering herd.
+ * <p>The first round starts after a backoff which doubles with each consecutive stream
+ * failure, randomized by the jitter, and is reset once a watcher was created. Watchers are
+ * then re-created at the configured rate, the ones with the highest resume priority first.
+ */
+final class WatchResumeScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WatchResumeScheduler.class);
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final WatchResumeOption                  option;
+    private final Consumer<EtcdWatchImpl.WatcherImpl> resumer;
+    private final PriorityQueue<Entry>               queue = new PriorityQueue<>();
+
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?>       task;
+    private int                      failures;
+    private long                     sequence;
+    private double                   permits;
+    private int                      resumed;
+    private boolean                  closed;
+
+    WatchResumeScheduler(WatchResumeOption option, Consumer<EtcdWatchImpl.WatcherImpl> resumer) {
+        this.option = option;
+        this.resumer = resumer;
+    }
+
+    /**
+     * queue the watchers of a failed stream, the watchers queued already keep their place.
+     *
+     * @return false if the scheduler is closed, the watchers were not queued
+     */
+    synchronized boolean schedule(Collection<EtcdWatchImpl.WatcherImpl> watchers) {
+        if (closed) {
+            return false;
+        }
+        failures++;
+        for (EtcdWatchImpl.WatcherImpl watcher : watchers) {
+            if (!watcher.resumeQueued) {
+                watcher.resumeQueued = true;
+                queue.add(new Entry(watcher, sequence++));
+            }
+        }
+        if (task != null) {
+            task.cancel(false);
+        }
+        if (queue.isEmpty()) {
+            task = null;
+            return true;
+        }
+        permits = 0;
+        resumed = 0;
+        long delay = backoffNanos();
+        LOGGER.info("watch stream failed {} times, resuming {} watchers in {} ms", failures, queue.size(), TimeUnit.NANOSECONDS.toMillis(delay));
+        task = executor().scheduleAtFixedRate(this::tick, delay, TICK_NANOS, TimeUnit.NANOSECONDS);
+        return true;
+    }
+
+    /**
+     * stop re-creating watchers and shut down the executor, the watch client is closed.
+     *
+     * @return the watchers which were waiting to be re-created
+     */
+    synchronized List<EtcdWatchImpl.WatcherImpl> close() {
+        closed = true;
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        List<EtcdWatchImpl.WatcherImpl> watchers = new ArrayList<>(queue.size());
+        for (Entry entry : queue) {
+            entry.watcher.resumeQueued = false;
+            watchers.add(entry.watcher);
+        }
+        queue.clear();
+        return watchers;
+    }
+
+    /**
+     * reset the backoff, the stream works again.
+     */
+    synchronized void reset() {
+        failures = 0;
+    }
+
+    /**
+     * get the number of watchers waiting to be re-created.
+     *
+     * @return the number of queued watchers
+     */
+    synchronized int getPending() {
+        return queue.size();
+    }
+
+    long backoffNanos() {
+        long backoff = option.getInitialBackoffNanos() << Math.min(failures - 1, 30);
+        if (backoff < 0 || backoff > option.getMaxBackoffNanos()) {
+            backoff = option.getMaxBackoffNanos();
+        }
+        return backoff - (long) (backoff * option.getJitter() * ThreadLocalRandom.current().nextDouble());
+    }
+
+    private void tick() {
+        List<EtcdWatchImpl.WatcherImpl> round = new ArrayList<>();
+        int resumedSoFar;
+        int remaining;
+        synchronized (this) {
+            permits += option.getRate() * (double) TICK_NANOS / TimeUnit.SECONDS.toNanos(1);
+            while (permits >= 1 && !queue.isEmpty()) {
+                EtcdWatchImpl.WatcherImpl watcher = queue.poll().watcher;
+                watcher.resumeQueued = false;
+                round.add(watcher);
+                permits--;
+            }
+            if (queue.isEmpty() && task != null) {
+                task.cancel(false);
+                task = null;
+            }
+            resumed += round.size();
+            resumedSoFar = resumed;
+            remaining = queue.size();
+        }
+        if (round.isEmpty()) {
+            return;
+        }
+
+        for (EtcdWatchImpl.WatcherImpl watcher : round) {
+            try {
+                resumer.accept(watcher);
+            } catch (Exception e) {
+                LOGGER.warn("failed to resume watcher of key {}", watcher.getKey().toStringUtf8(), e);
+            }
+        }
+        option.getListener().ifPresent(listener -> listener.onResumeProgress(resumedSoFar, remaining));
+        if (remaining == 0) {
+            LOGGER.info("resumed {} watchers", resumedSoFar);
+        }
+    }
+
+    private ScheduledExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("jetcd-watch-resume-%d").setDaemon(true).build());
+        }
+        return executor;
+    }
+
+    /**
+     * A queued watcher, ordered by resume priority then by queue order.
+     */
+    private static final class Entry implements Comparable<Entry> {
+
+        final EtcdWatchImpl.WatcherImpl watcher;
+        final int                       priority;
+        final long                      sequence;
+
+        Entry(EtcdWatchImpl.WatcherImpl watcher, long sequence) {
+            this.watcher = watcher;
+            this.priority = watcher.getWatchOption().getResumePriority();
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            if (priority != other.priority) {
+                return priority > other.priority ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -3,25 +3,26 @@ package com.coreos.jetcd.data;
 import com.google.protobuf.ByteString;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 
 /**
  * Etcd binary bytes, easy to convert between byte[], String and ByteString.
+ * <p>The bytes are held in an immutable {@link ByteString}, so a sequence built
+ * from a ByteString (e.g. one returned by the server) wraps it without copying.
  */
 public class ByteSequence {
 
-    private final int hashVal;
     private final ByteString byteString;
 
 
     public ByteSequence(byte[] source) {
-        hashVal = calcHashCore(source);
-        byteString = toByteString(source);
+        this(toByteString(source));
     }
 
     protected ByteSequence(ByteString byteString) {
-        this(byteString.toByteArray());
+        this.byteString = byteString;
     }
 
     public ByteSequence(String string) {
@@ -50,25 +51,44 @@ public class ByteSequence {
         }
     }
 
-    protected ByteString getByteString() {
+    /**
+     * get the underlying ByteString, no copy is made as ByteString is immutable.
+     *
+     * @return the wrapped ByteString
+     */
+    public ByteString getByteString() {
         return this.byteString;
     }
 
-    private ByteString toByteString(byte[] bytes) {
+    private static ByteString toByteString(byte[] bytes) {
         return ByteString.copyFrom(bytes);
     }
 
-    private int calcHashCore(byte[] bytes) {
-        int result = 0;
-        for (int i = 0; i < bytes.length; ++i) {
-            result = 31 * result + bytes[i];
-        }
-        return result;
-    }
-
+    /**
+     * ByteString computes its hash lazily and caches it, so no extra pass over
+     * the bytes is made until the sequence is hashed.
+     */
     @Override
     public int hashCode() {
-        return hashVal;
+        return byteString.hashCode();
+    }
+
+    /**
+     * get the number of bytes in this sequence.
+     *
+     * @return the size
+     */
+    public int size() {
+        return byteString.size();
+    }
+
+    /**
+     * get a read-only ByteBuffer view of the bytes without copying.
+     *
+     * @return read-only ByteBuffer
+     */
+    public ByteBuffer asReadOnlyByteBuffer() {
+        return byteString.asReadOnlyByteBuffer();
     }
 
     public String toStringUtf8() {
@@ -83,6 +103,12 @@ public class ByteSequence {
         return byteString.toString(charsetName);
     }
 
+    /**
+     * get a copy of the bytes, prefer {@link #getByteString()} or
+     * {@link #asReadOnlyByteBuffer()} on hot paths to avoid the copy.
+     *
+     * @return a new byte array
+     */
     public byte[] getBytes() {
         return byteString.toByteArray();
     }
@@ -99,7 +125,13 @@ public class ByteSequence {
         return new ByteSequence(charBuffer);
     }
 
-    protected static ByteSequence fromByteString(ByteString byteString) {
+    /**
+     * wrap a ByteString without copying.
+     *
+     * @param byteString the bytes to wrap
+     * @return ByteSequence backed by byteString
+     */
+    public static ByteSequence fromByteString(ByteString byteString) {
         return new ByteSequence(byteString);
     }
 
@@ -0,0 +1,95 @@
+package com.coreos.jetcd.options;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The options for batching put and delete operations into transactions.
+ */
+public final class BatchOption {
+
+    public static final BatchOption DEFAULT = newBuilder().build();
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder to construct a batch option
+     */
+    public static class Builder {
+
+        private int  maxBatchSize   = 128;
+        private long maxDelayNanos  = TimeUnit.MILLISECONDS.toNanos(1);
+
+        private Builder() {
+        }
+
+        /**
+         * Limit the number of operations coalesced into one transaction. By default is 128,
+         * which is the default <i>--max-txn-ops</i> of the etcd server.
+         *
+         * @param maxBatchSize the maximum number of operations in one transaction.
+         * @return builder
+         * @throws IllegalArgumentException if maxBatchSize is less than one.
+         */
+        public Builder withMaxBatchSize(int maxBatchSize) {
+            checkArgument(maxBatchSize > 0, "maxBatchSize should be greater than zero: maxBatchSize=%s", maxBatchSize);
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * Set how long the first operation of a batch may wait for others before the
+         * batch is committed. By default is 1 millisecond.
+         *
+         * @param delay the maximum delay
+         * @param unit  the unit of delay
+         * @return builder
+         * @throws IllegalArgumentException if delay is less than zero.
+         */
+        public Builder withMaxDelay(long delay, TimeUnit unit) {
+            checkArgument(delay >= 0, "delay should be greater than or equal to zero: delay=%s", delay);
+            checkNotNull(unit, "unit should not be null");
+            this.maxDelayNanos = unit.toNanos(delay);
+            return this;
+        }
+
+        /**
+         * build the batch option.
+         *
+         * @return the batch option
+         */
+        public BatchOption build() {
+            return new BatchOption(this.maxBatchSize, this.maxDelayNanos);
+        }
+    }
+
+    private final int  maxBatchSize;
+    private final long maxDelayNanos;
+
+    private BatchOption(int maxBatchSize, long maxDelayNanos) {
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelayNanos;
+    }
+
+    /**
+     * Get the maximum number of operations in one transaction.
+     *
+     * @return the maximum batch size
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Get the maximum delay of a batch in nanoseconds.
+     *
+     * @return the maximum delay
+     */
+    public long getMaxDelayNanos() {
+        return maxDelayNanos;
+    }
+}
@@ -0,0 +1,149 @@
+package com.coreos.jetcd.options;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The options for the client side kv cache.
+ */
+public final class CacheOption {
+
+    public static final CacheOption DEFAULT = newBuilder().build();
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder to construct a cache option
+     */
+    public static class Builder {
+
+        private int  maxSize             = 0;
+        private int  pageSize            = 1000;
+        private long initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(100);
+        private long maxBackoffNanos     = TimeUnit.SECONDS.toNanos(10);
+
+        private Builder() {
+        }
+
+        /**
+         * Limit the number of keys held by the cache, the least recently used keys are evicted
+         * first. By default is 0 - no limitation.
+         * <p>Once a key was evicted, cache misses are read from etcd.
+         *
+         * @param maxSize the maximum number of cached keys
+         * @return builder
+         * @throws IllegalArgumentException if maxSize is less than zero.
+         */
+        public Builder withMaxSize(int maxSize) {
+            checkArgument(maxSize >= 0, "maxSize should be greater than or equal to zero: maxSize=%s", maxSize);
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Set the number of keys fetched per request when the cache is loaded. By default is 1000.
+         *
+         * @param pageSize the number of keys per request
+         * @return builder
+         * @throws IllegalArgumentException if pageSize is less than one.
+         */
+        public Builder withPageSize(int pageSize) {
+            checkArgument(pageSize > 0, "pageSize should be greater than zero: pageSize=%s", pageSize);
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        /**
+         * Set the delay before the load is retried after the first failed load or watch
+         * create, it doubles with each consecutive failure. By default is 100 milliseconds.
+         *
+         * @param backoff the initial backoff
+         * @param unit    the unit of backoff
+         * @return builder
+         * @throws IllegalArgumentException if backoff is less than zero.
+         */
+        public Builder withInitialBackoff(long backoff, TimeUnit unit) {
+            checkArgument(backoff >= 0, "backoff should be greater than or equal to zero: backoff=%s", backoff);
+            checkNotNull(unit, "unit should not be null");
+            this.initialBackoffNanos = unit.toNanos(backoff);
+            return this;
+        }
+
+        /**
+         * Limit the delay between load retries. By default is 10 seconds.
+         *
+         * @param backoff the maximum backoff
+         * @param unit    the unit of backoff
+         * @return builder
+         * @throws IllegalArgumentException if backoff is less than zero.
+         */
+        public Builder withMaxBackoff(long backoff, TimeUnit unit) {
+            checkArgument(backoff >= 0, "backoff should be greater than or equal to zero: backoff=%s", backoff);
+            checkNotNull(unit, "unit should not be null");
+            this.maxBackoffNanos = unit.toNanos(backoff);
+            return this;
+        }
+
+        /**
+         * build the cache option.
+         *
+         * @return the cache option
+         */
+        public CacheOption build() {
+            return new CacheOption(this.maxSize, this.pageSize, this.initialBackoffNanos,
+                    Math.max(this.initialBackoffNanos, this.maxBackoffNanos));
+        }
+    }
+
+    private final int  maxSize;
+    private final int  pageSize;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+
+    private CacheOption(int maxSize, int pageSize, long initialBackoffNanos, long maxBackoffNanos) {
+        this.maxSize = maxSize;
+        this.pageSize = pageSize;
+        this.initialBackoffNanos = initialBackoffNanos;
+        this.maxBackoffNanos = maxBackoffNanos;
+    }
+
+    /**
+     * Get the maximum number of cached keys, zero means no limitation.
+     *
+     * @return the maximum size
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Get the number of keys fetched per request when the cache is loaded.
+     *
+     * @return the page size
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Get the delay before the first load retry in nanoseconds.
+     *
+     * @return the initial backoff
+     */
+    public long getInitialBackoffNanos() {
+        return initialBackoffNanos;
+    }
+
+    /**
+     * Get the maximum delay between load retries in nanoseconds.
+     *
+     * @return the maximum backoff
+     */
+    public long getMaxBackoffNanos() {
+        return maxBackoffNanos;
+    }
+}
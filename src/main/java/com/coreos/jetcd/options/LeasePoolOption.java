@@ -0,0 +1,119 @@
+package com.coreos.jetcd.options;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The options for a pool of leases granted ahead of use.
+ */
+public final class LeasePoolOption {
+
+    public static final LeasePoolOption DEFAULT = newBuilder().build();
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder to construct a lease pool option
+     */
+    public static class Builder {
+
+        private int  size            = 8;
+        private long ttl             = 60;
+        private long retryDelayNanos = TimeUnit.SECONDS.toNanos(1);
+
+        private Builder() {
+        }
+
+        /**
+         * Set how many granted leases the pool keeps ready. By default is 8.
+         *
+         * @param size the number of idle leases
+         * @return builder
+         * @throws IllegalArgumentException if size is not positive.
+         */
+        public Builder withSize(int size) {
+            checkArgument(size > 0, "size should be greater than zero: size=%s", size);
+            this.size = size;
+            return this;
+        }
+
+        /**
+         * Set the ttl of the pooled leases. By default is 60 seconds.
+         *
+         * @param ttl the lease ttl in seconds
+         * @return builder
+         * @throws IllegalArgumentException if ttl is not positive.
+         */
+        public Builder withTtl(long ttl) {
+            checkArgument(ttl > 0, "ttl should be greater than zero: ttl=%s", ttl);
+            this.ttl = ttl;
+            return this;
+        }
+
+        /**
+         * Set how long to wait before granting again after a failed grant.
+         * By default is 1 second.
+         *
+         * @param retryDelay the delay between grant attempts
+         * @param unit       the unit of the delay
+         * @return builder
+         * @throws IllegalArgumentException if retryDelay is not positive.
+         */
+        public Builder withRetryDelay(long retryDelay, TimeUnit unit) {
+            checkArgument(retryDelay > 0, "retryDelay should be greater than zero: retryDelay=%s", retryDelay);
+            checkNotNull(unit, "unit should not be null");
+            this.retryDelayNanos = unit.toNanos(retryDelay);
+            return this;
+        }
+
+        /**
+         * build the lease pool option.
+         *
+         * @return the lease pool option
+         */
+        public LeasePoolOption build() {
+            return new LeasePoolOption(this.size, this.ttl, this.retryDelayNanos);
+        }
+    }
+
+    private final int  size;
+    private final long ttl;
+    private final long retryDelayNanos;
+
+    private LeasePoolOption(int size, long ttl, long retryDelayNanos) {
+        this.size = size;
+        this.ttl = ttl;
+        this.retryDelayNanos = retryDelayNanos;
+    }
+
+    /**
+     * Get how many granted leases the pool keeps ready.
+     *
+     * @return the pool size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the ttl of the pooled leases.
+     *
+     * @return the ttl in seconds
+     */
+    public long getTtl() {
+        return ttl;
+    }
+
+    /**
+     * Get how long to wait before granting again after a failed grant.
+     *
+     * @return the retry delay in nanoseconds
+     */
+    public long getRetryDelayNanos() {
+        return retryDelayNanos;
+    }
+}
@@ -0,0 +1,95 @@
+package com.coreos.jetcd.options;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The options for a session sharing one lease between many keys.
+ */
+public final class SessionOption {
+
+    public static final SessionOption DEFAULT = newBuilder().build();
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder to construct a session option
+     */
+    public static class Builder {
+
+        private long ttl             = 60;
+        private long retryDelayNanos = TimeUnit.SECONDS.toNanos(1);
+
+        private Builder() {
+        }
+
+        /**
+         * Set the ttl of the session lease, the keys of the session are removed this long
+         * after the client stopped keeping it alive. By default is 60 seconds.
+         *
+         * @param ttl the lease ttl in seconds
+         * @return builder
+         * @throws IllegalArgumentException if ttl is not positive.
+         */
+        public Builder withTtl(long ttl) {
+            checkArgument(ttl > 0, "ttl should be greater than zero: ttl=%s", ttl);
+            this.ttl = ttl;
+            return this;
+        }
+
+        /**
+         * Set how long to wait before granting the lease again after a failed grant.
+         * By default is 1 second.
+         *
+         * @param retryDelay the delay between grant attempts
+         * @param unit       the unit of the delay
+         * @return builder
+         * @throws IllegalArgumentException if retryDelay is not positive.
+         */
+        public Builder withRetryDelay(long retryDelay, TimeUnit unit) {
+            checkArgument(retryDelay > 0, "retryDelay should be greater than zero: retryDelay=%s", retryDelay);
+            checkNotNull(unit, "unit should not be null");
+            this.retryDelayNanos = unit.toNanos(retryDelay);
+            return this;
+        }
+
+        /**
+         * build the session option.
+         *
+         * @return the session option
+         */
+        public SessionOption build() {
+            return new SessionOption(this.ttl, this.retryDelayNanos);
+        }
+    }
+
+    private final long ttl;
+    private final long retryDelayNanos;
+
+    private SessionOption(long ttl, long retryDelayNanos) {
+        this.ttl = ttl;
+        this.retryDelayNanos = retryDelayNanos;
+    }
+
+    /**
+     * Get the ttl of the session lease.
+     *
+     * @return the ttl in seconds
+     */
+    public long getTtl() {
+        return ttl;
+    }
+
+    /**
+     * Get how long to wait before granting the lease again after a failed grant.
+     *
+     * @return the retry delay in nanoseconds
+     */
+    public long getRetryDelayNanos() {
+        return retryDelayNanos;
+    }
+}
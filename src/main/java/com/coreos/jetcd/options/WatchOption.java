@@ -1,8 +1,19 @@
 package com.coreos.jetcd.options;
 
+import com.coreos.jetcd.WatchCheckpointStore;
 import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.watch.WatchEvent;
+import com.coreos.jetcd.watch.WatchOverflowPolicy;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * The option for watch operation.
@@ -29,6 +40,19 @@ public final class WatchOption {
         private boolean noPut = false;
         private boolean noDelete = false;
         private boolean resuming = false;
+        private int dispatchQueueSize = 1024;
+        private WatchOverflowPolicy overflowPolicy = WatchOverflowPolicy.BLOCK;
+        private Optional<Executor> dispatchExecutor = Optional.empty();
+        private int resumePriority = 0;
+        private long createTimeoutNanos = TimeUnit.SECONDS.toNanos(30);
+        private Optional<Pattern> keyPattern = Optional.empty();
+        private int maxValueSize = Integer.MAX_VALUE;
+        private boolean keysOnly = false;
+        private boolean latestPerKey = false;
+        private Optional<Predicate<WatchEvent>> eventFilter = Optional.empty();
+        private long coalesceWindowNanos = 0;
+        private int coalesceMaxEvents = Integer.MAX_VALUE;
+        private Optional<String> checkpoint = Optional.empty();
 
         private Builder() {
         }
@@ -109,6 +133,222 @@ public final class WatchOption {
             return this;
         }
 
+        /**
+         * Limit the number of events queued for the callback. By default is 1024.
+         * <p>When the callback is slower than etcd, the queue overflows and the
+         * {@link #withOverflowPolicy(WatchOverflowPolicy) overflow policy} applies.
+         *
+         * @param dispatchQueueSize the maximum number of queued events
+         * @return builder
+         * @throws IllegalArgumentException if dispatchQueueSize is less than one.
+         */
+        public Builder withDispatchQueueSize(int dispatchQueueSize) {
+            checkArgument(dispatchQueueSize > 0, "dispatchQueueSize should be greater than zero: dispatchQueueSize=%s", dispatchQueueSize);
+            this.dispatchQueueSize = dispatchQueueSize;
+            return this;
+        }
+
+        /**
+         * Set what happens when the dispatch queue is full. By default is
+         * {@link WatchOverflowPolicy#BLOCK}, which loses no event but stops the watch stream
+         * while the queue is full: one slow callback stalls every other watcher on the same
+         * stream. Pair a BLOCK watcher with
+         * {@link com.coreos.jetcd.EtcdClientBuilder#setWatchStreams(int) several watch streams}
+         * to bound the stall to the watchers of its shard, or use
+         * {@link WatchOverflowPolicy#DROP_AND_RESYNC} to never stall the stream.
+         *
+         * @param overflowPolicy the overflow policy
+         * @return builder
+         */
+        public Builder withOverflowPolicy(WatchOverflowPolicy overflowPolicy) {
+            this.overflowPolicy = checkNotNull(overflowPolicy, "overflowPolicy should not be null");
+            return this;
+        }
+
+        /**
+         * Set the executor the callback is called on. By default the call executor of the
+         * client is used. The callback of one watcher is never called concurrently.
+         *
+         * @param dispatchExecutor the executor to call the callback on
+         * @return builder
+         */
+        public Builder withDispatchExecutor(Executor dispatchExecutor) {
+            this.dispatchExecutor = Optional.of(checkNotNull(dispatchExecutor, "dispatchExecutor should not be null"));
+            return this;
+        }
+
+        /**
+         * Set the priority of the watcher when the watchers are re-created after a watch
+         * stream failure, higher priorities are re-created first. By default is 0.
+         *
+         * @param resumePriority the resume priority
+         * @return builder
+         */
+        public Builder withResumePriority(int resumePriority) {
+            this.resumePriority = resumePriority;
+            return this;
+        }
+
+        /**
+         * Set how long to wait for etcd to create the watcher, the watch fails with a
+         * {@link java.util.concurrent.TimeoutException} when it is not created in time.
+         * By default is 30 seconds.
+         *
+         * @param timeout the create timeout
+         * @param unit    the unit of the timeout
+         * @return builder
+         * @throws IllegalArgumentException if timeout is not positive.
+         */
+        public Builder withCreateTimeout(long timeout, TimeUnit unit) {
+            checkArgument(timeout > 0, "timeout should be greater than zero: timeout=%s", timeout);
+            checkNotNull(unit, "unit should not be null");
+            this.createTimeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+
+        /**
+         * Pass only the events whose whole key, decoded as UTF-8, matches the pattern.
+         * <p>The client side filters are applied when the response is received, before the
+         * events are queued for the callback or converted. A response whose events are all
+         * filtered out reaches the callback without events, like a progress notification.
+         *
+         * @param keyPattern the pattern of the keys
+         * @return builder
+         */
+        public Builder withKeyPattern(Pattern keyPattern) {
+            this.keyPattern = Optional.of(checkNotNull(keyPattern, "keyPattern should not be null"));
+            return this;
+        }
+
+        /**
+         * Pass only the events whose key matches the glob, {@code *} matches any characters and
+         * {@code ?} one character.
+         *
+         * @param keyGlob the glob of the keys
+         * @return builder
+         * @see #withKeyPattern(Pattern)
+         */
+        public Builder withKeyGlob(String keyGlob) {
+            checkNotNull(keyGlob, "keyGlob should not be null");
+            StringBuilder regex = new StringBuilder();
+            int literal = 0;
+            for (int i = 0; i < keyGlob.length(); i++) {
+                char c = keyGlob.charAt(i);
+                if (c == '*' || c == '?') {
+                    if (literal < i) {
+                        regex.append(Pattern.quote(keyGlob.substring(literal, i)));
+                    }
+                    regex.append(c == '*' ? ".*" : ".");
+                    literal = i + 1;
+                }
+            }
+            if (literal < keyGlob.length()) {
+                regex.append(Pattern.quote(keyGlob.substring(literal)));
+            }
+            return withKeyPattern(Pattern.compile(regex.toString(), Pattern.DOTALL));
+        }
+
+        /**
+         * Drop the events whose value is larger than the size. By default no event is dropped.
+         *
+         * @param maxValueSize the maximum value size in bytes
+         * @return builder
+         * @throws IllegalArgumentException if maxValueSize is less than zero.
+         */
+        public Builder withMaxValueSize(int maxValueSize) {
+            checkArgument(maxValueSize >= 0, "maxValueSize should be greater than or equal to zero: maxValueSize=%s", maxValueSize);
+            this.maxValueSize = maxValueSize;
+            return this;
+        }
+
+        /**
+         * Strip the values from the events, the key values keep their key and revisions.
+         *
+         * @param keysOnly whether the values are stripped
+         * @return builder
+         */
+        public Builder withKeysOnly(boolean keysOnly) {
+            this.keysOnly = keysOnly;
+            return this;
+        }
+
+        /**
+         * Pass only the latest event of each key of a watch response.
+         *
+         * @param latestPerKey whether the events of a response are coalesced by key
+         * @return builder
+         */
+        public Builder withLatestPerKey(boolean latestPerKey) {
+            this.latestPerKey = latestPerKey;
+            return this;
+        }
+
+        /**
+         * Pass only the events accepted by the filter. The event is a view converting its key
+         * values on access, a filter reading the type or the key only converts little.
+         * <p>The filter is called on the thread reading the watch stream, it should be fast.
+         *
+         * @param eventFilter the filter of the events
+         * @return builder
+         */
+        public Builder withEventFilter(Predicate<WatchEvent> eventFilter) {
+            this.eventFilter = Optional.of(checkNotNull(eventFilter, "eventFilter should not be null"));
+            return this;
+        }
+
+        /**
+         * Hold the events for the window and pass only the latest event of each key to the
+         * callback, in one call when the window closes. The window opens with the first
+         * event after the previous one closed, so an event waits at most the window.
+         * By default is 0, the events are passed as they are received.
+         *
+         * @param window the coalesce window, 0 to pass the events as they are received
+         * @param unit   the unit of the window
+         * @return builder
+         * @throws IllegalArgumentException if window is negative.
+         */
+        public Builder withCoalesceWindow(long window, TimeUnit unit) {
+            checkArgument(window >= 0, "window should not be negative: window=%s", window);
+            checkNotNull(unit, "unit should not be null");
+            this.coalesceWindowNanos = unit.toNanos(window);
+            return this;
+        }
+
+        /**
+         * Close the coalesce window early once that many events were received in it, so a
+         * burst does not wait for the whole window.
+         * By default the window is only closed by time.
+         *
+         * @param maxEvents the number of received events closing the window
+         * @return builder
+         * @throws IllegalArgumentException if maxEvents is not positive.
+         */
+        public Builder withCoalesceMaxEvents(int maxEvents) {
+            checkArgument(maxEvents > 0, "maxEvents should be greater than zero: maxEvents=%s", maxEvents);
+            this.coalesceMaxEvents = maxEvents;
+            return this;
+        }
+
+        /**
+         * Record the last revision of the watch under the name in the watch checkpoint store
+         * of the client. A watch from now with a recorded revision starts after it, so a
+         * restarted process only receives the events it missed. The name should be unique
+         * among the watches of the store.
+         *
+         * @param name the checkpoint name
+         * @return builder
+         * @throws IllegalArgumentException if the name is empty or longer than
+         *                                  {@link WatchCheckpointStore#MAX_NAME_LENGTH} UTF-8 bytes.
+         */
+        public Builder withCheckpoint(String name) {
+            checkNotNull(name, "name should not be null");
+            int length = name.getBytes(StandardCharsets.UTF_8).length;
+            checkArgument(length > 0 && length <= WatchCheckpointStore.MAX_NAME_LENGTH,
+                    "name should have 1 to %s bytes: name=%s", WatchCheckpointStore.MAX_NAME_LENGTH, name);
+            this.checkpoint = Optional.of(name);
+            return this;
+        }
+
         public WatchOption build() {
             return new WatchOption(
                     endKey,
@@ -117,7 +357,20 @@ public final class WatchOption {
                     progressNotify,
                     noPut,
                     noDelete,
-                    resuming);
+                    resuming,
+                    dispatchQueueSize,
+                    overflowPolicy,
+                    dispatchExecutor,
+                    resumePriority,
+                    createTimeoutNanos,
+                    keyPattern,
+                    maxValueSize,
+                    keysOnly,
+                    latestPerKey,
+                    eventFilter,
+                    coalesceWindowNanos,
+                    coalesceMaxEvents,
+                    checkpoint);
         }
 
     }
@@ -129,6 +382,19 @@ public final class WatchOption {
     private final boolean noPut;
     private final boolean noDelete;
     private final boolean resuming;
+    private final int dispatchQueueSize;
+    private final WatchOverflowPolicy overflowPolicy;
+    private final Optional<Executor> dispatchExecutor;
+    private final int resumePriority;
+    private final long createTimeoutNanos;
+    private final Optional<Pattern> keyPattern;
+    private final int maxValueSize;
+    private final boolean keysOnly;
+    private final boolean latestPerKey;
+    private final Optional<Predicate<WatchEvent>> eventFilter;
+    private final long coalesceWindowNanos;
+    private final int coalesceMaxEvents;
+    private final Optional<String> checkpoint;
 
     private WatchOption(Optional<ByteSequence> endKey,
                         long revision,
@@ -136,7 +402,20 @@ public final class WatchOption {
                         boolean progressNotify,
                         boolean noPut,
                         boolean noDelete,
-                        boolean resuming) {
+                        boolean resuming,
+                        int dispatchQueueSize,
+                        WatchOverflowPolicy overflowPolicy,
+                        Optional<Executor> dispatchExecutor,
+                        int resumePriority,
+                        long createTimeoutNanos,
+                        Optional<Pattern> keyPattern,
+                        int maxValueSize,
+                        boolean keysOnly,
+                        boolean latestPerKey,
+                        Optional<Predicate<WatchEvent>> eventFilter,
+                        long coalesceWindowNanos,
+                        int coalesceMaxEvents,
+                        Optional<String> checkpoint) {
         this.endKey = endKey;
         this.revision = revision;
         this.prevKV = prevKV;
@@ -144,6 +423,19 @@ public final class WatchOption {
         this.noPut = noPut;
         this.noDelete = noDelete;
         this.resuming = resuming;
+        this.dispatchQueueSize = dispatchQueueSize;
+        this.overflowPolicy = overflowPolicy;
+        this.dispatchExecutor = dispatchExecutor;
+        this.resumePriority = resumePriority;
+        this.createTimeoutNanos = createTimeoutNanos;
+        this.keyPattern = keyPattern;
+        this.maxValueSize = maxValueSize;
+        this.keysOnly = keysOnly;
+        this.latestPerKey = latestPerKey;
+        this.eventFilter = eventFilter;
+        this.coalesceWindowNanos = coalesceWindowNanos;
+        this.coalesceMaxEvents = coalesceMaxEvents;
+        this.checkpoint = checkpoint;
     }
 
     public Optional<ByteSequence> getEndKey() {
@@ -191,4 +483,130 @@ public final class WatchOption {
     public boolean isResuming(){
         return resuming;
     }
+
+    /**
+     * Get the maximum number of events queued for the callback.
+     *
+     * @return the dispatch queue size
+     */
+    public int getDispatchQueueSize() {
+        return dispatchQueueSize;
+    }
+
+    /**
+     * Get what happens when the dispatch queue is full.
+     *
+     * @return the overflow policy
+     */
+    public WatchOverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Get the executor the callback is called on, empty to use the call executor of the client.
+     *
+     * @return the dispatch executor
+     */
+    public Optional<Executor> getDispatchExecutor() {
+        return dispatchExecutor;
+    }
+
+    /**
+     * Get the priority of the watcher when the watchers are re-created after a stream failure.
+     *
+     * @return the resume priority
+     */
+    public int getResumePriority() {
+        return resumePriority;
+    }
+
+    /**
+     * Get how long to wait for etcd to create the watcher.
+     *
+     * @return the create timeout in nanoseconds
+     */
+    public long getCreateTimeoutNanos() {
+        return createTimeoutNanos;
+    }
+
+    /**
+     * Get the pattern the keys of the passed events match.
+     *
+     * @return the key pattern, empty if the keys are not filtered
+     */
+    public Optional<Pattern> getKeyPattern() {
+        return keyPattern;
+    }
+
+    /**
+     * Get the maximum size of the values of the passed events.
+     *
+     * @return the maximum value size in bytes
+     */
+    public int getMaxValueSize() {
+        return maxValueSize;
+    }
+
+    /**
+     * Whether the values are stripped from the passed events.
+     *
+     * @return if true, the events only keep their keys and revisions
+     */
+    public boolean isKeysOnly() {
+        return keysOnly;
+    }
+
+    /**
+     * Whether only the latest event of each key of a watch response is passed.
+     *
+     * @return if true, the events of a response are coalesced by key
+     */
+    public boolean isLatestPerKey() {
+        return latestPerKey;
+    }
+
+    /**
+     * Get the filter the passed events are accepted by.
+     *
+     * @return the event filter, empty if the events are not filtered
+     */
+    public Optional<Predicate<WatchEvent>> getEventFilter() {
+        return eventFilter;
+    }
+
+    /**
+     * Get how long the events are held to be coalesced by key.
+     *
+     * @return the coalesce window in nanoseconds, 0 if events are not held
+     */
+    public long getCoalesceWindowNanos() {
+        return coalesceWindowNanos;
+    }
+
+    /**
+     * Get the number of received events closing the coalesce window early.
+     *
+     * @return the maximum events of a window, {@link Integer#MAX_VALUE} if the window is only closed by time
+     */
+    public int getCoalesceMaxEvents() {
+        return coalesceMaxEvents;
+    }
+
+    /**
+     * Get the name the last revision of the watch is recorded under.
+     *
+     * @return the checkpoint name, empty if the watch is not checkpointed
+     */
+    public Optional<String> getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Whether any client side filter or projection is set.
+     *
+     * @return true if the events are filtered on the client
+     */
+    public boolean isFiltered() {
+        return keyPattern.isPresent() || maxValueSize != Integer.MAX_VALUE || keysOnly || latestPerKey || eventFilter.isPresent();
+    }
 }
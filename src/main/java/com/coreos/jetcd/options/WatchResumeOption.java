@@ -0,0 +1,175 @@
+package com.coreos.jetcd.options;
+
+import com.coreos.jetcd.watch.WatchResumeListener;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The options for resuming the watchers after a watch stream failure.
+ * <p>The watchers are re-created after a backoff growing exponentially with the consecutive
+ * stream failures, at a limited rate, in the order of their resume priority.
+ */
+public final class WatchResumeOption {
+
+    public static final WatchResumeOption DEFAULT = newBuilder().build();
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder to construct a watch resume option
+     */
+    public static class Builder {
+
+        private int                           rate                = 1000;
+        private long                          initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(100);
+        private long                          maxBackoffNanos     = TimeUnit.SECONDS.toNanos(10);
+        private double                        jitter              = 0.5;
+        private Optional<WatchResumeListener> listener            = Optional.empty();
+
+        private Builder() {
+        }
+
+        /**
+         * Limit the number of watchers re-created per second. By default is 1000.
+         *
+         * @param rate the maximum number of watchers re-created per second
+         * @return builder
+         * @throws IllegalArgumentException if rate is less than one.
+         */
+        public Builder withRate(int rate) {
+            checkArgument(rate > 0, "rate should be greater than zero: rate=%s", rate);
+            this.rate = rate;
+            return this;
+        }
+
+        /**
+         * Set the backoff after the first stream failure, it doubles with each consecutive
+         * failure. By default is 100 milliseconds.
+         *
+         * @param backoff the initial backoff
+         * @param unit    the unit of backoff
+         * @return builder
+         * @throws IllegalArgumentException if backoff is less than zero.
+         */
+        public Builder withInitialBackoff(long backoff, TimeUnit unit) {
+            checkArgument(backoff >= 0, "backoff should be greater than or equal to zero: backoff=%s", backoff);
+            checkNotNull(unit, "unit should not be null");
+            this.initialBackoffNanos = unit.toNanos(backoff);
+            return this;
+        }
+
+        /**
+         * Limit the backoff between stream failures. By default is 10 seconds.
+         *
+         * @param backoff the maximum backoff
+         * @param unit    the unit of backoff
+         * @return builder
+         * @throws IllegalArgumentException if backoff is less than zero.
+         */
+        public Builder withMaxBackoff(long backoff, TimeUnit unit) {
+            checkArgument(backoff >= 0, "backoff should be greater than or equal to zero: backoff=%s", backoff);
+            checkNotNull(unit, "unit should not be null");
+            this.maxBackoffNanos = unit.toNanos(backoff);
+            return this;
+        }
+
+        /**
+         * Set the fraction of the backoff which is randomized, so the clients of a failed
+         * member do not come back at once. By default is 0.5.
+         *
+         * @param jitter the randomized fraction, between 0 and 1
+         * @return builder
+         * @throws IllegalArgumentException if jitter is not between 0 and 1.
+         */
+        public Builder withJitter(double jitter) {
+            checkArgument(jitter >= 0 && jitter <= 1, "jitter should be between 0 and 1: jitter=%s", jitter);
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * Set the listener notified of the resume progress.
+         *
+         * @param listener the resume listener
+         * @return builder
+         */
+        public Builder withListener(WatchResumeListener listener) {
+            this.listener = Optional.of(checkNotNull(listener, "listener should not be null"));
+            return this;
+        }
+
+        /**
+         * build the watch resume option.
+         *
+         * @return the watch resume option
+         */
+        public WatchResumeOption build() {
+            return new WatchResumeOption(rate, initialBackoffNanos, Math.max(initialBackoffNanos, maxBackoffNanos), jitter, listener);
+        }
+    }
+
+    private final int                           rate;
+    private final long                          initialBackoffNanos;
+    private final long                          maxBackoffNanos;
+    private final double                        jitter;
+    private final Optional<WatchResumeListener> listener;
+
+    private WatchResumeOption(int rate, long initialBackoffNanos, long maxBackoffNanos, double jitter, Optional<WatchResumeListener> listener) {
+        this.rate = rate;
+        this.initialBackoffNanos = initialBackoffNanos;
+        this.maxBackoffNanos = maxBackoffNanos;
+        this.jitter = jitter;
+        this.listener = listener;
+    }
+
+    /**
+     * Get the maximum number of watchers re-created per second.
+     *
+     * @return the rate
+     */
+    public int getRate() {
+        return rate;
+    }
+
+    /**
+     * Get the backoff after the first stream failure in nanoseconds.
+     *
+     * @return the initial backoff
+     */
+    public long getInitialBackoffNanos() {
+        return initialBackoffNanos;
+    }
+
+    /**
+     * Get the maximum backoff in nanoseconds.
+     *
+     * @return the maximum backoff
+     */
+    public long getMaxBackoffNanos() {
+        return maxBackoffNanos;
+    }
+
+    /**
+     * Get the randomized fraction of the backoff.
+     *
+     * @return the jitter
+     */
+    public double getJitter() {
+        return jitter;
+    }
+
+    /**
+     * Get the listener notified of the resume progress.
+     *
+     * @return the resume listener
+     */
+    public Optional<WatchResumeListener> getListener() {
+        return listener;
+    }
+}
@@ -4,6 +4,8 @@ import com.coreos.jetcd.data.KeyValue;
 
 /**
  * Watch event, return by watch, contain put, delete event.
+ * <p>The events of a watch response are views over the response message, the key values are
+ * converted on first access.
  */
 public class WatchEvent {
 
@@ -0,0 +1,123 @@
+package com.coreos.jetcd.watch;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A snapshot of how far a watcher is behind etcd and behind its callback.
+ * <p>The revision lag compares the latest revision the watch stream saw in any response
+ * with the revision the callback is up to. A watcher without events only moves its revision
+ * with progress notifications, the lag of a quiet watcher is known only if it was created
+ * with progressNotify, otherwise it grows with the writes to the other keys.
+ */
+public class WatchHealth {
+
+    private final long    clusterRevision;
+    private final long    deliveredRevision;
+    private final long    dispatchLagNanos;
+    private final long    progressDelayNanos;
+    private final int     queueDepth;
+    private final long    droppedEvents;
+    private final boolean blocked;
+    private final boolean resuming;
+    private final boolean canceled;
+
+    public WatchHealth(long clusterRevision, long deliveredRevision, long dispatchLagNanos, long progressDelayNanos,
+                       int queueDepth, long droppedEvents, boolean blocked, boolean resuming, boolean canceled) {
+        this.clusterRevision = clusterRevision;
+        this.deliveredRevision = deliveredRevision;
+        this.dispatchLagNanos = dispatchLagNanos;
+        this.progressDelayNanos = progressDelayNanos;
+        this.queueDepth = queueDepth;
+        this.droppedEvents = droppedEvents;
+        this.blocked = blocked;
+        this.resuming = resuming;
+        this.canceled = canceled;
+    }
+
+    /**
+     * get the latest revision seen on the watch stream.
+     *
+     * @return the cluster revision
+     */
+    public long getClusterRevision() {
+        return clusterRevision;
+    }
+
+    /**
+     * get the revision up to which the events were passed to the callback.
+     *
+     * @return the delivered revision
+     */
+    public long getDeliveredRevision() {
+        return deliveredRevision;
+    }
+
+    /**
+     * get how many revisions the callback is behind the watch stream.
+     *
+     * @return the revision lag, zero if the callback is up to date
+     */
+    public long getRevisionLag() {
+        return Math.max(0, clusterRevision - deliveredRevision);
+    }
+
+    /**
+     * get how long the oldest event not passed to the callback yet has been waiting.
+     *
+     * @return dispatch lag in nanoseconds
+     */
+    public long getDispatchLagNanos() {
+        return dispatchLagNanos;
+    }
+
+    /**
+     * get how long ago etcd last sent the watcher an event or a progress notification.
+     *
+     * @return progress delay in nanoseconds
+     */
+    public long getProgressDelayNanos() {
+        return progressDelayNanos;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents;
+    }
+
+    /**
+     * whether the dispatch queue is full and stops the reading of the watch stream.
+     *
+     * @return true if blocked
+     */
+    public boolean isBlocked() {
+        return blocked;
+    }
+
+    public boolean isResuming() {
+        return resuming;
+    }
+
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    /**
+     * whether the watcher delivers its events within the limits.
+     *
+     * @param maxRevisionLag the maximum revision lag
+     * @param maxDelay       the maximum dispatch lag
+     * @param unit           the unit of the delay
+     * @return false if the watcher is canceled, blocked or over a limit
+     */
+    public boolean isHealthy(long maxRevisionLag, long maxDelay, TimeUnit unit) {
+        checkNotNull(unit, "unit should not be null");
+        return !canceled && !blocked
+                && getRevisionLag() <= maxRevisionLag
+                && dispatchLagNanos <= unit.toNanos(maxDelay);
+    }
+}
@@ -0,0 +1,28 @@
+package com.coreos.jetcd.watch;
+
+/**
+ * What a watcher does when its dispatch queue is full, because its callback consumes events
+ * slower than etcd sends them.
+ */
+public enum WatchOverflowPolicy {
+
+    /**
+     * Stop reading the watch stream until the queue drains, through gRPC flow control. No
+     * event is lost, but the other watchers sharing the stream are paused as well. This is
+     * the default, a client with several watch streams confines the pause to one of them.
+     */
+    BLOCK,
+
+    /**
+     * Drop the queued events and re-create the watcher from the revision of the first dropped
+     * event, so etcd sends them again. The callback is notified by onResuming. No event is
+     * lost unless the revision is compacted meanwhile.
+     */
+    DROP_AND_RESYNC,
+
+    /**
+     * Keep only the latest queued event of each key. Intermediate updates of a key are lost,
+     * the queue is bounded by the number of distinct keys instead of the queue size.
+     */
+    COALESCE
+}
@@ -0,0 +1,64 @@
+package com.coreos.jetcd.watch;
+
+/**
+ * Publisher of the events of one watch, pulled by the subscriber.
+ * <p>The interfaces follow the Reactive Streams signatures, so an adapter to
+ * {@code org.reactivestreams.Publisher} or {@code java.util.concurrent.Flow.Publisher} only
+ * forwards the calls. Each subscription creates its own watcher. Events are passed to the
+ * subscriber only as far as it requested them, the others wait in the dispatch queue of the
+ * watcher.
+ * <p>With the {@link WatchOverflowPolicy#BLOCK} policy, the default, a full queue stops the
+ * reading of the watch stream, which carries the events of every watcher of the client. A
+ * subscriber which stops requesting then stalls all the other watches of the client, not
+ * only its own. Subscribers which may fall behind should use
+ * {@link WatchOverflowPolicy#DROP_AND_RESYNC}, or a client of their own.
+ */
+public interface WatchPublisher {
+
+    /**
+     * create a watcher for the subscriber, {@link Subscriber#onSubscribe} is called first.
+     *
+     * @param subscriber the subscriber of the events
+     */
+    void subscribe(Subscriber subscriber);
+
+    /**
+     * Receives the events of a watch.
+     */
+    interface Subscriber {
+
+        void onSubscribe(Subscription subscription);
+
+        void onNext(WatchEvent event);
+
+        /**
+         * the watcher could not be created, was canceled by etcd, or the demand was invalid,
+         * no event follows. Called on the dispatch executor like {@link #onNext}, never
+         * concurrently with it.
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * a watch has no end, it is only called for the completeness of the protocol.
+         */
+        void onComplete();
+    }
+
+    /**
+     * The demand of a subscriber.
+     */
+    interface Subscription {
+
+        /**
+         * request more events.
+         *
+         * @param n the number of events, greater than zero
+         */
+        void request(long n);
+
+        /**
+         * stop the events and cancel the watcher.
+         */
+        void cancel();
+    }
+}
@@ -0,0 +1,15 @@
+package com.coreos.jetcd.watch;
+
+/**
+ * Listener of the progress of resuming the watchers after a watch stream failure.
+ */
+public interface WatchResumeListener {
+
+    /**
+     * called after a round of watchers was re-created.
+     *
+     * @param resumed   the number of watchers re-created since the stream failed
+     * @param remaining the number of watchers waiting to be re-created
+     */
+    void onResumeProgress(int resumed, int remaining);
+}
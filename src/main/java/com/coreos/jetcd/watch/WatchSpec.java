@@ -0,0 +1,37 @@
+package com.coreos.jetcd.watch;
+
+import com.coreos.jetcd.EtcdWatch;
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.options.WatchOption;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * One watch of a bulk registration, the arguments of {@link EtcdWatch#watch}.
+ */
+public class WatchSpec {
+
+    private final ByteSequence key;
+
+    private final WatchOption watchOption;
+
+    private final EtcdWatch.WatchCallback callback;
+
+    public WatchSpec(ByteSequence key, WatchOption watchOption, EtcdWatch.WatchCallback callback) {
+        this.key = checkNotNull(key, "key should not be null");
+        this.watchOption = checkNotNull(watchOption, "watchOption should not be null");
+        this.callback = callback;
+    }
+
+    public ByteSequence getKey() {
+        return key;
+    }
+
+    public WatchOption getWatchOption() {
+        return watchOption;
+    }
+
+    public EtcdWatch.WatchCallback getCallback() {
+        return callback;
+    }
+}
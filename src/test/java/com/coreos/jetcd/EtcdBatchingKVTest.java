@@ -0,0 +1,164 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.lease.Lease;
+import com.coreos.jetcd.op.Op;
+import com.coreos.jetcd.op.Txn;
+import com.coreos.jetcd.options.BatchOption;
+import com.coreos.jetcd.options.PutOption;
+import io.grpc.Status;
+
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.Test;
+import org.testng.asserts.Assertion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Batching KV client test cases, the wrapped kv client is mocked.
+ */
+public class EtcdBatchingKVTest {
+
+    private Assertion test = new Assertion();
+
+    private EtcdKV mockKV() {
+        EtcdKV kv = mock(EtcdKV.class);
+        when(kv.commit(any(Txn.class))).thenAnswer(invocation -> {
+            Txn txn = (Txn) invocation.getArguments()[0];
+            List<EtcdKV.OperationResult> results = new ArrayList<>();
+            for (Op op : txn.successOpList) {
+                if (op instanceof Op.PutOp) {
+                    results.add(new EtcdKV.PutResult(null, null));
+                } else {
+                    results.add(new EtcdKV.DeleteResult(null, 1, new ArrayList<>()));
+                }
+            }
+            return CompletableFuture.completedFuture(new EtcdKV.TxnResult(null, true, results));
+        });
+        return kv;
+    }
+
+    /**
+     * mock a kv client which rejects the txns holding a put with a lease, as etcd does for an
+     * unknown lease, or fails every txn with the status.
+     */
+    private EtcdKV rejectingKV(Status status, boolean always) {
+        EtcdKV kv = mock(EtcdKV.class);
+        when(kv.commit(any(Txn.class))).thenAnswer(invocation -> {
+            Txn txn = (Txn) invocation.getArguments()[0];
+            List<EtcdKV.OperationResult> results = new ArrayList<>();
+            for (Op op : txn.successOpList) {
+                if (always || op instanceof Op.PutOp && op.key.toStringUtf8().startsWith("leased")) {
+                    CompletableFuture<EtcdKV.TxnResult> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(status.asRuntimeException());
+                    return failed;
+                }
+                results.add(new EtcdKV.PutResult(null, null));
+            }
+            return CompletableFuture.completedFuture(new EtcdKV.TxnResult(null, true, results));
+        });
+        return kv;
+    }
+
+    @Test
+    public void testRejectedBatchCommittedPerOperation() throws Exception {
+        EtcdKV kv = rejectingKV(Status.NOT_FOUND.withDescription("etcdserver: requested lease not found"), false);
+        EtcdBatchingKV batchingKV = new EtcdBatchingKV(kv, BatchOption.newBuilder()
+                .withMaxBatchSize(3)
+                .withMaxDelay(1, TimeUnit.HOURS)
+                .build());
+
+        CompletableFuture<EtcdKV.PutResult> first = batchingKV.put(ByteSequence.fromString("k1"), ByteSequence.fromString("v1"));
+        CompletableFuture<EtcdKV.PutResult> leased = batchingKV.put(ByteSequence.fromString("leased"), ByteSequence.fromString("v2"),
+                PutOption.newBuilder().withLeaseId(new Lease(7, 10, null)).build());
+        CompletableFuture<EtcdKV.PutResult> third = batchingKV.put(ByteSequence.fromString("k3"), ByteSequence.fromString("v3"));
+
+        // only the put with the unknown lease fails
+        test.assertNotNull(first.get(1, TimeUnit.SECONDS));
+        test.assertNotNull(third.get(1, TimeUnit.SECONDS));
+        try {
+            leased.get(1, TimeUnit.SECONDS);
+            test.fail("the put with the unknown lease should fail");
+        } catch (ExecutionException e) {
+            test.assertEquals(Status.fromThrowable(e).getCode(), Status.Code.NOT_FOUND);
+        }
+        verify(kv, times(4)).commit(any(Txn.class));
+        batchingKV.close();
+    }
+
+    @Test
+    public void testUnavailableBatchFailsTogether() throws Exception {
+        EtcdKV kv = rejectingKV(Status.UNAVAILABLE, true);
+        EtcdBatchingKV batchingKV = new EtcdBatchingKV(kv, BatchOption.newBuilder()
+                .withMaxBatchSize(2)
+                .withMaxDelay(1, TimeUnit.HOURS)
+                .build());
+
+        CompletableFuture<EtcdKV.PutResult> first = batchingKV.put(ByteSequence.fromString("k1"), ByteSequence.fromString("v1"));
+        CompletableFuture<EtcdKV.PutResult> second = batchingKV.put(ByteSequence.fromString("k2"), ByteSequence.fromString("v2"));
+        test.assertTrue(first.isCompletedExceptionally());
+        test.assertTrue(second.isCompletedExceptionally());
+        // the txn may have been applied, it is not committed again
+        verify(kv, times(1)).commit(any(Txn.class));
+        batchingKV.close();
+    }
+
+    @Test
+    public void testBatchBySize() throws ExecutionException, InterruptedException {
+        EtcdKV kv = mockKV();
+        EtcdBatchingKV batchingKV = new EtcdBatchingKV(kv, BatchOption.newBuilder()
+                .withMaxBatchSize(2)
+                .withMaxDelay(1, TimeUnit.HOURS)
+                .build());
+
+        CompletableFuture<EtcdKV.PutResult> first = batchingKV.put(ByteSequence.fromString("k1"), ByteSequence.fromString("v1"));
+        CompletableFuture<EtcdKV.DeleteResult> second = batchingKV.delete(ByteSequence.fromString("k2"));
+
+        test.assertNotNull(first.get());
+        test.assertEquals(second.get().deleted, 1);
+
+        ArgumentCaptor<Txn> txn = ArgumentCaptor.forClass(Txn.class);
+        verify(kv, times(1)).commit(txn.capture());
+        test.assertEquals(txn.getValue().successOpList.size(), 2);
+        batchingKV.close();
+    }
+
+    @Test
+    public void testDuplicateKeyStartsNewBatch() throws ExecutionException, InterruptedException {
+        EtcdKV kv = mockKV();
+        EtcdBatchingKV batchingKV = new EtcdBatchingKV(kv, BatchOption.newBuilder()
+                .withMaxDelay(1, TimeUnit.HOURS)
+                .build());
+
+        CompletableFuture<EtcdKV.PutResult> first = batchingKV.put(ByteSequence.fromString("k1"), ByteSequence.fromString("v1"));
+        CompletableFuture<EtcdKV.PutResult> second = batchingKV.put(ByteSequence.fromString("k1"), ByteSequence.fromString("v2"));
+        test.assertTrue(first.isDone());
+        test.assertFalse(second.isDone());
+
+        batchingKV.close();
+        test.assertNotNull(second.get());
+        verify(kv, times(2)).commit(any(Txn.class));
+    }
+
+    @Test
+    public void testBatchByDelay() throws Exception {
+        EtcdKV kv = mockKV();
+        EtcdBatchingKV batchingKV = new EtcdBatchingKV(kv, BatchOption.newBuilder()
+                .withMaxDelay(10, TimeUnit.MILLISECONDS)
+                .build());
+
+        CompletableFuture<EtcdKV.PutResult> future = batchingKV.put(ByteSequence.fromString("k1"), ByteSequence.fromString("v1"));
+        test.assertNotNull(future.get(5, TimeUnit.SECONDS));
+        batchingKV.close();
+    }
+}
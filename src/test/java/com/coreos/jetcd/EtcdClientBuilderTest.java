@@ -39,4 +39,19 @@ public class EtcdClientBuilderTest {
     public void testBuild_WithoutEndpoints() throws AuthFailedException, ConnectException {
         builder.build();
     }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void testCallExecutor_Null() {
+        builder.setCallExecutor(null);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testWatchStreams_Zero() {
+        builder.setWatchStreams(0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testWatchChannels_Zero() {
+        builder.setWatchChannels(0);
+    }
 }
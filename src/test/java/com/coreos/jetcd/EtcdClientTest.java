@@ -0,0 +1,485 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.api.KVGrpc;
+import com.coreos.jetcd.api.LeaseGrpc;
+import com.coreos.jetcd.api.LeaseKeepAliveRequest;
+import com.coreos.jetcd.api.LeaseKeepAliveResponse;
+import com.coreos.jetcd.api.RangeRequest;
+import com.coreos.jetcd.api.RangeResponse;
+import com.coreos.jetcd.api.ResponseHeader;
+import com.coreos.jetcd.api.WatchGrpc;
+import com.coreos.jetcd.api.WatchRequest;
+import com.coreos.jetcd.api.WatchResponse;
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.EtcdHeader;
+import com.coreos.jetcd.lease.Lease;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.options.WatchResumeOption;
+import com.coreos.jetcd.watch.WatchEvent;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.testng.asserts.Assertion;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Client test cases, against an in-process KV service which holds the range calls on the
+ * key "hold", and in-process Watch and Lease services whose responses are written by hand.
+ */
+public class EtcdClientTest {
+
+    private Assertion test = new Assertion();
+
+    private Server server;
+
+    private String name;
+
+    /**
+     * the range calls on the key "hold", answered by the test if at all
+     */
+    private List<StreamObserver<RangeResponse>> heldRanges = new CopyOnWriteArrayList<>();
+
+    /**
+     * the response streams of the watch calls, in the order they were opened
+     */
+    private List<StreamObserver<WatchResponse>> watchStreams = new CopyOnWriteArrayList<>();
+
+    private BlockingQueue<WatchRequest> watchRequests = new LinkedBlockingQueue<>();
+
+    /**
+     * the response streams of the lease keep alive calls, in the order they were opened
+     */
+    private List<StreamObserver<LeaseKeepAliveResponse>> leaseStreams = new CopyOnWriteArrayList<>();
+
+    private BlockingQueue<Long> keepAliveRequests = new LinkedBlockingQueue<>();
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        name = "client-test-" + System.nanoTime();
+        heldRanges.clear();
+        watchStreams.clear();
+        watchRequests.clear();
+        leaseStreams.clear();
+        keepAliveRequests.clear();
+        server = InProcessServerBuilder.forName(name).addService(new WatchGrpc.WatchImplBase() {
+            @Override
+            public StreamObserver<WatchRequest> watch(StreamObserver<WatchResponse> responseObserver) {
+                watchStreams.add(responseObserver);
+                return new StreamObserver<WatchRequest>() {
+                    @Override
+                    public void onNext(WatchRequest request) {
+                        watchRequests.add(request);
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                    }
+                };
+            }
+        }).addService(new LeaseGrpc.LeaseImplBase() {
+            @Override
+            public StreamObserver<LeaseKeepAliveRequest> leaseKeepAlive(StreamObserver<LeaseKeepAliveResponse> responseObserver) {
+                leaseStreams.add(responseObserver);
+                return new StreamObserver<LeaseKeepAliveRequest>() {
+                    @Override
+                    public void onNext(LeaseKeepAliveRequest request) {
+                        keepAliveRequests.add(request.getID());
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                    }
+                };
+            }
+        }).addService(new KVGrpc.KVImplBase() {
+            @Override
+            public void range(RangeRequest request, StreamObserver<RangeResponse> responseObserver) {
+                if (request.getKey().toStringUtf8().equals("hold")) {
+                    heldRanges.add(responseObserver);
+                    return;
+                }
+                responseObserver.onNext(RangeResponse.newBuilder()
+                        .setHeader(ResponseHeader.newBuilder().setRevision(1)).build());
+                responseObserver.onCompleted();
+            }
+        }).build().start();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        server.shutdownNow();
+    }
+
+    private EtcdClient newClient(EtcdClientBuilder builder) throws Exception {
+        return new EtcdClient(InProcessChannelBuilder.forName(name), builder.endpoints("fake:2379"));
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (!condition.getAsBoolean() && System.nanoTime() - deadline < 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    private WatchRequest nextWatchRequest() throws InterruptedException {
+        WatchRequest request = watchRequests.poll(1, TimeUnit.SECONDS);
+        test.assertNotNull(request, "no watch request was sent");
+        return request;
+    }
+
+    /**
+     * answer the oldest create of the latest watch stream.
+     */
+    private void respondCreated(long watchId) {
+        respond(WatchResponse.newBuilder().setCreated(true).setWatchId(watchId));
+    }
+
+    private void respondCanceled(long watchId) {
+        respond(WatchResponse.newBuilder().setCanceled(true).setWatchId(watchId));
+    }
+
+    private void respond(WatchResponse.Builder response) {
+        watchStreams.get(watchStreams.size() - 1).onNext(response.setHeader(ResponseHeader.newBuilder().setRevision(1)).build());
+    }
+
+    /**
+     * a client re-creating the watchers of a failed stream at once.
+     */
+    private EtcdClient newResumingClient() throws Exception {
+        return newClient(EtcdClientBuilder.newBuilder().setWatchResumeOption(
+                WatchResumeOption.newBuilder().withInitialBackoff(0, TimeUnit.MILLISECONDS).build()));
+    }
+
+    private EtcdWatch.WatchCallback callback() {
+        return callback(new LinkedBlockingQueue<>());
+    }
+
+    /**
+     * a callback recording the compact revision of every response.
+     */
+    private EtcdWatch.WatchCallback callback(BlockingQueue<Long> compactRevisions) {
+        return new EtcdWatch.WatchCallback() {
+            @Override
+            public void onWatch(EtcdHeader header, long compactRevision, List<WatchEvent> events) {
+                compactRevisions.add(compactRevision);
+            }
+
+            @Override
+            public void onResuming() {
+            }
+        };
+    }
+
+    private long nextKeepAliveRequest() throws InterruptedException {
+        Long id = keepAliveRequests.poll(1, TimeUnit.SECONDS);
+        test.assertNotNull(id, "no keep alive request was sent");
+        return id;
+    }
+
+    /**
+     * answer a keep alive on the latest keep alive stream.
+     */
+    private void respondKeepAlive(long id, long ttl) {
+        leaseStreams.get(leaseStreams.size() - 1).onNext(LeaseKeepAliveResponse.newBuilder()
+                .setHeader(ResponseHeader.newBuilder().setRevision(1)).setID(id).setTTL(ttl).build());
+    }
+
+    /**
+     * keep alive the leases 1, 2 and 3 and answer them with ttls putting their dead lines in
+     * the order 2, 3, 1.
+     */
+    private void keepAliveLeases(EtcdLease lease) throws InterruptedException {
+        lease.keepAlive(new Lease(1, 30, null), null);
+        lease.keepAlive(new Lease(2, 10, null), null);
+        lease.keepAlive(new Lease(3, 20, null), null);
+        Set<Long> sent = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            sent.add(nextKeepAliveRequest());
+        }
+        test.assertEquals(sent, new HashSet<>(Arrays.asList(1L, 2L, 3L)));
+        respondKeepAlive(1, 30);
+        respondKeepAlive(2, 10);
+        respondKeepAlive(3, 20);
+    }
+
+    private static Set<Thread> watchThreads() {
+        Set<Thread> threads = new HashSet<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("jetcd-watch-")) {
+                threads.add(thread);
+            }
+        }
+        return threads;
+    }
+
+    @Test
+    public void testConfiguredExecutor() throws Exception {
+        AtomicInteger executed = new AtomicInteger();
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Executor executor = command -> {
+            executed.incrementAndGet();
+            pool.execute(command);
+        };
+        EtcdClient client = newClient(EtcdClientBuilder.newBuilder().setCallExecutor(executor));
+        client.getKVClient().get(ByteSequence.fromString("key")).get(1, TimeUnit.SECONDS);
+        test.assertEquals(executed.get(), 1);
+
+        // the configured executor is not shut down with the client
+        client.close();
+        test.assertFalse(pool.isShutdown());
+        pool.shutdown();
+    }
+
+    @Test
+    public void testDefaultExecutor() throws Exception {
+        EtcdClient client = newClient(EtcdClientBuilder.newBuilder());
+        // the stage is added before the response, so it runs where the future is completed
+        CompletableFuture<String> thread = client.getKVClient().get(ByteSequence.fromString("hold"))
+                .thenApply(result -> Thread.currentThread().getName());
+        await(() -> !heldRanges.isEmpty());
+        heldRanges.get(0).onNext(RangeResponse.newBuilder().setHeader(ResponseHeader.newBuilder().setRevision(1)).build());
+        heldRanges.get(0).onCompleted();
+        String name = thread.get(1, TimeUnit.SECONDS);
+        test.assertTrue(name.startsWith("jetcd-call-"), name);
+        client.close();
+    }
+
+    @Test
+    public void testCloseCompletesPendingCalls() throws Exception {
+        EtcdClient client = newClient(EtcdClientBuilder.newBuilder());
+        CompletableFuture<EtcdKV.RangeResult> pending = client.getKVClient().get(ByteSequence.fromString("hold"));
+        client.close();
+        try {
+            pending.get(1, TimeUnit.SECONDS);
+            test.fail("the call should fail with the channel");
+        } catch (ExecutionException e) {
+            // canceled by the shut down channel
+        }
+    }
+
+    @Test
+    public void testShutDownExecutor() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        EtcdClient client = newClient(EtcdClientBuilder.newBuilder().setCallExecutor(pool));
+        CompletableFuture<EtcdKV.RangeResult> pending = client.getKVClient().get(ByteSequence.fromString("hold"));
+        pool.shutdown();
+
+        // the rejected completion runs in the gRPC thread
+        client.close();
+        try {
+            pending.get(1, TimeUnit.SECONDS);
+            test.fail("the call should fail with the channel");
+        } catch (ExecutionException e) {
+            // canceled by the shut down channel
+        }
+    }
+
+    @Test
+    public void testCloseCancelsWatchers() throws Exception {
+        Set<Thread> before = watchThreads();
+        EtcdClient client = newClient(EtcdClientBuilder.newBuilder());
+        EtcdWatchImpl watch = (EtcdWatchImpl) client.getWatchClient();
+        CompletableFuture<EtcdWatch.Watcher> created = watch.watch(ByteSequence.fromString("a"), WatchOption.DEFAULT, callback());
+        nextWatchRequest();
+        respondCreated(1);
+        EtcdWatch.Watcher watcher = created.get(1, TimeUnit.SECONDS);
+        CompletableFuture<EtcdWatch.Watcher> pending = watch.watch(ByteSequence.fromString("b"), WatchOption.DEFAULT, callback());
+        nextWatchRequest();
+
+        client.close();
+        try {
+            pending.get(1, TimeUnit.SECONDS);
+            test.fail("the create should fail with the client");
+        } catch (ExecutionException e) {
+            test.assertTrue(e.getCause() instanceof IllegalStateException, e.toString());
+        }
+        // the failed stream is not resumed, the watcher is canceled without a cancel request
+        test.assertTrue(watcher.cancel().get(1, TimeUnit.SECONDS));
+        test.assertEquals(watch.getPendingResumes(), 0);
+        test.assertEquals(watchStreams.size(), 1);
+        await(() -> before.containsAll(watchThreads()));
+        test.assertTrue(before.containsAll(watchThreads()), "the watch threads are not shut down");
+        try {
+            watch.watch(ByteSequence.fromString("c"), WatchOption.DEFAULT, callback());
+            test.fail("the closed client should reject the watch");
+        } catch (IllegalStateException e) {
+            // closed
+        }
+    }
+
+    @Test
+    public void testCompactedWatcherCanceled() throws Exception {
+        EtcdClient client = newClient(EtcdClientBuilder.newBuilder());
+        EtcdWatch watch = client.getWatchClient();
+        BlockingQueue<Long> compactRevisions = new LinkedBlockingQueue<>();
+        CompletableFuture<EtcdWatch.Watcher> created = watch.watch(ByteSequence.fromString("a"), WatchOption.DEFAULT, callback(compactRevisions));
+        nextWatchRequest();
+        respondCreated(1);
+        EtcdWatch.Watcher watcher = created.get(1, TimeUnit.SECONDS);
+
+        // etcd reports the compaction with the cancel of the watcher
+        watchStreams.get(0).onNext(WatchResponse.newBuilder().setHeader(ResponseHeader.newBuilder().setRevision(10))
+                .setWatchId(1).setCanceled(true).setCompactRevision(7).build());
+        test.assertEquals(compactRevisions.poll(1, TimeUnit.SECONDS), Long.valueOf(7));
+        test.assertTrue(watcher.getHealth().isCanceled());
+        test.assertTrue(watcher.cancel().get(1, TimeUnit.SECONDS));
+        client.close();
+    }
+
+    @Test
+    public void testCreateTimeout() throws Exception {
+        EtcdClient client = newClient(EtcdClientBuilder.newBuilder());
+        EtcdWatch watch = client.getWatchClient();
+        WatchOption option = WatchOption.newBuilder().withCreateTimeout(100, TimeUnit.MILLISECONDS).build();
+        CompletableFuture<EtcdWatch.Watcher> timingOut = watch.watch(ByteSequence.fromString("a"), option, callback());
+        nextWatchRequest();
+        try {
+            timingOut.get(1, TimeUnit.SECONDS);
+            test.fail("the create should time out");
+        } catch (ExecutionException e) {
+            test.assertTrue(e.getCause() instanceof TimeoutException, e.toString());
+        }
+
+        // the late response still answers the abandoned create, its watcher is canceled
+        respondCreated(5);
+        test.assertEquals(nextWatchRequest().getCancelRequest().getWatchId(), 5L);
+
+        // the next create is matched with its own response
+        CompletableFuture<EtcdWatch.Watcher> next = watch.watch(ByteSequence.fromString("b"), WatchOption.DEFAULT, callback());
+        test.assertEquals(nextWatchRequest().getCreateRequest().getKey().toStringUtf8(), "b");
+        respondCreated(6);
+        test.assertEquals(next.get(1, TimeUnit.SECONDS).getWatchID(), 6L);
+        client.close();
+    }
+
+    @Test
+    public void testPendingCreatesResentAfterStreamFailure() throws Exception {
+        EtcdClient client = newResumingClient();
+        EtcdWatch watch = client.getWatchClient();
+        CompletableFuture<EtcdWatch.Watcher> created = watch.watch(ByteSequence.fromString("a"), WatchOption.DEFAULT, callback());
+        CompletableFuture<EtcdWatch.Watcher> pending = watch.watch(ByteSequence.fromString("b"), WatchOption.DEFAULT, callback());
+        nextWatchRequest();
+        nextWatchRequest();
+        respondCreated(1);
+        EtcdWatch.Watcher watcher = created.get(1, TimeUnit.SECONDS);
+
+        watchStreams.get(0).onError(Status.UNAVAILABLE.asRuntimeException());
+        // the created watcher resumes after the revision of its create, the unanswered create is sent again
+        WatchRequest resumed = nextWatchRequest();
+        WatchRequest resent = nextWatchRequest();
+        test.assertEquals(watchStreams.size(), 2);
+        test.assertEquals(Arrays.asList(resumed.getCreateRequest().getKey().toStringUtf8(), resent.getCreateRequest().getKey().toStringUtf8()),
+                Arrays.asList("a", "b"));
+        test.assertEquals(resumed.getCreateRequest().getStartRevision(), 2L);
+        test.assertEquals(resent.getCreateRequest().getStartRevision(), 0L);
+
+        respondCreated(3);
+        respondCreated(4);
+        test.assertEquals(pending.get(1, TimeUnit.SECONDS).getWatchID(), 4L);
+        test.assertEquals(watcher.getWatchID(), 3L);
+        test.assertFalse(watcher.isResuming());
+        client.close();
+    }
+
+    @Test
+    public void testCancelBeforeWatchId() throws Exception {
+        EtcdClient client = newResumingClient();
+        EtcdWatch watch = client.getWatchClient();
+        CompletableFuture<EtcdWatch.Watcher> created = watch.watch(ByteSequence.fromString("a"), WatchOption.DEFAULT, callback());
+        nextWatchRequest();
+        respondCreated(1);
+        EtcdWatch.Watcher watcher = created.get(1, TimeUnit.SECONDS);
+
+        watchStreams.get(0).onError(Status.UNAVAILABLE.asRuntimeException());
+        nextWatchRequest();
+        // canceled while its re-create is not answered, the watcher has no watch id to cancel yet
+        CompletableFuture<Boolean> canceled = watcher.cancel();
+        test.assertFalse(canceled.isDone());
+
+        respondCreated(2);
+        test.assertEquals(nextWatchRequest().getCancelRequest().getWatchId(), 2L);
+        test.assertFalse(canceled.isDone());
+        respondCanceled(2);
+        test.assertTrue(canceled.get(1, TimeUnit.SECONDS));
+        client.close();
+    }
+
+    @Test
+    public void testLeaseStreamReconnected() throws Exception {
+        EtcdClient client = newClient(EtcdClientBuilder.newBuilder());
+        EtcdLease lease = client.getLeaseClient();
+        lease.startKeepAliveService();
+        keepAliveLeases(lease);
+
+        // the next keep alives are seconds away, the new stream keeps every lease alive at once
+        leaseStreams.get(0).onError(Status.UNAVAILABLE.asException());
+        test.assertEquals(nextKeepAliveRequest(), 2L);
+        test.assertEquals(nextKeepAliveRequest(), 3L);
+        test.assertEquals(nextKeepAliveRequest(), 1L);
+        test.assertEquals(leaseStreams.size(), 2);
+        client.close();
+    }
+
+    @Test
+    public void testLeaseStreamNotReconnectedAfterClose() throws Exception {
+        EtcdClient client = newClient(EtcdClientBuilder.newBuilder());
+        EtcdLease lease = client.getLeaseClient();
+        lease.startKeepAliveService();
+        keepAliveLeases(lease);
+
+        // the reconnect scheduled by the failure is dropped by the close
+        leaseStreams.get(0).onError(Status.UNAVAILABLE.asException());
+        client.close();
+        int streams = leaseStreams.size();
+        Thread.sleep(300);
+        test.assertEquals(leaseStreams.size(), streams);
+        test.assertFalse(lease.isKeepAliveServiceRunning());
+    }
+
+    @Test
+    public void testLeaseStreamNotReconnectedWithChannel() throws Exception {
+        ManagedChannel channel = InProcessChannelBuilder.forName(name).build();
+        EtcdLeaseImpl lease = new EtcdLeaseImpl(channel, Optional.empty(), Runnable::run);
+        lease.startKeepAliveService();
+        keepAliveLeases(lease);
+
+        // the stream canceled with the channel fails, it is not opened again
+        channel.shutdownNow();
+        Thread.sleep(300);
+        test.assertEquals(leaseStreams.size(), 1);
+        test.assertTrue(keepAliveRequests.isEmpty());
+        lease.closeKeepAliveService();
+    }
+}
@@ -0,0 +1,152 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.EtcdHeader;
+import com.coreos.jetcd.exception.AuthFailedException;
+import com.coreos.jetcd.exception.ConnectException;
+import com.coreos.jetcd.options.CacheOption;
+import com.coreos.jetcd.options.GetOption;
+import com.coreos.jetcd.options.WatchOption;
+
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+import org.testng.asserts.Assertion;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * kv cache test cases, the retry cases mock the kv and watch clients.
+ */
+public class EtcdKVCacheTest {
+
+    private EtcdClient  client;
+    private EtcdKV      kvClient;
+    private EtcdKVCache cache;
+
+    private ByteSequence prefix = ByteSequence.fromString("cache_test/");
+    private ByteSequence key    = ByteSequence.fromString("cache_test/key");
+
+    private Assertion test = new Assertion();
+
+    @BeforeTest
+    public void setUp() throws AuthFailedException, ConnectException {
+        client = EtcdClientBuilder.newBuilder().endpoints("localhost:2379").build();
+        kvClient = client.getKVClient();
+        cache = client.newKVCache(prefix, CacheOption.DEFAULT);
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        kvClient.put(key, ByteSequence.fromString("value1")).get();
+        cache.start().get(5, TimeUnit.SECONDS);
+
+        EtcdKV.RangeResult result = cache.get(key).get();
+        test.assertEquals(result.kvs.size(), 1);
+        test.assertEquals(result.kvs.get(0).getValue().toStringUtf8(), "value1");
+        test.assertTrue(result.header.getRevision() >= result.kvs.get(0).getModRevision());
+    }
+
+    @Test(dependsOnMethods = "testLoad")
+    public void testWatchUpdate() throws Exception {
+        EtcdKV.PutResult putResult = kvClient.put(key, ByteSequence.fromString("value2")).get();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cache.getRevision() < putResult.header.getRevision() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        EtcdKV.RangeResult result = cache.get(key).get();
+        test.assertEquals(result.kvs.get(0).getValue().toStringUtf8(), "value2");
+    }
+
+    @Test(dependsOnMethods = "testWatchUpdate")
+    public void testWatchDelete() throws Exception {
+        EtcdKV.DeleteResult deleteResult = kvClient.delete(key).get();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cache.getRevision() < deleteResult.header.getRevision() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        test.assertTrue(cache.get(key).get().kvs.isEmpty());
+    }
+
+    /**
+     * mock a kv client whose first loads fail, the range is empty at revision 5.
+     */
+    private EtcdKV failingKV(AtomicInteger loads, int failures) {
+        EtcdKV kv = mock(EtcdKV.class);
+        when(kv.get(any(ByteSequence.class), any(GetOption.class))).thenReturn(CompletableFuture.completedFuture(
+                new EtcdKV.RangeResult(new EtcdHeader(0, 0, 5, 0), Collections.emptyList(), false, 0)));
+        when(kv.iterate(any(ByteSequence.class), any(GetOption.class), anyInt())).thenAnswer(invocation -> {
+            if (loads.incrementAndGet() <= failures) {
+                throw new CompletionException(new IllegalStateException("etcd unavailable"));
+            }
+            Object[] args = invocation.getArguments();
+            return new EtcdRangeIterator(kv, (ByteSequence) args[0], (GetOption) args[1], (Integer) args[2]);
+        });
+        return kv;
+    }
+
+    private EtcdWatch mockWatch(CompletableFuture<EtcdWatch.Watcher> created) {
+        EtcdWatch watch = mock(EtcdWatch.class);
+        when(watch.watch(any(ByteSequence.class), any(WatchOption.class), any(EtcdWatch.WatchCallback.class))).thenReturn(created);
+        return watch;
+    }
+
+    @Test
+    public void testFailedLoadRetried() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CacheOption option = CacheOption.newBuilder().withInitialBackoff(200, TimeUnit.MILLISECONDS).build();
+        EtcdKVCache failing = new EtcdKVCache(failingKV(loads, 1),
+                mockWatch(CompletableFuture.completedFuture(mock(EtcdWatch.Watcher.class))), prefix, option);
+        try {
+            failing.start().get(1, TimeUnit.SECONDS);
+            test.fail("the start should fail with the first load");
+        } catch (ExecutionException e) {
+            test.assertFalse(failing.isReady());
+        }
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!failing.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        test.assertTrue(failing.isReady());
+        test.assertEquals(loads.get(), 2);
+        test.assertEquals(failing.getRevision(), 5L);
+        failing.close();
+    }
+
+    @Test
+    public void testFailedWatchCreateBackedOff() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<EtcdWatch.Watcher> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("permission denied"));
+        CacheOption option = CacheOption.newBuilder().withInitialBackoff(50, TimeUnit.MILLISECONDS).build();
+        EtcdKVCache failing = new EtcdKVCache(failingKV(loads, 0), mockWatch(failed), prefix, option);
+        failing.start();
+
+        // loads at 0, 50, 150 and 350 ms, not a reload loop
+        Thread.sleep(300);
+        test.assertTrue(loads.get() >= 2 && loads.get() <= 4, "loads=" + loads.get());
+        test.assertFalse(failing.isReady());
+        failing.close();
+    }
+
+    @AfterTest
+    public void tearDown() {
+        cache.close();
+        client.close();
+    }
+}
@@ -0,0 +1,127 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.EtcdHeader;
+import com.coreos.jetcd.data.KeyValue;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.watch.WatchEvent;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.testng.asserts.Assertion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Merged watch test cases, the watch client is mocked and the watcher callbacks driven by hand.
+ */
+public class EtcdMergedWatchTest {
+
+    private Assertion test = new Assertion();
+
+    private List<EtcdWatch.WatchCallback> callbacks = new ArrayList<>();
+
+    private List<Long> merged = new ArrayList<>();
+
+    private List<Long> compacted = new ArrayList<>();
+
+    private EtcdMergedWatch mergedWatch;
+
+    @BeforeMethod
+    public void setUp() {
+        callbacks.clear();
+        merged.clear();
+        compacted.clear();
+        EtcdWatch.Watcher watcher = mock(EtcdWatch.Watcher.class);
+        when(watcher.getLastRevision()).thenReturn(5L);
+        EtcdWatch watch = mock(EtcdWatch.class);
+        when(watch.watch(any(ByteSequence.class), any(WatchOption.class), any(EtcdWatch.WatchCallback.class))).thenAnswer(invocation -> {
+            callbacks.add((EtcdWatch.WatchCallback) invocation.getArguments()[2]);
+            return CompletableFuture.completedFuture(watcher);
+        });
+        mergedWatch = new EtcdMergedWatch(watch, new EtcdWatch.WatchCallback() {
+            @Override
+            public void onWatch(EtcdHeader header, long compactRevision, List<WatchEvent> events) {
+                if (compactRevision != 0) {
+                    compacted.add(compactRevision);
+                }
+                for (WatchEvent event : events) {
+                    merged.add(event.getKeyValue().getModRevision());
+                }
+            }
+
+            @Override
+            public void onResuming() {
+            }
+        });
+    }
+
+    private List<WatchEvent> events(long... revisions) {
+        List<WatchEvent> events = new ArrayList<>();
+        for (long revision : revisions) {
+            ByteSequence key = ByteSequence.fromString("key" + revision);
+            events.add(new WatchEvent(new KeyValue(key, key, 1, revision, 1, 0), null, WatchEvent.EventType.PUT));
+        }
+        return events;
+    }
+
+    private EtcdHeader header(long revision) {
+        return new EtcdHeader(0, 0, revision, 0);
+    }
+
+    @Test
+    public void testRevisionOrder() {
+        WatchOption option = WatchOption.newBuilder().withRevision(10).build();
+        mergedWatch.watch(ByteSequence.fromString("a"), option);
+        mergedWatch.watch(ByteSequence.fromString("b"), option);
+        EtcdWatch.WatchCallback a = callbacks.get(0);
+        EtcdWatch.WatchCallback b = callbacks.get(1);
+
+        a.onWatch(header(12), 0, events(10, 12));
+        test.assertTrue(merged.isEmpty());
+        test.assertEquals(mergedWatch.getBufferedEvents(), 2);
+
+        b.onWatch(header(11), 0, events(11));
+        test.assertEquals(merged, Arrays.asList(10L, 11L));
+        test.assertEquals(mergedWatch.getRevision(), 11L);
+
+        // a progress notification moves the watermark of the quiet watcher
+        a.onWatch(header(15), 0, events(13, 15));
+        b.onWatch(header(14), 0, new ArrayList<>());
+        test.assertEquals(merged, Arrays.asList(10L, 11L, 12L, 13L));
+        test.assertEquals(mergedWatch.getBufferedEvents(), 1);
+    }
+
+    @Test
+    public void testWatchFromNow() {
+        mergedWatch.watch(ByteSequence.fromString("a"), WatchOption.newBuilder().withRevision(3).build());
+        mergedWatch.watch(ByteSequence.fromString("b"), WatchOption.DEFAULT);
+        // the watcher from now starts at its create revision
+        callbacks.get(0).onWatch(header(6), 0, events(4, 6));
+        test.assertEquals(merged, Arrays.asList(4L));
+        callbacks.get(1).onWatch(header(7), 0, events(7));
+        test.assertEquals(merged, Arrays.asList(4L, 6L));
+    }
+
+    @Test
+    public void testCompactionRemovesWatcher() {
+        WatchOption option = WatchOption.newBuilder().withRevision(10).build();
+        mergedWatch.watch(ByteSequence.fromString("a"), option);
+        mergedWatch.watch(ByteSequence.fromString("b"), option);
+        callbacks.get(0).onWatch(header(12), 0, events(11, 12));
+        callbacks.get(1).onWatch(header(12), 8, new ArrayList<>());
+        test.assertEquals(compacted, Arrays.asList(8L));
+        test.assertEquals(merged, Arrays.asList(11L, 12L));
+
+        mergedWatch.close();
+        callbacks.get(0).onWatch(header(13), 0, events(13));
+        test.assertEquals(merged, Arrays.asList(11L, 12L));
+    }
+}
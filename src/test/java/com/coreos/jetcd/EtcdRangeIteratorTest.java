@@ -0,0 +1,99 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.api.RangeRequest;
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.EtcdHeader;
+import com.coreos.jetcd.data.KeyValue;
+import com.coreos.jetcd.options.GetOption;
+
+import org.testng.annotations.Test;
+import org.testng.asserts.Assertion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Paged range iterator test cases, the kv client is mocked with ten keys "key0".."key9".
+ */
+public class EtcdRangeIteratorTest {
+
+    private static final long REVISION = 42;
+
+    private Assertion test = new Assertion();
+
+    private List<Long> requestedRevisions = new ArrayList<>();
+
+    private EtcdKV mockKV() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            keys.add("key" + i);
+        }
+
+        EtcdKV kv = mock(EtcdKV.class);
+        when(kv.get(any(ByteSequence.class), any(GetOption.class))).thenAnswer(invocation -> {
+            String start = ((ByteSequence) invocation.getArguments()[0]).toStringUtf8();
+            GetOption option = (GetOption) invocation.getArguments()[1];
+            String end = option.getEndKey().get().toStringUtf8();
+            requestedRevisions.add(option.getRevision());
+
+            List<KeyValue> matched = new ArrayList<>();
+            for (String key : keys) {
+                if (key.compareTo(start) >= 0 && key.compareTo(end) < 0) {
+                    matched.add(new KeyValue(ByteSequence.fromString(key), ByteSequence.fromString(key), 1, 1, 1, 0));
+                }
+            }
+            if (option.getSortOrder() == RangeRequest.SortOrder.DESCEND) {
+                Collections.reverse(matched);
+            }
+            boolean more = matched.size() > option.getLimit();
+            List<KeyValue> page = more ? matched.subList(0, (int) option.getLimit()) : matched;
+            return CompletableFuture.completedFuture(
+                    new EtcdKV.RangeResult(new EtcdHeader(0, 0, REVISION, 0), page, more, matched.size()));
+        });
+        return kv;
+    }
+
+    @Test
+    public void testIterateAllPages() {
+        EtcdRangeIterator iterator = new EtcdRangeIterator(mockKV(), ByteSequence.fromString("key"),
+                GetOption.newBuilder().withRange(ByteSequence.fromString("kez")).build(), 3);
+
+        List<String> keys = new ArrayList<>();
+        while (iterator.hasNext()) {
+            keys.add(iterator.next().getKey().toStringUtf8());
+        }
+
+        test.assertEquals(keys.size(), 10);
+        test.assertEquals(keys.get(0), "key0");
+        test.assertEquals(keys.get(9), "key9");
+        test.assertEquals(iterator.getRevision(), REVISION);
+        // first page reads the newest revision, the following ones are pinned
+        test.assertEquals(requestedRevisions.get(0), Long.valueOf(0));
+        test.assertEquals(requestedRevisions.get(requestedRevisions.size() - 1), Long.valueOf(REVISION));
+    }
+
+    @Test
+    public void testIterateDescendWithLimit() {
+        EtcdRangeIterator iterator = new EtcdRangeIterator(mockKV(), ByteSequence.fromString("key"),
+                GetOption.newBuilder()
+                        .withRange(ByteSequence.fromString("kez"))
+                        .withSortOrder(RangeRequest.SortOrder.DESCEND)
+                        .withLimit(5)
+                        .build(), 2);
+
+        List<String> keys = new ArrayList<>();
+        while (iterator.hasNext()) {
+            keys.add(iterator.next().getKey().toStringUtf8());
+        }
+
+        test.assertEquals(keys.size(), 5);
+        test.assertEquals(keys.get(0), "key9");
+        test.assertEquals(keys.get(4), "key5");
+    }
+}
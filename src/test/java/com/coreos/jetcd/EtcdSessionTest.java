@@ -0,0 +1,170 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.lease.Lease;
+import com.coreos.jetcd.options.PutOption;
+import com.coreos.jetcd.options.SessionOption;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.testng.asserts.Assertion;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Session test cases, the kv and lease clients are mocked.
+ */
+public class EtcdSessionTest {
+
+    private Assertion test = new Assertion();
+
+    private EtcdKV kv;
+
+    private EtcdLease leaseClient;
+
+    private AtomicLong leaseIds = new AtomicLong();
+
+    private AtomicInteger puts = new AtomicInteger();
+
+    private ByteSequence key = ByteSequence.fromString("/services/a");
+
+    private ByteSequence value = ByteSequence.fromString("10.0.0.1");
+
+    @BeforeMethod
+    public void setUp() {
+        leaseIds.set(0);
+        kv = mock(EtcdKV.class);
+        puts.set(0);
+        when(kv.put(any(ByteSequence.class), any(ByteSequence.class), any(PutOption.class))).thenAnswer(invocation -> {
+            puts.incrementAndGet();
+            return CompletableFuture.completedFuture(new EtcdKV.PutResult(null, null));
+        });
+        leaseClient = mock(EtcdLease.class);
+        when(leaseClient.grant(anyLong())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(new Lease(leaseIds.incrementAndGet(), 10, null)));
+    }
+
+    private PutOption withLease(long leaseId) {
+        return argThat(new ArgumentMatcher<PutOption>() {
+            @Override
+            public boolean matches(Object option) {
+                return ((PutOption) option).getLeaseId() == leaseId;
+            }
+        });
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (!condition.getAsBoolean() && System.nanoTime() - deadline < 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testKeysShareLease() throws Exception {
+        EtcdSession session = new EtcdSession(kv, leaseClient, SessionOption.newBuilder().withTtl(10).build());
+        session.start().get(1, TimeUnit.SECONDS);
+        test.assertEquals(session.getLease().getLeaseID(), 1L);
+        verify(leaseClient).startKeepAliveService();
+
+        session.put(key, value).get(1, TimeUnit.SECONDS);
+        session.put(ByteSequence.fromString("/services/b"), value).get(1, TimeUnit.SECONDS);
+        verify(kv, times(2)).put(any(ByteSequence.class), eq(value), withLease(1));
+        verify(leaseClient, times(1)).grant(10);
+        verify(leaseClient, times(1)).keepAlive(any(Lease.class), any(EtcdLease.EtcdLeaseHandler.class));
+        test.assertEquals(session.getKeys().size(), 2);
+    }
+
+    @Test
+    public void testExpiredLeaseReattachesKeys() throws Exception {
+        EtcdSession session = new EtcdSession(kv, leaseClient, SessionOption.DEFAULT);
+        session.start().get(1, TimeUnit.SECONDS);
+        session.put(key, value).get(1, TimeUnit.SECONDS);
+
+        ArgumentCaptor<EtcdLease.EtcdLeaseHandler> handler = ArgumentCaptor.forClass(EtcdLease.EtcdLeaseHandler.class);
+        verify(leaseClient).keepAlive(any(Lease.class), handler.capture());
+        handler.getValue().onLeaseExpired(1);
+
+        // the key is put again with the new lease
+        await(() -> puts.get() == 2);
+        verify(kv).put(eq(key), eq(value), withLease(2));
+        test.assertEquals(session.getLease().getLeaseID(), 2L);
+
+        // a handler of the replaced lease is ignored
+        handler.getValue().onLeaseExpired(1);
+        Thread.sleep(100);
+        verify(leaseClient, times(2)).grant(anyLong());
+
+        session.close();
+        verify(leaseClient).cancelKeepAlive(any(Lease.class));
+    }
+
+    @Test
+    public void testDeletedKeyNotReattached() throws Exception {
+        EtcdSession session = new EtcdSession(kv, leaseClient, SessionOption.DEFAULT);
+        session.start().get(1, TimeUnit.SECONDS);
+        session.put(key, value).get(1, TimeUnit.SECONDS);
+        session.delete(key);
+
+        ArgumentCaptor<EtcdLease.EtcdLeaseHandler> handler = ArgumentCaptor.forClass(EtcdLease.EtcdLeaseHandler.class);
+        verify(leaseClient).keepAlive(any(Lease.class), handler.capture());
+        handler.getValue().onLeaseExpired(1);
+        await(() -> session.getLease() != null && session.getLease().getLeaseID() == 2);
+        Thread.sleep(100);
+        verify(leaseClient, times(2)).grant(anyLong());
+        verify(kv, times(1)).put(any(ByteSequence.class), any(ByteSequence.class), any(PutOption.class));
+        session.close();
+    }
+
+    @Test
+    public void testCloseDuringGrant() throws Exception {
+        CompletableFuture<Lease> grant = new CompletableFuture<>();
+        when(leaseClient.grant(anyLong())).thenReturn(grant);
+        EtcdSession session = new EtcdSession(kv, leaseClient, SessionOption.DEFAULT);
+        CompletableFuture<Void> started = session.start();
+
+        session.close();
+        test.assertTrue(started.isCompletedExceptionally());
+        test.assertNull(session.getLease());
+
+        // the lease granted after close is revoked and not kept alive
+        Lease lease = new Lease(1, 10, null);
+        grant.complete(lease);
+        verify(leaseClient).revoke(lease);
+        verify(leaseClient, never()).keepAlive(any(Lease.class), any(EtcdLease.EtcdLeaseHandler.class));
+    }
+
+    @Test
+    public void testCloseDuringKeepAliveRegistration() throws Exception {
+        CompletableFuture<Lease> grant = new CompletableFuture<>();
+        when(leaseClient.grant(anyLong())).thenReturn(grant);
+        EtcdSession session = new EtcdSession(kv, leaseClient, SessionOption.DEFAULT);
+        session.start();
+        doAnswer(invocation -> {
+            session.close();
+            return null;
+        }).when(leaseClient).keepAlive(any(Lease.class), any(EtcdLease.EtcdLeaseHandler.class));
+
+        Lease lease = new Lease(1, 10, null);
+        grant.complete(lease);
+        verify(leaseClient).cancelKeepAlive(lease);
+        test.assertNull(session.getLease());
+    }
+}
@@ -0,0 +1,136 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.watch.WatchSpec;
+
+import org.testng.annotations.Test;
+import org.testng.asserts.Assertion;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Sharded watch test cases, the shards are mocked.
+ */
+public class EtcdShardedWatchTest {
+
+    private Assertion test = new Assertion();
+
+    @Test
+    public void testShardByKey() {
+        List<EtcdWatch> shards = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            shards.add(mock(EtcdWatch.class));
+        }
+        EtcdShardedWatch shardedWatch = new EtcdShardedWatch(shards);
+        test.assertEquals(shardedWatch.getShardCount(), 4);
+
+        Set<EtcdWatch> used = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            ByteSequence key = ByteSequence.fromString("key" + i);
+            test.assertEquals(shardedWatch.shardOf(key), shardedWatch.shardOf(ByteSequence.fromString("key" + i)));
+            used.add(shardedWatch.shardOf(key));
+        }
+        test.assertEquals(used.size(), 4);
+
+        ByteSequence key = ByteSequence.fromString("key");
+        shardedWatch.watch(key, WatchOption.DEFAULT, null);
+        verify(shardedWatch.shardOf(key), times(1)).watch(key, WatchOption.DEFAULT, null);
+    }
+
+    /**
+     * each shard answers with one watcher per spec, failing if it gets the failing key.
+     */
+    private EtcdWatch mockShard(String failingKey, List<EtcdWatch.Watcher> canceled) {
+        EtcdWatch shard = mock(EtcdWatch.class);
+        when(shard.watchAll(anyCollectionOf(WatchSpec.class))).thenAnswer(invocation -> {
+            List<EtcdWatch.Watcher> watchers = new ArrayList<>();
+            for (Object spec : (Iterable<?>) invocation.getArguments()[0]) {
+                ByteSequence key = ((WatchSpec) spec).getKey();
+                if (key.toStringUtf8().equals(failingKey)) {
+                    CompletableFuture<List<EtcdWatch.Watcher>> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(new IllegalStateException("create failed"));
+                    return failed;
+                }
+                EtcdWatch.Watcher watcher = mock(EtcdWatch.Watcher.class);
+                when(watcher.getKey()).thenReturn(key);
+                when(watcher.cancel()).thenAnswer(cancel -> {
+                    canceled.add(watcher);
+                    return CompletableFuture.completedFuture(Boolean.TRUE);
+                });
+                watchers.add(watcher);
+            }
+            return CompletableFuture.completedFuture(watchers);
+        });
+        return shard;
+    }
+
+    @Test
+    public void testWatchAll() throws Exception {
+        List<EtcdWatch.Watcher> canceled = new ArrayList<>();
+        List<EtcdWatch> shards = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            shards.add(mockShard(null, canceled));
+        }
+        EtcdShardedWatch shardedWatch = new EtcdShardedWatch(shards);
+
+        List<WatchSpec> specs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            specs.add(new WatchSpec(ByteSequence.fromString("key" + i), WatchOption.DEFAULT, null));
+        }
+        List<EtcdWatch.Watcher> watchers = shardedWatch.watchAll(specs).get();
+        test.assertEquals(watchers.size(), specs.size());
+        for (int i = 0; i < specs.size(); i++) {
+            test.assertEquals(watchers.get(i).getKey(), specs.get(i).getKey());
+        }
+        for (EtcdWatch shard : shards) {
+            verify(shard, times(1)).watchAll(anyCollectionOf(WatchSpec.class));
+        }
+        test.assertTrue(canceled.isEmpty());
+    }
+
+    @Test
+    public void testWatchAllFailure() throws Exception {
+        List<EtcdWatch.Watcher> canceled = new ArrayList<>();
+        List<EtcdWatch> shards = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            shards.add(mockShard("key3", canceled));
+        }
+        EtcdShardedWatch shardedWatch = new EtcdShardedWatch(shards);
+
+        List<WatchSpec> specs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            specs.add(new WatchSpec(ByteSequence.fromString("key" + i), WatchOption.DEFAULT, null));
+        }
+        try {
+            shardedWatch.watchAll(specs).get();
+            test.fail("watchAll should fail");
+        } catch (ExecutionException e) {
+            test.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        // the watchers of the other shard are canceled
+        int otherShard = 0;
+        for (WatchSpec spec : specs) {
+            if (shardedWatch.shardOf(spec.getKey()) != shardedWatch.shardOf(ByteSequence.fromString("key3"))) {
+                otherShard++;
+            }
+        }
+        test.assertEquals(canceled.size(), otherShard);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNoShards() {
+        new EtcdShardedWatch(new ArrayList<EtcdWatch>());
+    }
+}
@@ -0,0 +1,188 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.data.ByteSequence;
+import com.coreos.jetcd.data.EtcdHeader;
+import com.coreos.jetcd.data.KeyValue;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.watch.WatchEvent;
+import com.coreos.jetcd.watch.WatchSpec;
+
+import org.testng.annotations.Test;
+import org.testng.asserts.Assertion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Shared watch test cases, the wrapped watch client is mocked and its callback driven by hand.
+ */
+public class EtcdSharedWatchTest {
+
+    private Assertion test = new Assertion();
+
+    private ByteSequence key = ByteSequence.fromString("shared_key");
+
+    private List<EtcdWatch.WatchCallback> serverCallbacks = new ArrayList<>();
+
+    private EtcdWatch.Watcher serverWatcher = mock(EtcdWatch.Watcher.class);
+
+    private EtcdWatch mockWatch() {
+        serverCallbacks.clear();
+        when(serverWatcher.getLastRevision()).thenReturn(10L);
+        when(serverWatcher.cancel()).thenReturn(CompletableFuture.completedFuture(Boolean.TRUE));
+        EtcdWatch watch = mock(EtcdWatch.class);
+        when(watch.watch(any(ByteSequence.class), any(WatchOption.class), any(EtcdWatch.WatchCallback.class))).thenAnswer(invocation -> {
+            serverCallbacks.add((EtcdWatch.WatchCallback) invocation.getArguments()[2]);
+            return CompletableFuture.completedFuture(serverWatcher);
+        });
+        when(watch.watchAll(anyCollectionOf(WatchSpec.class))).thenAnswer(invocation -> {
+            List<EtcdWatch.Watcher> watchers = new ArrayList<>();
+            for (Object spec : (Iterable<?>) invocation.getArguments()[0]) {
+                serverCallbacks.add(((WatchSpec) spec).getCallback());
+                watchers.add(serverWatcher);
+            }
+            return CompletableFuture.completedFuture(watchers);
+        });
+        return watch;
+    }
+
+    private List<WatchEvent> events(long... revisions) {
+        List<WatchEvent> events = new ArrayList<>();
+        for (long revision : revisions) {
+            events.add(new WatchEvent(new KeyValue(key, key, 1, revision, 1, 0), null, WatchEvent.EventType.PUT));
+        }
+        return events;
+    }
+
+    private EtcdWatch.WatchCallback collector(List<Long> revisions) {
+        return new EtcdWatch.WatchCallback() {
+            @Override
+            public void onWatch(EtcdHeader header, long compactRevision, List<WatchEvent> events) {
+                for (WatchEvent event : events) {
+                    revisions.add(event.getKeyValue().getModRevision());
+                }
+            }
+
+            @Override
+            public void onResuming() {
+            }
+        };
+    }
+
+    @Test
+    public void testShareAndFanOut() throws Exception {
+        EtcdWatch watch = mockWatch();
+        EtcdSharedWatch sharedWatch = new EtcdSharedWatch(watch);
+        List<Long> first = new ArrayList<>();
+        List<Long> second = new ArrayList<>();
+
+        EtcdWatch.Watcher firstWatcher = sharedWatch.watch(key, WatchOption.DEFAULT, collector(first)).get();
+        EtcdWatch.Watcher secondWatcher = sharedWatch.watch(key, WatchOption.DEFAULT, collector(second)).get();
+        verify(watch, times(1)).watch(any(ByteSequence.class), any(WatchOption.class), any(EtcdWatch.WatchCallback.class));
+        test.assertEquals(sharedWatch.getSharedWatcherCount(), 1);
+
+        serverCallbacks.get(0).onWatch(null, 0, events(11, 12));
+        test.assertEquals(first, second);
+        test.assertEquals(first.size(), 2);
+
+        // the server watcher is canceled with the last subscription only
+        test.assertTrue(firstWatcher.cancel().get());
+        verify(serverWatcher, times(0)).cancel();
+        serverCallbacks.get(0).onWatch(null, 0, events(13));
+        test.assertEquals(first.size(), 2);
+        test.assertEquals(second.size(), 3);
+
+        test.assertTrue(secondWatcher.cancel().get());
+        verify(serverWatcher, times(1)).cancel();
+        test.assertEquals(sharedWatch.getSharedWatcherCount(), 0);
+    }
+
+    @Test
+    public void testLateJoiner() throws Exception {
+        EtcdWatch watch = mockWatch();
+        EtcdSharedWatch sharedWatch = new EtcdSharedWatch(watch);
+        sharedWatch.watch(key, WatchOption.DEFAULT, collector(new ArrayList<>())).get();
+        serverCallbacks.get(0).onWatch(null, 0, events(11, 12));
+
+        // events after the delivered ones are filtered from the shared watcher
+        List<Long> joiner = new ArrayList<>();
+        sharedWatch.watch(key, WatchOption.newBuilder().withRevision(14).build(), collector(joiner)).get();
+        verify(watch, times(1)).watch(any(ByteSequence.class), any(WatchOption.class), any(EtcdWatch.WatchCallback.class));
+        serverCallbacks.get(0).onWatch(null, 0, events(13, 14, 15));
+        List<Long> expected = new ArrayList<>();
+        expected.add(14L);
+        expected.add(15L);
+        test.assertEquals(joiner, expected);
+
+        // delivered events need a watcher of its own
+        sharedWatch.watch(key, WatchOption.newBuilder().withRevision(12).build(), collector(new ArrayList<>())).get();
+        verify(watch, times(2)).watch(any(ByteSequence.class), any(WatchOption.class), any(EtcdWatch.WatchCallback.class));
+    }
+
+    @Test
+    public void testDifferentOptionsNotShared() throws Exception {
+        EtcdWatch watch = mockWatch();
+        EtcdSharedWatch sharedWatch = new EtcdSharedWatch(watch);
+        sharedWatch.watch(key, WatchOption.DEFAULT, collector(new ArrayList<>())).get();
+        sharedWatch.watch(key, WatchOption.newBuilder().withPrevKV(true).build(), collector(new ArrayList<>())).get();
+        test.assertEquals(sharedWatch.getSharedWatcherCount(), 2);
+        test.assertEquals(serverCallbacks.size(), 2);
+    }
+
+    @Test
+    public void testWatchAll() throws Exception {
+        EtcdWatch watch = mockWatch();
+        EtcdSharedWatch sharedWatch = new EtcdSharedWatch(watch);
+        List<Long> first = new ArrayList<>();
+        List<Long> second = new ArrayList<>();
+        List<WatchSpec> specs = new ArrayList<>();
+        specs.add(new WatchSpec(key, WatchOption.DEFAULT, collector(first)));
+        specs.add(new WatchSpec(key, WatchOption.DEFAULT, collector(second)));
+        specs.add(new WatchSpec(ByteSequence.fromString("other_key"), WatchOption.DEFAULT, collector(new ArrayList<>())));
+
+        List<EtcdWatch.Watcher> watchers = sharedWatch.watchAll(specs).get();
+        test.assertEquals(watchers.size(), 3);
+        test.assertEquals(watchers.get(2).getKey(), ByteSequence.fromString("other_key"));
+        verify(watch, times(1)).watchAll(anyCollectionOf(WatchSpec.class));
+        test.assertEquals(serverCallbacks.size(), 2);
+        test.assertEquals(sharedWatch.getSharedWatcherCount(), 2);
+
+        serverCallbacks.get(0).onWatch(null, 0, events(11));
+        test.assertEquals(first.size(), 1);
+        test.assertEquals(second.size(), 1);
+    }
+
+    @Test
+    public void testLateJoinerRacingEvents() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            EtcdWatch watch = mockWatch();
+            EtcdSharedWatch sharedWatch = new EtcdSharedWatch(watch);
+            sharedWatch.watch(key, WatchOption.DEFAULT, collector(new ArrayList<>())).get();
+            EtcdWatch.WatchCallback server = serverCallbacks.get(0);
+            Thread events = new Thread(() -> {
+                for (long revision = 11; revision <= 60; revision++) {
+                    server.onWatch(null, 0, events(revision));
+                }
+            });
+            events.start();
+
+            // a joiner sharing the watcher gets every event from its revision
+            List<Long> joiner = new CopyOnWriteArrayList<>();
+            sharedWatch.watch(key, WatchOption.newBuilder().withRevision(30).build(), collector(joiner)).get();
+            events.join();
+            if (serverCallbacks.size() == 1) {
+                test.assertEquals(joiner.size(), 31, "joined at iteration " + i);
+                test.assertEquals(joiner.get(0).longValue(), 30L);
+            }
+        }
+    }
+}
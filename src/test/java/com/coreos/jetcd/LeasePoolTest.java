@@ -0,0 +1,152 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.lease.Lease;
+import com.coreos.jetcd.options.LeasePoolOption;
+
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.testng.asserts.Assertion;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Lease pool test cases, the lease client is mocked.
+ */
+public class LeasePoolTest {
+
+    private Assertion test = new Assertion();
+
+    private EtcdLease leaseClient;
+
+    private AtomicLong leaseIds = new AtomicLong();
+
+    private LeasePoolOption option = LeasePoolOption.newBuilder().withSize(3).withTtl(10)
+            .withRetryDelay(50, TimeUnit.MILLISECONDS).build();
+
+    @BeforeMethod
+    public void setUp() {
+        leaseIds.set(0);
+        leaseClient = mock(EtcdLease.class);
+        when(leaseClient.grant(anyLong())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(new Lease(leaseIds.incrementAndGet(), 10, null)));
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (!condition.getAsBoolean() && System.nanoTime() - deadline < 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testAcquireRefills() throws Exception {
+        LeasePool pool = new LeasePool(leaseClient, option);
+        pool.start();
+        verify(leaseClient).startKeepAliveService();
+        verify(leaseClient, times(3)).grant(10);
+        test.assertEquals(pool.getIdleCount(), 3);
+
+        Lease lease = pool.acquire().get(1, TimeUnit.SECONDS);
+        test.assertEquals(lease.getLeaseID(), 1L);
+        // the acquired lease is replaced
+        verify(leaseClient, times(4)).grant(10);
+        test.assertEquals(pool.getIdleCount(), 3);
+        test.assertEquals(pool.getPendingCount(), 0);
+
+        pool.close();
+        verify(leaseClient, times(3)).cancelKeepAlive(any(Lease.class));
+    }
+
+    @Test
+    public void testEmptyPoolGrants() throws Exception {
+        CompletableFuture<Lease> grant = new CompletableFuture<>();
+        when(leaseClient.grant(anyLong())).thenReturn(grant);
+        LeasePool pool = new LeasePool(leaseClient, option);
+        pool.start();
+        test.assertEquals(pool.getPendingCount(), 3);
+
+        // the pool is empty, acquire waits for a grant of its own
+        CompletableFuture<Lease> acquired = pool.acquire();
+        verify(leaseClient, times(4)).grant(10);
+        test.assertFalse(acquired.isDone());
+        grant.complete(new Lease(7, 10, null));
+        test.assertEquals(acquired.get(1, TimeUnit.SECONDS).getLeaseID(), 7L);
+        verify(leaseClient).keepAlive(any(Lease.class), isNull(EtcdLease.EtcdLeaseHandler.class));
+        pool.close();
+    }
+
+    @Test
+    public void testEmptyPoolKeepAliveFailed() throws Exception {
+        CompletableFuture<Lease> grant = new CompletableFuture<>();
+        when(leaseClient.grant(anyLong())).thenReturn(grant);
+        doThrow(new IllegalStateException("Lease keep alive service not started yet"))
+                .when(leaseClient).keepAlive(any(Lease.class), isNull(EtcdLease.EtcdLeaseHandler.class));
+        LeasePool pool = new LeasePool(leaseClient, option);
+        pool.start();
+
+        // the lease granted on acquire is revoked when it cannot be kept alive
+        CompletableFuture<Lease> acquired = pool.acquire();
+        Lease lease = new Lease(7, 10, null);
+        grant.complete(lease);
+        try {
+            acquired.get(1, TimeUnit.SECONDS);
+            test.fail("the acquire should fail with the keep alive");
+        } catch (ExecutionException e) {
+            test.assertTrue(e.getCause() instanceof IllegalStateException, e.getCause().toString());
+        }
+        verify(leaseClient).revoke(lease);
+        pool.close();
+    }
+
+    @Test
+    public void testFailedGrantRetried() throws Exception {
+        CompletableFuture<Lease> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("no leader"));
+        when(leaseClient.grant(anyLong())).thenReturn(failed).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(new Lease(leaseIds.incrementAndGet(), 10, null)));
+        LeasePool pool = new LeasePool(leaseClient, option);
+        pool.start();
+        test.assertEquals(pool.getIdleCount(), 2);
+
+        // no grant during the retry delay
+        pool.acquire().get(1, TimeUnit.SECONDS);
+        verify(leaseClient, times(3)).grant(10);
+
+        await(() -> pool.getIdleCount() == 3);
+        test.assertEquals(pool.getIdleCount(), 3);
+        pool.close();
+    }
+
+    @Test
+    public void testExpiredIdleLeaseReplaced() throws Exception {
+        LeasePool pool = new LeasePool(leaseClient, option);
+        pool.start();
+        ArgumentCaptor<EtcdLease.EtcdLeaseHandler> handler = ArgumentCaptor.forClass(EtcdLease.EtcdLeaseHandler.class);
+        verify(leaseClient, times(3)).keepAlive(any(Lease.class), handler.capture());
+
+        handler.getValue().onLeaseExpired(2);
+        await(() -> leaseIds.get() == 4 && pool.getIdleCount() == 3);
+        test.assertEquals(pool.getIdleCount(), 3);
+        verify(leaseClient, times(4)).grant(10);
+
+        // the expired lease is not handed out
+        for (long id : new long[]{1, 3, 4}) {
+            test.assertEquals(pool.acquire().get(1, TimeUnit.SECONDS).getLeaseID(), id);
+        }
+        pool.close();
+    }
+}
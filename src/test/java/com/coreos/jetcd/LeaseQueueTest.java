@@ -0,0 +1,102 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.lease.Lease;
+
+import org.testng.annotations.Test;
+import org.testng.asserts.Assertion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lease queue and keep alive scheduling test cases.
+ */
+public class LeaseQueueTest {
+
+    private Assertion test = new Assertion();
+
+    private EtcdLeaseImpl.LeaseHolder holder(long id, long nextKeepAlive) {
+        return new EtcdLeaseImpl.LeaseHolder(new Lease(id, 5, null)).setNextKeepAlive(nextKeepAlive);
+    }
+
+    @Test
+    public void testOrder() {
+        LeaseQueue queue = new LeaseQueue(LeaseQueue.Key.KEEP_ALIVE);
+        Random random = new Random(0);
+        List<EtcdLeaseImpl.LeaseHolder> holders = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            EtcdLeaseImpl.LeaseHolder holder = holder(i, random.nextInt(1000));
+            holders.add(holder);
+            queue.update(holder);
+        }
+        // move some holders and remove others
+        for (int i = 0; i < 100; i += 3) {
+            holders.get(i).setNextKeepAlive(random.nextInt(1000));
+            queue.update(holders.get(i));
+        }
+        for (int i = 1; i < 100; i += 5) {
+            queue.remove(holders.get(i));
+            queue.remove(holders.get(i));
+        }
+        test.assertEquals(queue.size(), 80);
+
+        long last = Long.MIN_VALUE;
+        while (queue.peek() != null) {
+            EtcdLeaseImpl.LeaseHolder head = queue.peek();
+            test.assertTrue(head.getNextKeepAlive() >= last);
+            last = head.getNextKeepAlive();
+            queue.remove(head);
+        }
+        test.assertEquals(queue.size(), 0);
+    }
+
+    @Test
+    public void testNanoTimeOverflow() {
+        LeaseQueue queue = new LeaseQueue(LeaseQueue.Key.KEEP_ALIVE);
+        EtcdLeaseImpl.LeaseHolder beforeOverflow = holder(1, Long.MAX_VALUE - 10);
+        EtcdLeaseImpl.LeaseHolder afterOverflow = holder(2, Long.MAX_VALUE + 10);
+        queue.update(afterOverflow);
+        queue.update(beforeOverflow);
+        test.assertEquals(queue.peek(), beforeOverflow);
+    }
+
+    @Test
+    public void testKeepAliveSpread() {
+        long ttlMillis = 30000;
+        test.assertEquals(EtcdLeaseImpl.keepAliveDelayNanos(ttlMillis, 500, 0), TimeUnit.MILLISECONDS.toNanos(6000));
+        test.assertEquals(EtcdLeaseImpl.keepAliveDelayNanos(ttlMillis, 500, 0.5), TimeUnit.MILLISECONDS.toNanos(11000));
+        test.assertTrue(EtcdLeaseImpl.keepAliveDelayNanos(ttlMillis, 500, 0.999999) < TimeUnit.MILLISECONDS.toNanos(16000));
+
+        // the leases granted together are spread over the window
+        Random random = new Random(0);
+        int[] buckets = new int[10];
+        for (int i = 0; i < 10000; i++) {
+            long delayMillis = TimeUnit.NANOSECONDS.toMillis(EtcdLeaseImpl.keepAliveDelayNanos(ttlMillis, 500, random.nextDouble()));
+            buckets[(int) ((delayMillis - 6000) / 1000)]++;
+        }
+        for (int bucket : buckets) {
+            test.assertTrue(bucket > 800 && bucket < 1200, "bucket " + bucket);
+        }
+        // a short ttl keeps the keep alive and its response before the dead line
+        for (long shortTtl : new long[]{1000, 2000, 3000}) {
+            long latest = EtcdLeaseImpl.keepAliveDelayNanos(shortTtl, 500, 0.999999) + TimeUnit.MILLISECONDS.toNanos(500);
+            test.assertTrue(latest < TimeUnit.MILLISECONDS.toNanos(shortTtl), "ttl " + shortTtl);
+        }
+        test.assertEquals(EtcdLeaseImpl.keepAliveDelayNanos(2000, 500, 0.999999), TimeUnit.MILLISECONDS.toNanos(1000));
+    }
+
+    @Test
+    public void testReconnectDelay() {
+        long far = TimeUnit.MINUTES.toNanos(1);
+        test.assertEquals(EtcdLeaseImpl.reconnectDelayNanos(0, far, 0), TimeUnit.MILLISECONDS.toNanos(50));
+        test.assertEquals(EtcdLeaseImpl.reconnectDelayNanos(0, far, 0.5), TimeUnit.MILLISECONDS.toNanos(75));
+        test.assertEquals(EtcdLeaseImpl.reconnectDelayNanos(2, far, 0), TimeUnit.MILLISECONDS.toNanos(200));
+        test.assertEquals(EtcdLeaseImpl.reconnectDelayNanos(30, far, 0), TimeUnit.MILLISECONDS.toNanos(2500));
+
+        // the stream is reconnected before the earliest dead line
+        test.assertEquals(EtcdLeaseImpl.reconnectDelayNanos(30, TimeUnit.MILLISECONDS.toNanos(1000), 0.9), TimeUnit.MILLISECONDS.toNanos(500));
+        test.assertEquals(EtcdLeaseImpl.reconnectDelayNanos(30, -1, 0.9), 0L);
+    }
+}
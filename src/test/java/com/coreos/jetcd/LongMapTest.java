@@ -0,0 +1,84 @@
+package com.coreos.jetcd;
+
+import org.testng.annotations.Test;
+import org.testng.asserts.Assertion;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Long map test cases, against a hash map.
+ */
+public class LongMapTest {
+
+    private Assertion test = new Assertion();
+
+    @Test
+    public void testRandomOperations() {
+        LongMap<String> map = new LongMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(0);
+        for (int i = 0; i < 100000; i++) {
+            // few keys so removes hit, negative and zero keys included
+            long key = random.nextInt(2000) - 100;
+            switch (random.nextInt(4)) {
+                case 0:
+                    test.assertEquals(map.put(key, "v" + i), expected.put(key, "v" + i));
+                    break;
+                case 1:
+                    test.assertEquals(map.putIfAbsent(key, "v" + i), expected.putIfAbsent(key, "v" + i));
+                    break;
+                case 2:
+                    test.assertEquals(map.remove(key), expected.remove(key));
+                    break;
+                default:
+                    test.assertEquals(map.get(key), expected.get(key));
+                    test.assertEquals(map.containsKey(key), expected.containsKey(key));
+            }
+        }
+        test.assertEquals(map.size(), expected.size());
+        test.assertEquals(new HashSet<>(map.values()), new HashSet<>(expected.values()));
+    }
+
+    @Test
+    public void testReadsDuringWrites() throws Exception {
+        LongMap<String> map = new LongMap<>();
+        for (long i = 0; i < 100; i++) {
+            map.put(i, "v" + i);
+        }
+        // the writer resizes and shifts the tables under the lock free reads
+        Thread writer = new Thread(() -> {
+            for (int round = 0; round < 20; round++) {
+                for (long i = 1000; i < 5000; i++) {
+                    map.put(i, "w");
+                }
+                for (long i = 1000; i < 5000; i++) {
+                    map.remove(i);
+                }
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            for (long i = 0; i < 100; i++) {
+                test.assertEquals(map.get(i), "v" + i);
+            }
+        }
+        writer.join();
+        test.assertEquals(map.size(), 100);
+    }
+
+    @Test
+    public void testDrain() {
+        LongMap<String> map = new LongMap<>();
+        for (long i = 0; i < 100; i++) {
+            map.put(i << 32, "v" + i);
+        }
+        test.assertEquals(map.drain().size(), 100);
+        test.assertEquals(map.size(), 0);
+        test.assertNull(map.get(0));
+        map.put(1, "a");
+        test.assertEquals(map.get(1), "a");
+    }
+}
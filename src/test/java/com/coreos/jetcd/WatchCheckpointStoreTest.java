@@ -0,0 +1,72 @@
+package com.coreos.jetcd;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.testng.asserts.Assertion;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watch checkpoint store test cases, on a temporary file.
+ */
+public class WatchCheckpointStoreTest {
+
+    private Assertion test = new Assertion();
+
+    private Path file;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        file = Files.createTempFile("jetcd-checkpoint", ".dat");
+        Files.delete(file);
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        try (WatchCheckpointStore store = WatchCheckpointStore.open(file, 4, 1, TimeUnit.HOURS)) {
+            test.assertEquals(store.getRevision("config"), 0L);
+            store.update("config", 10);
+            store.update("config", 12);
+            store.update("services", 7);
+        }
+        try (WatchCheckpointStore store = WatchCheckpointStore.open(file)) {
+            test.assertEquals(store.getRevision("config"), 12L);
+            test.assertEquals(store.getRevision("services"), 7L);
+            store.remove("config");
+        }
+        try (WatchCheckpointStore store = WatchCheckpointStore.open(file)) {
+            test.assertEquals(store.getRevision("config"), 0L);
+            test.assertEquals(store.getRevision("services"), 7L);
+        }
+    }
+
+    @Test
+    public void testFull() throws IOException {
+        try (WatchCheckpointStore store = WatchCheckpointStore.open(file, 2, 1, TimeUnit.HOURS)) {
+            store.update("a", 1);
+            store.update("b", 2);
+            store.update("c", 3);
+            test.assertEquals(store.getRevision("c"), 0L);
+
+            // a removed checkpoint frees its slot
+            store.remove("a");
+            store.update("c", 3);
+            test.assertEquals(store.getRevision("c"), 3L);
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testNotCheckpointFile() throws IOException {
+        Files.write(file, new byte[256]);
+        WatchCheckpointStore.open(file);
+    }
+}
@@ -0,0 +1,280 @@
+package com.coreos.jetcd;
+
+import com.google.protobuf.ByteString;
+
+import com.coreos.jetcd.api.Event;
+import com.coreos.jetcd.api.KeyValue;
+import com.coreos.jetcd.api.ResponseHeader;
+import com.coreos.jetcd.data.EtcdHeader;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.watch.WatchEvent;
+import com.coreos.jetcd.watch.WatchOverflowPolicy;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.testng.asserts.Assertion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.ArgumentCaptor;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Watch dispatcher test cases, the callback runs on a manual executor to simulate a slow
+ * consumer.
+ */
+public class WatchDispatcherTest {
+
+    private Assertion test = new Assertion();
+
+    private List<Runnable>    tasks      = new ArrayList<>();
+    private Executor          executor   = tasks::add;
+    private List<String>      delivered  = new ArrayList<>();
+    private List<Boolean>     blocked    = new ArrayList<>();
+    private List<Long>        resyncs    = new ArrayList<>();
+
+    private EtcdWatch.WatchCallback callback = new EtcdWatch.WatchCallback() {
+        @Override
+        public void onWatch(EtcdHeader header, long compactRevision, List<WatchEvent> events) {
+            for (WatchEvent event : events) {
+                delivered.add(event.getKeyValue().getKey().toStringUtf8() + "@" + event.getKeyValue().getModRevision());
+            }
+        }
+
+        @Override
+        public void onResuming() {
+            delivered.add("resuming");
+        }
+    };
+
+    private WatchDispatcher.Listener listener = new WatchDispatcher.Listener() {
+        @Override
+        public void onBlocked(boolean isBlocked) {
+            blocked.add(isBlocked);
+        }
+
+        @Override
+        public void onResync(long revision) {
+            resyncs.add(revision);
+        }
+    };
+
+    @BeforeMethod
+    public void setUp() {
+        tasks.clear();
+        delivered.clear();
+        blocked.clear();
+        resyncs.clear();
+    }
+
+    private WatchDispatcher newDispatcher(WatchOverflowPolicy policy) {
+        WatchOption option = WatchOption.newBuilder().withDispatchQueueSize(2).withOverflowPolicy(policy).build();
+        return new WatchDispatcher(callback, executor, option, listener);
+    }
+
+    private List<Event> events(String key, long revision) {
+        return Collections.singletonList(Event.newBuilder()
+                .setType(Event.EventType.PUT)
+                .setKv(KeyValue.newBuilder().setKey(ByteString.copyFromUtf8(key)).setModRevision(revision))
+                .build());
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    @Test
+    public void testBlock() {
+        WatchDispatcher dispatcher = newDispatcher(WatchOverflowPolicy.BLOCK);
+        dispatcher.dispatch(ResponseHeader.getDefaultInstance(), 0, events("a", 1));
+        test.assertTrue(blocked.isEmpty());
+        dispatcher.dispatch(ResponseHeader.getDefaultInstance(), 0, events("b", 2));
+        test.assertEquals(blocked, Collections.singletonList(true));
+        test.assertEquals(dispatcher.getQueueDepth(), 2);
+        test.assertEquals(tasks.size(), 1);
+
+        runTasks();
+        test.assertEquals(delivered.size(), 2);
+        test.assertEquals(blocked.get(blocked.size() - 1), Boolean.FALSE);
+        test.assertEquals(dispatcher.getQueueDepth(), 0);
+        test.assertEquals(dispatcher.getDispatchLagNanos(), 0L);
+    }
+
+    @Test
+    public void testDropAndResync() {
+        WatchDispatcher dispatcher = newDispatcher(WatchOverflowPolicy.DROP_AND_RESYNC);
+        dispatcher.dispatch(ResponseHeader.getDefaultInstance(), 0, events("a", 5));
+        dispatcher.dispatch(ResponseHeader.getDefaultInstance(), 0, events("b", 6));
+        dispatcher.dispatch(ResponseHeader.getDefaultInstance(), 0, events("c", 7));
+        test.assertEquals(resyncs, Collections.singletonList(5L));
+        test.assertEquals(dispatcher.getDroppedEvents(), 3L);
+
+        runTasks();
+        test.assertEquals(delivered, Collections.singletonList("resuming"));
+    }
+
+    @Test
+    public void testCoalesce() {
+        WatchDispatcher dispatcher = newDispatcher(WatchOverflowPolicy.COALESCE);
+        dispatcher.dispatch(ResponseHeader.getDefaultInstance(), 0, events("a", 1));
+        dispatcher.dispatch(ResponseHeader.getDefaultInstance(), 0, events("b", 2));
+        dispatcher.dispatch(ResponseHeader.getDefaultInstance(), 0, events("a", 3));
+        test.assertEquals(dispatcher.getQueueDepth(), 2);
+        test.assertEquals(dispatcher.getDroppedEvents(), 1L);
+
+        runTasks();
+        List<String> expected = new ArrayList<>();
+        expected.add("b@2");
+        expected.add("a@3");
+        test.assertEquals(delivered, expected);
+    }
+
+    @Test
+    public void testClose() {
+        WatchDispatcher dispatcher = newDispatcher(WatchOverflowPolicy.BLOCK);
+        dispatcher.dispatch(ResponseHeader.getDefaultInstance(), 0, events("a", 1));
+        dispatcher.dispatch(ResponseHeader.getDefaultInstance(), 0, events("b", 2));
+        dispatcher.close();
+        test.assertEquals(blocked.get(blocked.size() - 1), Boolean.FALSE);
+
+        runTasks();
+        test.assertTrue(delivered.isEmpty());
+    }
+
+    @Test
+    public void testDemand() {
+        WatchOption option = WatchOption.newBuilder().withDispatchQueueSize(3).build();
+        WatchDispatcher dispatcher = new WatchDispatcher(callback, executor, option, listener, 0);
+        List<Event> events = new ArrayList<>();
+        events.addAll(events("a", 1));
+        events.addAll(events("b", 2));
+        events.addAll(events("c", 3));
+        dispatcher.dispatch(ResponseHeader.getDefaultInstance(), 0, events);
+        test.assertTrue(tasks.isEmpty());
+        test.assertEquals(blocked, Collections.singletonList(true));
+
+        // the response is split by the demand
+        dispatcher.request(2);
+        runTasks();
+        List<String> expected = new ArrayList<>();
+        expected.add("a@1");
+        expected.add("b@2");
+        test.assertEquals(delivered, expected);
+        test.assertEquals(dispatcher.getQueueDepth(), 1);
+        test.assertEquals(blocked.get(blocked.size() - 1), Boolean.FALSE);
+
+        dispatcher.dispatchResuming();
+        dispatcher.request(1);
+        runTasks();
+        expected.add("c@3");
+        expected.add("resuming");
+        test.assertEquals(delivered, expected);
+    }
+
+    @Test
+    public void testCoalesceWindow() {
+        ScheduledExecutorService timer = mock(ScheduledExecutorService.class);
+        doReturn(mock(ScheduledFuture.class)).when(timer).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        WatchOption option = WatchOption.newBuilder()
+                .withCoalesceWindow(100, TimeUnit.MILLISECONDS)
+                .withCoalesceMaxEvents(4)
+                .build();
+        WatchDispatcher dispatcher = new WatchDispatcher(callback, executor, option, listener, Long.MAX_VALUE, timer);
+        dispatcher.dispatch(ResponseHeader.getDefaultInstance(), 0, events("a", 1));
+        dispatcher.dispatch(ResponseHeader.getDefaultInstance(), 0, events("b", 2));
+        dispatcher.dispatch(ResponseHeader.getDefaultInstance(), 0, events("a", 3));
+        runTasks();
+        test.assertTrue(delivered.isEmpty());
+        test.assertEquals(dispatcher.getQueueDepth(), 2);
+
+        // the window closes on time, with the latest event of each key
+        ArgumentCaptor<Runnable> close = ArgumentCaptor.forClass(Runnable.class);
+        verify(timer).schedule(close.capture(), eq(TimeUnit.MILLISECONDS.toNanos(100)), eq(TimeUnit.NANOSECONDS));
+        close.getValue().run();
+        runTasks();
+        List<String> expected = new ArrayList<>();
+        expected.add("b@2");
+        expected.add("a@3");
+        test.assertEquals(delivered, expected);
+        test.assertEquals(dispatcher.getDroppedEvents(), 1);
+
+        // the next window closes early at the max events
+        for (long revision = 4; revision <= 7; revision++) {
+            dispatcher.dispatch(ResponseHeader.getDefaultInstance(), 0, events("c", revision));
+        }
+        runTasks();
+        expected.add("c@7");
+        test.assertEquals(delivered, expected);
+    }
+
+    @Test
+    public void testDeliveredRevision() {
+        WatchDispatcher dispatcher = newDispatcher(WatchOverflowPolicy.BLOCK);
+        dispatcher.dispatch(ResponseHeader.newBuilder().setRevision(3).build(), 0, events("a", 2));
+        test.assertEquals(dispatcher.getDeliveredRevision(), 0L);
+        runTasks();
+        test.assertEquals(dispatcher.getDeliveredRevision(), 2L);
+
+        // a progress notification moves the revision without events
+        dispatcher.dispatch(ResponseHeader.newBuilder().setRevision(9).build(), 0, Collections.emptyList());
+        runTasks();
+        test.assertEquals(dispatcher.getDeliveredRevision(), 9L);
+
+        dispatcher.dispatchResuming();
+        runTasks();
+        test.assertEquals(dispatcher.getDeliveredRevision(), 9L);
+    }
+
+    @Test
+    public void testTerminate() {
+        WatchDispatcher dispatcher = newDispatcher(WatchOverflowPolicy.BLOCK);
+        dispatcher.dispatch(ResponseHeader.getDefaultInstance(), 0, events("a", 1));
+        test.assertTrue(dispatcher.terminate(() -> delivered.add("error")));
+        test.assertFalse(dispatcher.terminate(() -> delivered.add("second error")));
+        dispatcher.dispatch(ResponseHeader.getDefaultInstance(), 0, events("b", 2));
+        // closing the dispatcher keeps the signal
+        dispatcher.close();
+
+        runTasks();
+        test.assertEquals(delivered, Collections.singletonList("error"));
+        test.assertEquals(dispatcher.getQueueDepth(), 0);
+    }
+
+    @Test
+    public void testTerminateDuringCallback() {
+        WatchDispatcher[] dispatcher = new WatchDispatcher[1];
+        EtcdWatch.WatchCallback terminating = new EtcdWatch.WatchCallback() {
+            @Override
+            public void onWatch(EtcdHeader header, long compactRevision, List<WatchEvent> events) {
+                dispatcher[0].terminate(() -> delivered.add("error"));
+                delivered.add("events");
+            }
+
+            @Override
+            public void onResuming() {
+            }
+        };
+        dispatcher[0] = new WatchDispatcher(terminating, executor, WatchOption.DEFAULT, listener);
+        dispatcher[0].dispatch(ResponseHeader.getDefaultInstance(), 0, events("a", 1));
+
+        // the signal waits for the running callback, in the same drain
+        tasks.remove(0).run();
+        test.assertEquals(delivered, Arrays.asList("events", "error"));
+        test.assertTrue(tasks.isEmpty());
+    }
+}
@@ -0,0 +1,97 @@
+package com.coreos.jetcd;
+
+import com.google.protobuf.ByteString;
+
+import com.coreos.jetcd.api.Event;
+import com.coreos.jetcd.api.KeyValue;
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.watch.WatchEvent;
+
+import org.testng.annotations.Test;
+import org.testng.asserts.Assertion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Client side watch filter test cases.
+ */
+public class WatchEventFilterTest {
+
+    private Assertion test = new Assertion();
+
+    private Event event(String key, String value, long revision) {
+        return Event.newBuilder()
+                .setType(Event.EventType.PUT)
+                .setKv(KeyValue.newBuilder()
+                        .setKey(ByteString.copyFromUtf8(key))
+                        .setValue(ByteString.copyFromUtf8(value))
+                        .setModRevision(revision))
+                .build();
+    }
+
+    private List<String> keys(List<Event> events) {
+        List<String> keys = new ArrayList<>();
+        for (Event event : events) {
+            keys.add(event.getKv().getKey().toStringUtf8() + "@" + event.getKv().getModRevision());
+        }
+        return keys;
+    }
+
+    private List<Event> events() {
+        return Arrays.asList(
+                event("/config/a.json", "1", 1),
+                event("/config/b.yaml", "22", 2),
+                event("/config/a.json", "333", 3),
+                event("/config/dir/c.json", "4444", 4));
+    }
+
+    @Test
+    public void testNoFilter() {
+        test.assertNull(WatchEventFilter.of(WatchOption.DEFAULT));
+        List<Event> events = events();
+        WatchEventFilter filter = WatchEventFilter.of(WatchOption.newBuilder().withMaxValueSize(10).build());
+        test.assertSame(filter.apply(events), events);
+    }
+
+    @Test
+    public void testKeyGlob() {
+        WatchEventFilter filter = WatchEventFilter.of(WatchOption.newBuilder().withKeyGlob("/config/?.json").build());
+        test.assertEquals(keys(filter.apply(events())), Arrays.asList("/config/a.json@1", "/config/a.json@3"));
+
+        filter = WatchEventFilter.of(WatchOption.newBuilder().withKeyGlob("/config/*.json").build());
+        test.assertEquals(keys(filter.apply(events())), Arrays.asList("/config/a.json@1", "/config/a.json@3", "/config/dir/c.json@4"));
+    }
+
+    @Test
+    public void testKeyPatternAndValueSize() {
+        WatchEventFilter filter = WatchEventFilter.of(WatchOption.newBuilder()
+                .withKeyPattern(Pattern.compile(".*\\.json"))
+                .withMaxValueSize(3)
+                .build());
+        test.assertEquals(keys(filter.apply(events())), Arrays.asList("/config/a.json@1", "/config/a.json@3"));
+    }
+
+    @Test
+    public void testLatestPerKeyAndKeysOnly() {
+        WatchEventFilter filter = WatchEventFilter.of(WatchOption.newBuilder()
+                .withLatestPerKey(true)
+                .withKeysOnly(true)
+                .build());
+        List<Event> filtered = filter.apply(events());
+        test.assertEquals(keys(filtered), Arrays.asList("/config/b.yaml@2", "/config/a.json@3", "/config/dir/c.json@4"));
+        for (Event event : filtered) {
+            test.assertTrue(event.getKv().getValue().isEmpty());
+        }
+    }
+
+    @Test
+    public void testEventFilter() {
+        WatchEventFilter filter = WatchEventFilter.of(WatchOption.newBuilder()
+                .withEventFilter(event -> event.getEventType() == WatchEvent.EventType.DELETE)
+                .build());
+        test.assertTrue(filter.apply(events()).isEmpty());
+    }
+}
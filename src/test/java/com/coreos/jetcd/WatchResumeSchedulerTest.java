@@ -0,0 +1,100 @@
+package com.coreos.jetcd;
+
+import com.coreos.jetcd.options.WatchOption;
+import com.coreos.jetcd.options.WatchResumeOption;
+
+import org.testng.annotations.Test;
+import org.testng.asserts.Assertion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Watch resume scheduler test cases, the watchers are mocks recording the resume order.
+ */
+public class WatchResumeSchedulerTest {
+
+    private Assertion test = new Assertion();
+
+    private EtcdWatchImpl.WatcherImpl watcher(int priority) {
+        EtcdWatchImpl.WatcherImpl watcher = mock(EtcdWatchImpl.WatcherImpl.class);
+        when(watcher.getWatchOption()).thenReturn(WatchOption.newBuilder().withResumePriority(priority).build());
+        return watcher;
+    }
+
+    @Test
+    public void testBackoff() {
+        WatchResumeOption option = WatchResumeOption.newBuilder()
+                .withInitialBackoff(100, TimeUnit.MILLISECONDS)
+                .withMaxBackoff(1, TimeUnit.SECONDS)
+                .withJitter(0)
+                .build();
+        WatchResumeScheduler scheduler = new WatchResumeScheduler(option, watcher -> {
+        });
+
+        long[] expected = {100, 200, 400, 800, 1000, 1000};
+        for (long backoff : expected) {
+            scheduler.schedule(Collections.emptyList());
+            test.assertEquals(scheduler.backoffNanos(), TimeUnit.MILLISECONDS.toNanos(backoff));
+        }
+        scheduler.reset();
+        scheduler.schedule(Collections.emptyList());
+        test.assertEquals(scheduler.backoffNanos(), TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void testJitter() {
+        WatchResumeOption option = WatchResumeOption.newBuilder()
+                .withInitialBackoff(100, TimeUnit.MILLISECONDS)
+                .withJitter(0.5)
+                .build();
+        WatchResumeScheduler scheduler = new WatchResumeScheduler(option, watcher -> {
+        });
+        scheduler.schedule(Collections.emptyList());
+        for (int i = 0; i < 100; i++) {
+            long backoff = scheduler.backoffNanos();
+            test.assertTrue(backoff > TimeUnit.MILLISECONDS.toNanos(50) && backoff <= TimeUnit.MILLISECONDS.toNanos(100));
+        }
+    }
+
+    @Test
+    public void testPriorityAndRate() throws Exception {
+        List<Integer> progress = new CopyOnWriteArrayList<>();
+        WatchResumeOption option = WatchResumeOption.newBuilder()
+                .withRate(200)
+                .withInitialBackoff(1, TimeUnit.MILLISECONDS)
+                .withJitter(0)
+                .withListener((resumed, remaining) -> progress.add(remaining))
+                .build();
+
+        EtcdWatchImpl.WatcherImpl low = watcher(0);
+        EtcdWatchImpl.WatcherImpl high = watcher(10);
+        EtcdWatchImpl.WatcherImpl middle = watcher(5);
+        EtcdWatchImpl.WatcherImpl last = watcher(0);
+
+        List<EtcdWatchImpl.WatcherImpl> resumed = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(4);
+        WatchResumeScheduler scheduler = new WatchResumeScheduler(option, watcher -> {
+            resumed.add(watcher);
+            latch.countDown();
+        });
+
+        scheduler.schedule(Arrays.asList(low, high, middle, last));
+        // queued watchers keep their place when the stream fails again
+        scheduler.schedule(Collections.singletonList(low));
+        test.assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        test.assertEquals(resumed, Arrays.asList(high, middle, low, last));
+        test.assertEquals(scheduler.getPending(), 0);
+        // 200 watchers per second resume 2 per 10 ms tick
+        test.assertEquals(new ArrayList<>(progress), Arrays.asList(2, 0));
+    }
+}
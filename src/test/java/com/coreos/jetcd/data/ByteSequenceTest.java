@@ -0,0 +1,53 @@
+package com.coreos.jetcd.data;
+
+import com.google.protobuf.ByteString;
+
+import org.testng.annotations.Test;
+import org.testng.asserts.Assertion;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ByteSequence test cases.
+ */
+public class ByteSequenceTest {
+
+    private Assertion test = new Assertion();
+
+    @Test
+    public void testFromByteStringDoesNotCopy() {
+        ByteString byteString = ByteString.copyFromUtf8("sample_key");
+        ByteSequence byteSequence = ByteSequence.fromByteString(byteString);
+
+        test.assertTrue(byteSequence.getByteString() == byteString);
+        test.assertEquals(byteSequence.toStringUtf8(), "sample_key");
+        test.assertEquals(byteSequence.size(), byteString.size());
+    }
+
+    @Test
+    public void testEqualsAndHashCode() {
+        ByteSequence fromString = ByteSequence.fromString("sample_key");
+        ByteSequence fromByteString = ByteSequence.fromByteString(ByteString.copyFromUtf8("sample_key"));
+
+        test.assertEquals(fromString, fromByteString);
+        test.assertEquals(fromString.hashCode(), fromByteString.hashCode());
+        test.assertNotEquals(fromString, ByteSequence.fromString("sample_key2"));
+    }
+
+    @Test
+    public void testSourceArrayIsCopied() {
+        byte[] source = new byte[]{'a', 'b'};
+        ByteSequence byteSequence = ByteSequence.fromBytes(source);
+        source[0] = 'c';
+
+        test.assertEquals(byteSequence.toStringUtf8(), "ab");
+    }
+
+    @Test
+    public void testReadOnlyByteBuffer() {
+        ByteBuffer buffer = ByteSequence.fromString("sample_value").asReadOnlyByteBuffer();
+
+        test.assertTrue(buffer.isReadOnly());
+        test.assertEquals(buffer.remaining(), "sample_value".length());
+    }
+}